@@ -0,0 +1,54 @@
+#!/usr/bin/env bash
+#
+# Compares time-to-first-consumed-record of the default build against the fast-start
+# build (Spring AOT + AppCDS). Needs the docker-compose stack running and at least one
+# record in orders-topic (e.g. POST one order to /api/v1/orders/send). Every run uses a
+# fresh consumer group, so it starts from the earliest offset.
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+
+set -euo pipefail
+
+RUNS="${1:-5}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+WORK="$ROOT/target/startup-benchmark"
+JAR_NAME="kafka_assignment_01-0.0.1-SNAPSHOT.jar"
+
+mkdir -p "$WORK"
+cd "$ROOT"
+
+echo "Building default jar..."
+./mvnw -q -B package -DskipTests
+cp "target/$JAR_NAME" "$WORK/default.jar"
+
+echo "Building fast-start jar and CDS archive..."
+./mvnw -q -B package -DskipTests -Pfast-start
+
+# Start the app, wait for the first consumed record, print its JVM uptime in ms
+measure() {
+  local log="$WORK/run.log"
+  "$@" --server.port=0 --spring.kafka.consumer.group-id="startup-bench-$RANDOM$RANDOM" > "$log" 2>&1 &
+  local pid=$!
+  local ms=""
+  for _ in $(seq 1 600); do
+    ms="$(grep -o 'Time to first consumed record: [0-9]*' "$log" | grep -o '[0-9]*$' || true)"
+    [ -n "$ms" ] && break
+    sleep 0.1
+  done
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+  echo "${ms:-timeout}"
+}
+
+report() {
+  local label="$1"; shift
+  local results=()
+  for _ in $(seq 1 "$RUNS"); do
+    results+=("$(measure "$@")")
+  done
+  echo "$label: ${results[*]} ms"
+}
+
+report "default   " java -jar "$WORK/default.jar"
+report "fast-start" java -XX:SharedArchiveFile=target/fast-start/application.jsa -Dspring.aot.enabled=true \
+  -jar "target/fast-start/$JAR_NAME" --spring.profiles.active=fast-start
@@ -0,0 +1,21 @@
+package com.thana.kafka_assignment_01.catalog;
+
+/**
+ * Catalog data an order is enriched with before it is aggregated.
+ */
+public record CatalogEntry(
+    String product,
+    String category,
+    double listPrice,
+    String currency
+) {
+
+    public static final String UNCATEGORIZED = "uncategorized";
+
+    /**
+     * Stand-in for products the catalog does not know (when entries are not required).
+     */
+    public static CatalogEntry uncatalogued(String product) {
+        return new CatalogEntry(product, UNCATEGORIZED, 0.0, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.thana.kafka_assignment_01.catalog;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Where catalog data comes from. Lookups may be slow or fail, so callers go through
+ * {@link ProductCatalog}, which caches them.
+ */
+public interface CatalogSource {
+
+    /**
+     * The catalog entry of a product, or empty when the catalog does not list it.
+     *
+     * @throws IOException when the catalog cannot be reached or read
+     */
+    Optional<CatalogEntry> find(String product) throws IOException;
+}
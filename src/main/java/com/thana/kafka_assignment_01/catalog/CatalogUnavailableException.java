@@ -0,0 +1,11 @@
+package com.thana.kafka_assignment_01.catalog;
+
+/**
+ * The catalog could not answer in time. Transient: the order goes through the retry path.
+ */
+public class CatalogUnavailableException extends RuntimeException {
+
+    public CatalogUnavailableException(String product, Throwable cause) {
+        super("Catalog lookup failed for product " + product, cause);
+    }
+}
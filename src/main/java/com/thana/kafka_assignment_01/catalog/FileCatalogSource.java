@@ -0,0 +1,74 @@
+package com.thana.kafka_assignment_01.catalog;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Local stand-in for a catalog service: a JSON file mapping product names to
+ * category, list price and currency (see product-catalog.example.json). The file is
+ * re-read when it changes. Without a file the catalog is empty.
+ */
+@Slf4j
+@Component
+public class FileCatalogSource implements CatalogSource {
+
+    private final ObjectMapper objectMapper;
+    private final Path catalogFile;
+
+    private volatile Map<String, CatalogEntry> entries = Map.of();
+    private volatile long catalogFileModified = -1;
+
+    public FileCatalogSource(
+        ObjectMapper objectMapper,
+        @Value("${kafka.catalog.file:}") String catalogFile
+    ) {
+        this.objectMapper = objectMapper;
+        this.catalogFile = catalogFile == null || catalogFile.isBlank() ? null : Path.of(catalogFile);
+    }
+
+    @Override
+    public Optional<CatalogEntry> find(String product) throws IOException {
+        return Optional.ofNullable(current().get(product));
+    }
+
+    private Map<String, CatalogEntry> current() throws IOException {
+        if (catalogFile == null || !Files.exists(catalogFile)) {
+            return Map.of();
+        }
+        long modified = Files.getLastModifiedTime(catalogFile).toMillis();
+        if (modified != catalogFileModified) {
+            synchronized (this) {
+                if (modified != catalogFileModified) {
+                    entries = read();
+                    catalogFileModified = modified;
+                    log.info("Product catalog loaded from {} ({} products)", catalogFile, entries.size());
+                }
+            }
+        }
+        return entries;
+    }
+
+    private Map<String, CatalogEntry> read() throws IOException {
+        Map<String, FileEntry> file = objectMapper.readValue(catalogFile.toFile(), new TypeReference<>() {});
+        Map<String, CatalogEntry> loaded = new HashMap<>();
+        file.forEach((product, entry) ->
+            loaded.put(product, new CatalogEntry(product, entry.category(), entry.listPrice(), entry.currency())));
+        return Map.copyOf(loaded);
+    }
+
+    record FileEntry(
+        String category,
+        double listPrice,
+        String currency
+    ) {}
+}
@@ -0,0 +1,226 @@
+package com.thana.kafka_assignment_01.catalog;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache in front of the {@link CatalogSource}.
+ *
+ * Loads run asynchronously and concurrent misses for the same product share one load.
+ * An entry older than refresh-after is still served while a background reload replaces
+ * it (refresh-ahead), so hot products never block on the catalog; only entries past
+ * expire-after, or never loaded, make the caller wait. Products the catalog does not list
+ * are cached too. Past max-entries the least recently used entries are evicted.
+ */
+@Slf4j
+@Component
+public class ProductCatalog {
+
+    private final CatalogSource source;
+    private final int maxEntries;
+    private final long refreshAfterMs;
+    private final long expireAfterMs;
+    private final long loadTimeoutMs;
+
+    private final Map<String, Cached> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Cached>> loading = new ConcurrentHashMap<>();
+
+    // Catalog lookups block on I/O, each load runs on its own virtual thread
+    private final ExecutorService loader = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ProductCatalog(
+        CatalogSource source,
+        @Value("${kafka.catalog.max-entries}") int maxEntries,
+        @Value("${kafka.catalog.refresh-after-ms}") long refreshAfterMs,
+        @Value("${kafka.catalog.expire-after-ms}") long expireAfterMs,
+        @Value("${kafka.catalog.load-timeout-ms}") long loadTimeoutMs
+    ) {
+        this.source = source;
+        this.maxEntries = maxEntries;
+        this.refreshAfterMs = refreshAfterMs;
+        this.expireAfterMs = expireAfterMs;
+        this.loadTimeoutMs = loadTimeoutMs;
+    }
+
+    /**
+     * Catalog entry of a product, or empty when the catalog does not list it.
+     *
+     * @throws CatalogUnavailableException when a required load fails or times out
+     */
+    public Optional<CatalogEntry> lookup(String product) {
+        long now = System.currentTimeMillis();
+        Cached cached = entries.get(product);
+
+        if (cached != null && now - cached.loadedAt < expireAfterMs) {
+            hits.increment();
+            cached.lastAccess = now;
+            if (now - cached.loadedAt >= refreshAfterMs && !loading.containsKey(product)) {
+                refreshes.increment();
+                load(product);
+            }
+            return Optional.ofNullable(cached.entry);
+        }
+
+        misses.increment();
+        try {
+            return Optional.ofNullable(load(product).get(loadTimeoutMs, TimeUnit.MILLISECONDS).entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CatalogUnavailableException(product, e);
+        } catch (ExecutionException e) {
+            throw new CatalogUnavailableException(product, e.getCause());
+        } catch (TimeoutException e) {
+            throw new CatalogUnavailableException(product, e);
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Start background loads for products that are not cached yet (warm-up).
+     *
+     * @return how many loads were started
+     */
+    public int prefetch(Collection<String> products) {
+        int started = 0;
+        for (String product : products) {
+            if (!entries.containsKey(product) && !loading.containsKey(product)) {
+                load(product);
+                started++;
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Start loading a product, or join the load already in flight for it.
+     */
+    private CompletableFuture<Cached> load(String product) {
+        CompletableFuture<Cached> created = new CompletableFuture<>();
+        CompletableFuture<Cached> inFlight = loading.putIfAbsent(product, created);
+        if (inFlight != null) {
+            coalesced.increment();
+            return inFlight;
+        }
+
+        loader.execute(() -> {
+            try {
+                loads.increment();
+                Cached loaded = new Cached(source.find(product).orElse(null), System.currentTimeMillis());
+                entries.put(product, loaded);
+                evictIfFull();
+                created.complete(loaded);
+            } catch (Exception e) {
+                // A failed refresh keeps serving the previous entry until it expires
+                loadFailures.increment();
+                log.warn("Catalog load failed for product {}", product, e);
+                created.completeExceptionally(e);
+            } finally {
+                loading.remove(product, created);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Evict down to 90% of the bound in one pass, so the scan runs once per many inserts.
+     */
+    private void evictIfFull() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        synchronized (this) {
+            int excess = entries.size() - maxEntries * 9 / 10;
+            if (excess <= 0) {
+                return;
+            }
+            List<Map.Entry<String, Cached>> candidates = new ArrayList<>(entries.entrySet());
+            candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+            for (int i = 0; i < excess && i < candidates.size(); i++) {
+                Map.Entry<String, Cached> victim = candidates.get(i);
+                if (entries.remove(victim.getKey(), victim.getValue())) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    public CatalogStats getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        return new CatalogStats(
+            entries.size(),
+            maxEntries,
+            hitCount,
+            missCount,
+            lookups == 0 ? 0.0 : (double) hitCount / lookups,
+            coalesced.sum(),
+            loads.sum(),
+            loadFailures.sum(),
+            refreshes.sum(),
+            evictions.sum()
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    private static final class Cached {
+
+        final CatalogEntry entry;
+        final long loadedAt;
+        volatile long lastAccess;
+
+        Cached(CatalogEntry entry, long loadedAt) {
+            this.entry = entry;
+            this.loadedAt = loadedAt;
+            this.lastAccess = loadedAt;
+        }
+    }
+
+    /**
+     * Cache counters; coalesced counts lookups that joined a load already in flight.
+     */
+    public record CatalogStats(
+        int size,
+        int maxEntries,
+        long hits,
+        long misses,
+        double hitRatio,
+        long coalesced,
+        long loads,
+        long loadFailures,
+        long refreshes,
+        long evictions
+    ) {}
+}
@@ -0,0 +1,32 @@
+package com.thana.kafka_assignment_01.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * How long after publishing an order is still worth processing. A product entry wins
+ * over the lane's TTL; a zero TTL means the order never expires.
+ *
+ * @param defaultTtl  TTL of normal-lane orders
+ * @param priorityTtl TTL of priority-lane orders
+ * @param products    TTL per product name
+ */
+@ConfigurationProperties(prefix = "kafka.deadlines")
+public record DeadlineProperties(
+    Duration defaultTtl,
+    Duration priorityTtl,
+    Map<String, Duration> products
+) {
+
+    public DeadlineProperties {
+        defaultTtl = defaultTtl == null ? Duration.ZERO : defaultTtl;
+        priorityTtl = priorityTtl == null ? Duration.ZERO : priorityTtl;
+        products = products == null ? Map.of() : Map.copyOf(products);
+        if (defaultTtl.isNegative() || priorityTtl.isNegative()
+            || products.values().stream().anyMatch(Duration::isNegative)) {
+            throw new IllegalArgumentException("kafka.deadlines TTLs must not be negative");
+        }
+    }
+}
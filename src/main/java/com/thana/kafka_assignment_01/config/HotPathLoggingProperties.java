@@ -0,0 +1,38 @@
+package com.thana.kafka_assignment_01.config;
+
+import com.thana.kafka_assignment_01.logging.EventCategory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+/**
+ * Sampling and rate limits for hot-path logging, per event category.
+ * Categories without an entry are logged for every event.
+ */
+@ConfigurationProperties(prefix = "kafka.hot-path-logging")
+public record HotPathLoggingProperties(
+    int ringSize,
+    Map<EventCategory, CategoryLimits> categories
+) {
+
+    public static final CategoryLimits UNLIMITED = new CategoryLimits(1, 0);
+
+    public HotPathLoggingProperties {
+        if (ringSize <= 0) {
+            ringSize = 4096;
+        }
+        categories = categories == null ? Map.of() : Map.copyOf(categories);
+    }
+
+    public CategoryLimits limitsFor(EventCategory category) {
+        return categories.getOrDefault(category, UNLIMITED);
+    }
+
+    /**
+     * Log one event in every sampleEvery, and at most maxPerSecond per second (0 = no cap).
+     */
+    public record CategoryLimits(
+        int sampleEvery,
+        int maxPerSecond
+    ) {}
+}
@@ -1,25 +1,49 @@
 package com.thana.kafka_assignment_01.config;
 
+import com.thana.kafka_assignment_01.model.FailureMetadata;
+import com.thana.kafka_assignment_01.service.DeadLetterQueueService;
+import com.thana.kafka_assignment_01.service.OrderRebalanceListener;
+import com.thana.kafka_assignment_01.service.ProductDictionary;
 import io.confluent.kafka.serializers.KafkaAvroDeserializer;
 import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.consumer.RangeAssignor;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.DeserializationException;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.IntFunction;
 
 @Configuration
 public class KafkaConfig {
 
+    public static final String DESERIALIZATION_FAILED_CODE = "DESERIALIZATION_FAILED";
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
@@ -30,12 +54,37 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${kafka.topics.orders-stats}")
+    private String statsTopic;
+
+    @Value("${kafka.producer.product-affinity}")
+    private boolean productAffinity;
+
+    @Value("${kafka.consumer.concurrency}")
+    private int concurrency;
+
+    @Value("${kafka.topics.product-dictionary}")
+    private String productDictionaryTopic;
+
+    @Value("${kafka.consumer.assignor}")
+    private String assignor;
+
+    @Value("${kafka.consumer.group-instance-id:}")
+    private String groupInstanceId;
+
+    @Value("${kafka.consumer.session-timeout-ms}")
+    private int sessionTimeoutMs;
+
+    @Value("${kafka.topics.orders-dlq}")
+    private String dlqTopic;
+
     /**
      * Producer factory for sending Avro-encoded messages.
-     * Uses idempotence and acks=all for reliability.
+     * Uses idempotence and acks=all for reliability, and optionally routes
+     * orders by product instead of by orderId.
      */
     @Bean
-    public ProducerFactory<String, Object> producerFactory() {
+    public ProducerFactory<String, Object> producerFactory(ProductDictionary productDictionary) {
         Map<String, Object> config = new HashMap<>();
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
@@ -44,12 +93,17 @@ public class KafkaConfig {
         config.put(ProducerConfig.ACKS_CONFIG, "all");
         config.put(ProducerConfig.RETRIES_CONFIG, 3);
         config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        if (productAffinity) {
+            config.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, ProductAffinityPartitioner.class);
+            config.put(ProductAffinityPartitioner.PRODUCT_NAMES_CONFIG,
+                (IntFunction<String>) productDictionary::nameFor);
+        }
         return new DefaultKafkaProducerFactory<>(config);
     }
 
     @Bean
-    public KafkaTemplate<String, Object> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
     }
 
     /**
@@ -71,20 +125,198 @@ public class KafkaConfig {
         config.put("specific.avro.reader", true);
         config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, assignmentStrategy(assignor));
+        config.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, sessionTimeoutMs);
 
         return new DefaultKafkaConsumerFactory<>(config);
     }
 
+    /**
+     * Partition assignment strategy by name. "cooperative-sticky" only revokes the
+     * partitions that change owner, so consumers keep processing the rest during a
+     * rebalance; "eager" (range) revokes every partition of every consumer first.
+     */
+    public static List<Class<?>> assignmentStrategy(String assignor) {
+        return switch (assignor) {
+            case "cooperative-sticky" -> List.of(CooperativeStickyAssignor.class);
+            case "eager" -> List.of(RangeAssignor.class);
+            default -> throw new IllegalArgumentException("Unknown kafka.consumer.assignor: " + assignor);
+        };
+    }
+
     /**
      * Listener factory configured for manual acknowledgment, so we commit offsets
      * only after successful processing (useful for retries & DLQ handling).
+     * Successful records are acknowledged from the sink's writer thread.
+     * The rebalance listener flushes in-flight work on revoke and hands analytics shards
+     * over when partitions move.
      */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory(
+        OrderRebalanceListener orderRebalanceListener,
+        KafkaTemplate<String, Object> kafkaTemplate,
+        DeadLetterQueueService deadLetterQueueService
+    ) {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory =
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // Acks arrive out of order from the processed-order sink; commits wait for gaps to fill
+        factory.getContainerProperties().setAsyncAcks(true);
+        factory.getContainerProperties().setConsumerRebalanceListener(orderRebalanceListener);
+        // The listeners handle their own failures, so only records that failed to deserialize get
+        // here. Dead-letter them without retrying and carry on in place: a seek would leave the
+        // batch un-acked, and with async acks the container stays paused until every record of
+        // the batch is acked.
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
+            failedRecordRecoverer(kafkaTemplate, deadLetterQueueService), new FixedBackOff(0, 0));
+        errorHandler.setSeekAfterError(false);
+        factory.setCommonErrorHandler(errorHandler);
+        if (!groupInstanceId.isBlank()) {
+            // Static membership: one id per listener; child containers append "-<n>" per consumer
+            factory.setContainerCustomizer(container -> container.getContainerProperties()
+                .getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG,
+                    groupInstanceId + "-" + container.getListenerId()));
+        }
+        return factory;
+    }
+
+    /**
+     * Dead-letters failed records, except those read from the DLQ itself: dead-lettering them
+     * again would loop, so the DLQ service indexes them from their headers instead. These are
+     * the raw records that already failed to deserialize on their source topic.
+     */
+    private ConsumerRecordRecoverer failedRecordRecoverer(
+        KafkaTemplate<String, Object> kafkaTemplate,
+        DeadLetterQueueService deadLetterQueueService
+    ) {
+        DeadLetterPublishingRecoverer deadLetterRecoverer = deadLetterRecoverer(kafkaTemplate);
+        return (record, exception) -> {
+            if (dlqTopic.equals(record.topic())) {
+                deadLetterQueueService.recordUnreadable(record, exception);
+            } else {
+                deadLetterRecoverer.accept(record, exception);
+            }
+        };
+    }
+
+    /**
+     * Publishes failed records to the DLQ with the same failure headers the listeners write.
+     * A record that failed to deserialize keeps its raw bytes, so it goes out through a
+     * byte[] template.
+     */
+    private DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaTemplate<String, Object> kafkaTemplate) {
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(byte[].class, rawKafkaTemplate());
+        templates.put(Object.class, kafkaTemplate);
+
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(templates,
+            (record, exception) -> new TopicPartition(dlqTopic, -1));
+        recoverer.setHeadersFunction((record, exception) -> failureHeaders(record.topic(), record.partition(),
+            record.offset(), exception));
+        return recoverer;
+    }
+
+    private static Headers failureHeaders(String topic, int partition, long offset, Exception exception) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(exception);
+        Headers headers = new RecordHeaders();
+        FailureMetadata.firstFailure(topic, partition, offset, cause).writeTo(headers);
+        FailureMetadata.write(headers, FailureMetadata.FAILURE_CODE,
+            failedToDeserialize(exception) ? DESERIALIZATION_FAILED_CODE : cause.getClass().getSimpleName());
+        FailureMetadata.write(headers, FailureMetadata.FAILURE_REASON, String.valueOf(cause.getMessage()));
+        return headers;
+    }
+
+    private static boolean failedToDeserialize(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeserializationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private KafkaTemplate<String, byte[]> rawKafkaTemplate() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(config));
+    }
+
+    /**
+     * Order, retry, DLQ and priority topics, sized by {@link TopicPlanner}. KafkaAdmin creates
+     * them at startup, adds partitions to existing ones that have too few and, with
+     * spring.kafka.admin.modify-topic-configs, brings their configs in line.
+     */
+    @Bean
+    public KafkaAdmin.NewTopics orderTopics(TopicPlanner topicPlanner) {
+        return new KafkaAdmin.NewTopics(topicPlanner.plans().stream()
+            .map(plan -> TopicBuilder.name(plan.topic())
+                .partitions(plan.partitions())
+                .replicas(plan.replicas())
+                .configs(plan.configs())
+                .build())
+            .toArray(NewTopic[]::new));
+    }
+
+    /**
+     * Compacted topic holding the latest partial aggregate per instance and partition.
+     */
+    @Bean
+    public NewTopic ordersStatsTopic() {
+        return TopicBuilder.name(statsTopic)
+            .partitions(1)
+            .replicas(1)
+            .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT)
+            .build();
+    }
+
+    /**
+     * Compacted topic mapping product dictionary ids (record offsets) to product names.
+     */
+    @Bean
+    public NewTopic productDictionaryTopic() {
+        return TopicBuilder.name(productDictionaryTopic)
+            .partitions(1)
+            .replicas(1)
+            .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT)
+            .build();
+    }
+
+    /**
+     * Plain String template for internal topics (stats partials, product dictionary),
+     * kept apart from the Avro template so they do not need a registered schema.
+     */
+    @Bean
+    public KafkaTemplate<String, String> stringKafkaTemplate() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(config));
+    }
+
+    /**
+     * Listener factory for the internal String topics. Their listeners seek to the start,
+     * either in a group per instance or by assignment, so every instance reads the whole topic.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> stringListenerContainerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(config));
         return factory;
     }
 }
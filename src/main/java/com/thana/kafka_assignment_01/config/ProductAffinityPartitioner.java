@@ -0,0 +1,66 @@
+package com.thana.kafka_assignment_01.config;
+
+import com.thana.kafka_assignment_01.model.Order;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Routes every order of a product to the same partition, so per-product analytics
+ * stay within one partition's shard. The partition is always derived from the product
+ * name: compact (v2) orders carry only a dictionary id, which is resolved back to the
+ * name through the function configured under {@link #PRODUCT_NAMES_CONFIG}, so a product
+ * lands on the same partition before and after it is registered. Ids that cannot be
+ * resolved, and anything that is not an Order, fall back to hashing the record key.
+ */
+public class ProductAffinityPartitioner implements Partitioner {
+
+    /**
+     * Producer config key for an {@code IntFunction<String>} from product id to name.
+     */
+    public static final String PRODUCT_NAMES_CONFIG = "product.affinity.names";
+
+    private IntFunction<String> productNames = id -> null;
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes,
+                         Cluster cluster) {
+        int partitions = cluster.partitionsForTopic(topic).size();
+
+        byte[] affinity = keyBytes;
+        if (value instanceof Order order) {
+            String product = productName(order);
+            if (product != null) {
+                affinity = product.getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        if (affinity == null) {
+            return 0;
+        }
+        return Utils.toPositive(Utils.murmur2(affinity)) % partitions;
+    }
+
+    private String productName(Order order) {
+        if (order.getProduct() != null) {
+            return order.getProduct().toString();
+        }
+        return order.getProductId() >= 0 ? productNames.apply(order.getProductId()) : null;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void configure(Map<String, ?> configs) {
+        Object names = configs.get(PRODUCT_NAMES_CONFIG);
+        if (names instanceof IntFunction<?> lookup) {
+            productNames = (IntFunction<String>) lookup;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.thana.kafka_assignment_01.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * With spring.main.lazy-initialization on (fast-start profile), keep every bean eager
+ * except the API documentation stack, which nothing needs until someone opens it.
+ */
+@Configuration
+public class StartupConfig {
+
+    private static final List<String> NON_CRITICAL_PACKAGES = List.of(
+        "org.springdoc.",
+        "io.swagger.",
+        SwaggerConfig.class.getName()
+    );
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerUnlessNonCritical() {
+        return (beanName, beanDefinition, beanType) -> {
+            String className = beanType != null ? beanType.getName() : beanDefinition.getBeanClassName();
+            if (className == null) {
+                return true;
+            }
+            return NON_CRITICAL_PACKAGES.stream().noneMatch(className::startsWith);
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.thana.kafka_assignment_01.config;
+
+import com.thana.kafka_assignment_01.config.TopicPlanner.TopicPlan;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks the provisioned order topics right before the listener containers start.
+ *
+ * A topic with fewer partitions than its listener has threads (expansion failed, or the
+ * topic is managed elsewhere) fails startup with kafka.provisioning.fail-fast and is
+ * logged as a warning otherwise. Fewer partitions or replicas than planned are warnings.
+ * An unreachable broker only logs a warning: the listeners keep retrying on their own.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TopicLayoutVerifier implements SmartLifecycle {
+
+    private final KafkaAdmin kafkaAdmin;
+    private final TopicPlanner topicPlanner;
+    private final TopicProvisioningProperties properties;
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        running = true;
+        List<TopicPlan> plans = topicPlanner.plans();
+        List<String> blocking = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        if (plans.isEmpty() || !verify(plans, blocking, warnings)) {
+            return;
+        }
+
+        warnings.forEach(warning -> log.warn("Topic layout: {}", warning));
+        if (blocking.isEmpty()) {
+            log.info("Topic layout verified for {}", plans.stream().map(TopicPlan::topic).toList());
+        } else if (properties.failFast()) {
+            throw new IllegalStateException("Topic layout cannot support the listener concurrency: "
+                + String.join("; ", blocking));
+        } else {
+            blocking.forEach(problem -> log.warn("Topic layout: {}", problem));
+        }
+    }
+
+    /**
+     * @return false when the topics could not be described
+     */
+    private boolean verify(List<TopicPlan> plans, List<String> blocking, List<String> warnings) {
+        Map<String, Object> config = new HashMap<>(kafkaAdmin.getConfigurationProperties());
+        int timeoutMs = (int) properties.verifyTimeoutMs();
+        config.put(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, timeoutMs);
+        config.put(AdminClientConfig.DEFAULT_API_TIMEOUT_MS_CONFIG, timeoutMs);
+
+        Admin admin = Admin.create(config);
+        try {
+            Map<String, KafkaFuture<TopicDescription>> described = admin
+                .describeTopics(plans.stream().map(TopicPlan::topic).toList())
+                .topicNameValues();
+            long deadline = System.currentTimeMillis() + timeoutMs;
+
+            for (TopicPlan plan : plans) {
+                TopicDescription description;
+                try {
+                    long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                    description = described.get(plan.topic()).get(remaining, TimeUnit.MILLISECONDS);
+                } catch (ExecutionException e) {
+                    blocking.add(plan.topic() + " does not exist (" + e.getCause().getMessage() + ")");
+                    continue;
+                }
+                check(plan, description, blocking, warnings);
+            }
+            return true;
+
+        } catch (TimeoutException e) {
+            log.warn("Could not verify the topic layout within {} ms, is the broker up?", timeoutMs);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            admin.close(Duration.ZERO);
+        }
+    }
+
+    private void check(TopicPlan plan, TopicDescription description, List<String> blocking, List<String> warnings) {
+        int partitions = description.partitions().size();
+        if (partitions < plan.listenerConcurrency()) {
+            blocking.add(String.format("%s has %d partition(s) but its listener runs %d thread(s), %d would sit idle",
+                plan.topic(), partitions, plan.listenerConcurrency(), plan.listenerConcurrency() - partitions));
+        } else if (partitions < plan.partitions()) {
+            warnings.add(String.format("%s has %d partition(s), fewer than the %d its throughput target needs",
+                plan.topic(), partitions, plan.partitions()));
+        }
+
+        int replicas = description.partitions().getFirst().replicas().size();
+        if (replicas < plan.replicas()) {
+            warnings.add(String.format("%s has %d replica(s), %d planned; replicas are not added automatically",
+                plan.topic(), replicas, plan.replicas()));
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Just before the listener containers, so a failed check stops startup before any
+     * record is consumed.
+     */
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 1;
+    }
+}
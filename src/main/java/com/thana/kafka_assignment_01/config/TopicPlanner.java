@@ -0,0 +1,109 @@
+package com.thana.kafka_assignment_01.config;
+
+import com.thana.kafka_assignment_01.config.TopicProvisioningProperties.TopicTarget;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Derives the layout of the order topics from their throughput targets:
+ *
+ * - partitions: enough for the target at partition-throughput records/s each, and never
+ *   fewer than the threads of the listener reading the topic
+ * - retention.ms: the target retention; retention.bytes caps each partition at twice the
+ *   bytes the target rate writes in that time, so a burst cannot fill the disk
+ * - segment.bytes: about an hour of writes per partition (1 MiB to 1 GiB), so retention
+ *   deletes in hour steps instead of waiting for a default 1 GiB segment to fill
+ * - cleanup.policy delete: every record is an event, there is no latest value per key to
+ *   compact to
+ *
+ * Partitions are only ever added: Kafka cannot shrink a topic. Adding partitions moves
+ * keys to other partitions, so per-key ordering only holds from the expansion on.
+ */
+@Component
+public class TopicPlanner {
+
+    private static final long MIN_SEGMENT_BYTES = 1L << 20;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int RETENTION_BYTES_HEADROOM = 2;
+
+    private final TopicProvisioningProperties properties;
+    private final Map<String, String> topicNames = new LinkedHashMap<>();
+    private final Map<String, Integer> listenerConcurrency = new LinkedHashMap<>();
+
+    public TopicPlanner(
+        TopicProvisioningProperties properties,
+        @Value("${kafka.topics.orders}") String ordersTopic,
+        @Value("${kafka.topics.orders-retry}") String retryTopic,
+        @Value("${kafka.topics.orders-dlq}") String dlqTopic,
+        @Value("${kafka.topics.orders-priority}") String priorityTopic,
+        @Value("${kafka.consumer.concurrency}") int concurrency,
+        @Value("${kafka.priority.listener-concurrency}") int priorityConcurrency
+    ) {
+        this.properties = properties;
+        register("orders", ordersTopic, concurrency);
+        register("orders-retry", retryTopic, concurrency);
+        register("orders-dlq", dlqTopic, concurrency);
+        register("orders-priority", priorityTopic, priorityConcurrency);
+    }
+
+    private void register(String key, String topic, int concurrency) {
+        topicNames.put(key, topic);
+        listenerConcurrency.put(key, concurrency);
+    }
+
+    /**
+     * Plans for every order topic with a throughput target.
+     */
+    public List<TopicPlan> plans() {
+        List<TopicPlan> plans = new ArrayList<>();
+        topicNames.forEach((key, topic) -> {
+            TopicTarget target = properties.topics().get(key);
+            if (target != null) {
+                plans.add(plan(topic, target, listenerConcurrency.get(key), properties.replicas(),
+                    properties.partitionThroughput()));
+            }
+        });
+        return plans;
+    }
+
+    public static TopicPlan plan(String topic, TopicTarget target, int listenerConcurrency, short replicas,
+                                 int partitionThroughput) {
+        int forThroughput = (int) Math.ceil((double) target.targetThroughput() / partitionThroughput);
+        int partitions = Math.max(1, Math.max(forThroughput, listenerConcurrency));
+
+        long retentionMs = target.retentionHours() * 3_600_000L;
+        double bytesPerPartitionPerSecond = (double) target.targetThroughput() * target.avgRecordBytes() / partitions;
+        long retentionBytes = (long) (bytesPerPartitionPerSecond * (retentionMs / 1000) * RETENTION_BYTES_HEADROOM);
+        long segmentBytes = Math.clamp((long) (bytesPerPartitionPerSecond * 3600), MIN_SEGMENT_BYTES,
+            MAX_SEGMENT_BYTES);
+
+        Map<String, String> configs = new LinkedHashMap<>();
+        configs.put(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_DELETE);
+        configs.put(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(retentionMs));
+        configs.put(TopicConfig.RETENTION_BYTES_CONFIG, String.valueOf(Math.max(retentionBytes, segmentBytes)));
+        configs.put(TopicConfig.SEGMENT_BYTES_CONFIG, String.valueOf(segmentBytes));
+        if (replicas > 1) {
+            // acks=all producers keep writing with one replica down
+            configs.put(TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG, String.valueOf(replicas - 1));
+        }
+        return new TopicPlan(topic, partitions, replicas, listenerConcurrency, configs);
+    }
+
+    /**
+     * listenerConcurrency: threads of the listener reading the topic; partitions beyond
+     * it are fine, threads beyond the partition count sit idle.
+     */
+    public record TopicPlan(
+        String topic,
+        int partitions,
+        short replicas,
+        int listenerConcurrency,
+        Map<String, String> configs
+    ) {}
+}
@@ -0,0 +1,45 @@
+package com.thana.kafka_assignment_01.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+/**
+ * Throughput targets the order topics are provisioned for, keyed like kafka.topics
+ * (orders, orders-retry, orders-dlq, orders-priority).
+ *
+ * @param partitionThroughput records/s one partition, and the listener thread reading it, is sized for
+ * @param failFast            stop startup when a topic has fewer partitions than its listener has threads
+ */
+@ConfigurationProperties(prefix = "kafka.provisioning")
+public record TopicProvisioningProperties(
+    short replicas,
+    int partitionThroughput,
+    boolean failFast,
+    long verifyTimeoutMs,
+    Map<String, TopicTarget> topics
+) {
+
+    public TopicProvisioningProperties {
+        if (replicas <= 0) {
+            replicas = 1;
+        }
+        if (partitionThroughput <= 0) {
+            throw new IllegalArgumentException("kafka.provisioning.partition-throughput must be > 0");
+        }
+        if (verifyTimeoutMs <= 0) {
+            verifyTimeoutMs = 5000;
+        }
+        topics = topics == null ? Map.of() : Map.copyOf(topics);
+    }
+
+    /**
+     * Expected load of one topic: records/s at peak, average record size and how long
+     * records must stay readable.
+     */
+    public record TopicTarget(
+        int targetThroughput,
+        int avgRecordBytes,
+        int retentionHours
+    ) {}
+}
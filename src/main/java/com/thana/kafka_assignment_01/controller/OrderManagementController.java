@@ -1,16 +1,40 @@
 package com.thana.kafka_assignment_01.controller;
 
+import java.io.IOException;
+import java.text.ParseException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
+import com.thana.kafka_assignment_01.catalog.ProductCatalog;
+import com.thana.kafka_assignment_01.jfr.PipelineRecorder;
+import com.thana.kafka_assignment_01.logging.EventCategory;
+import com.thana.kafka_assignment_01.logging.HotPathLogger;
+import com.thana.kafka_assignment_01.outbox.OrderOutbox;
+import com.thana.kafka_assignment_01.query.OrderColumnStore;
+import com.thana.kafka_assignment_01.service.BackfillService;
+import com.thana.kafka_assignment_01.service.ClusterStatsService;
 import com.thana.kafka_assignment_01.service.DeadLetterQueueService;
+import com.thana.kafka_assignment_01.service.FailureForwarder;
+import com.thana.kafka_assignment_01.service.FailedOrderIndex;
+import com.thana.kafka_assignment_01.service.LaneMetrics;
+import com.thana.kafka_assignment_01.service.OrderDeadlines;
 import com.thana.kafka_assignment_01.service.OrderPublisherService;
+import com.thana.kafka_assignment_01.service.OrderRebalanceListener;
 import com.thana.kafka_assignment_01.service.PriceAnalyticsService;
+import com.thana.kafka_assignment_01.service.ProductDictionary;
+import com.thana.kafka_assignment_01.service.StartupMetrics;
+import com.thana.kafka_assignment_01.service.StatsStreamService;
+import com.thana.kafka_assignment_01.sink.ProcessedOrderSink;
+import com.thana.kafka_assignment_01.validation.OrderValidator;
+import com.thana.kafka_assignment_01.validation.ValidationResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Slf4j
 @RestController
@@ -21,38 +45,42 @@ public class OrderManagementController {
     private final OrderPublisherService producerService;
     private final PriceAnalyticsService aggregationService;
     private final DeadLetterQueueService deadLetterQueueService;
+    private final ClusterStatsService clusterStatsService;
+    private final HotPathLogger hotPathLogger;
+    private final OrderValidator orderValidator;
+    private final ProductDictionary productDictionary;
+    private final StatsStreamService statsStreamService;
+    private final StartupMetrics startupMetrics;
+    private final BackfillService backfillService;
+    private final ProductCatalog productCatalog;
+    private final ProcessedOrderSink processedOrderSink;
+    private final OrderOutbox orderOutbox;
+    private final LaneMetrics laneMetrics;
+    private final OrderRebalanceListener orderRebalanceListener;
+    private final FailureForwarder failureForwarder;
+    private final OrderColumnStore orderColumnStore;
+    private final PipelineRecorder pipelineRecorder;
+    private final OrderDeadlines orderDeadlines;
 
     @PostMapping("/send")
     public ResponseEntity<Map<String, Object>> sendOrder(@RequestBody OrderRequest request) {
         try {
-            // Basic validation
-            if (request.orderId() == null || request.orderId().trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of(
-                    "status", "error",
-                    "message", "Order ID is required"
-                ));
-            }
-            if (request.product() == null || request.product().trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of(
-                    "status", "error",
-                    "message", "Product name is required"
-                ));
-            }
-            if (request.price() <= 0) {
+            log.info("REST API: Sending order - ID: {}, Product: {}, Price: {}",
+                request.orderId(), request.product(), request.price());
+
+            ValidationResult validation =
+                producerService.sendOrder(request.orderId(), request.product(), request.price());
+            if (!validation.valid()) {
                 return ResponseEntity.badRequest().body(Map.of(
                     "status", "error",
-                    "message", "Price must be greater than zero"
+                    "code", validation.code(),
+                    "message", validation.message()
                 ));
             }
 
-            log.info("REST API: Sending order - ID: {}, Product: {}, Price: {}",
-                request.orderId(), request.product(), request.price());
-
-            producerService.sendOrder(request.orderId(), request.product(), request.price());
-
             return ResponseEntity.ok(Map.of(
                 "status", "success",
-                "message", "Order sent to Kafka",
+                "message", orderOutbox.isEnabled() ? "Order accepted into the outbox" : "Order sent to Kafka",
                 "orderId", request.orderId(),
                 "product", request.product(),
                 "price", request.price()
@@ -82,10 +110,7 @@ public class OrderManagementController {
 
             for (OrderRequest order : orders) {
                 try {
-                    if (order.orderId() != null && !order.orderId().trim().isEmpty()
-                        && order.product() != null && !order.product().trim().isEmpty()
-                        && order.price() > 0) {
-                        producerService.sendOrder(order.orderId(), order.product(), order.price());
+                    if (producerService.sendOrder(order.orderId(), order.product(), order.price()).valid()) {
                         successCount++;
                     } else {
                         log.warn("Skipping invalid order: {}", order);
@@ -115,22 +140,125 @@ public class OrderManagementController {
 
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStats() {
-        log.info("REST API: Fetching aggregation stats");
+        log.info("REST API: Fetching cluster-wide aggregation stats");
+        ClusterStatsService.ClusterStats cluster = clusterStatsService.getClusterStats();
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "stats", cluster.stats(),
+            "instances", cluster.instances(),
+            "staleInstances", cluster.staleInstances(),
+            "partials", cluster.partials(),
+            "stalePartials", cluster.stalePartials(),
+            "oldestPartialAgeMs", cluster.oldestPartialAgeMs()
+        ));
+    }
+
+    @GetMapping("/stats/local")
+    public ResponseEntity<Map<String, Object>> getLocalStats() {
+        log.info("REST API: Fetching local aggregation stats");
         PriceAnalyticsService.AggregationStats stats = aggregationService.getStats();
         return ResponseEntity.ok(Map.of(
             "status", "success",
+            "instanceId", clusterStatsService.getInstanceId(),
             "stats", stats
         ));
     }
 
+    @GetMapping(value = "/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStats() {
+        return statsStreamService.subscribe();
+    }
+
+    @GetMapping("/stats/products")
+    public ResponseEntity<Map<String, Object>> getProductStats() {
+        log.info("REST API: Fetching per-product aggregation stats");
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "products", aggregationService.getProductStats(),
+            "shardOwners", aggregationService.getShardOwners()
+        ));
+    }
+
+    @GetMapping("/stats/categories")
+    public ResponseEntity<Map<String, Object>> getCategoryStats() {
+        log.info("REST API: Fetching per-category aggregation stats");
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "categories", aggregationService.getCategoryStats()
+        ));
+    }
+
+    @GetMapping("/stats/products/ranked")
+    public ResponseEntity<Map<String, Object>> getRankedProducts(
+        @RequestParam(defaultValue = "COUNT") PriceAnalyticsService.ProductSort sortBy,
+        @RequestParam(defaultValue = "false") boolean ascending,
+        @RequestParam(defaultValue = "50") int limit
+    ) {
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "status", "error",
+                "message", "limit must be > 0"
+            ));
+        }
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "sortBy", sortBy,
+            "products", aggregationService.getRankedProducts(sortBy, ascending, limit),
+            "tables", aggregationService.getProductTableStats()
+        ));
+    }
+
+    @GetMapping("/stats/products/{product}")
+    public ResponseEntity<Map<String, Object>> getProductStats(@PathVariable String product) {
+        PriceAnalyticsService.ProductStats stats = aggregationService.getProductStats(product);
+        if (stats == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                "status", "error",
+                "message", "No stats for product " + product
+            ));
+        }
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "product", stats
+        ));
+    }
+
     @PostMapping("/stats/reset")
     public ResponseEntity<Map<String, String>> resetStats() {
         log.info("REST API: Resetting aggregation stats");
-        aggregationService.reset();
+        clusterStatsService.resetLocal();
+
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "message", "Aggregation statistics reset for instance " + clusterStatsService.getInstanceId()
+        ));
+    }
+
+    @PostMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> startBackfill(
+        @RequestBody(required = false) BackfillService.BackfillRequest request
+    ) {
+        log.info("REST API: Starting analytics backfill {}", request);
+        try {
+            BackfillService.BackfillStatus status = backfillService.start(
+                request != null ? request : new BackfillService.BackfillRequest(null, null));
+            return ResponseEntity.accepted().body(Map.of(
+                "status", "success",
+                "backfill", status
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "status", "error",
+                "message", e.getMessage()
+            ));
+        }
+    }
 
+    @GetMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> getBackfillStatus() {
         return ResponseEntity.ok(Map.of(
             "status", "success",
-            "message", "Aggregation statistics reset"
+            "backfill", backfillService.getStatus()
         ));
     }
 
@@ -140,18 +268,277 @@ public class OrderManagementController {
         return ResponseEntity.ok(Map.of(
             "status", "success",
             "failedOrderCount", deadLetterQueueService.getFailedOrderCount(),
+            "evictedFailedOrders", deadLetterQueueService.getEvictedFailedOrderCount(),
             "failedOrders", deadLetterQueueService.getFailedOrders()
         ));
     }
 
+    /**
+     * reason filters on the reason code (validation code, exception type, EXPIRED,
+     * MAX_RETRIES_EXCEEDED, ...), not the free-text reason.
+     */
+    @GetMapping("/failed/query")
+    public ResponseEntity<Map<String, Object>> queryFailedOrders(
+        @RequestParam(required = false) String reason,
+        @RequestParam(required = false) String product,
+        @RequestParam(required = false) Integer partition,
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "50") int size
+    ) {
+        if (page < 0 || size <= 0) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "status", "error",
+                "message", "page must be >= 0 and size must be > 0"
+            ));
+        }
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "result", deadLetterQueueService.queryFailedOrders(reason, product, partition, page, size)
+        ));
+    }
+
+    @GetMapping("/failed/breakdown")
+    public ResponseEntity<Map<String, Object>> getFailedBreakdown(
+        @RequestParam(defaultValue = "REASON") FailedOrderIndex.Dimension by
+    ) {
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "by", by,
+            "counts", deadLetterQueueService.getBreakdown(by)
+        ));
+    }
+
+    @GetMapping("/failed/histogram")
+    public ResponseEntity<Map<String, Object>> getFailedHistogram(
+        @RequestParam(defaultValue = "REASON") FailedOrderIndex.Dimension by,
+        @RequestParam(required = false) Long from,
+        @RequestParam(required = false) Long to
+    ) {
+        long end = to != null ? to : System.currentTimeMillis() + 1;
+        long start = from != null ? from : end - 60 * deadLetterQueueService.getHistogramBucketMs();
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "by", by,
+            "bucketMs", deadLetterQueueService.getHistogramBucketMs(),
+            "buckets", deadLetterQueueService.getHistogram(by, start, end)
+        ));
+    }
+
+    @PostMapping("/validation/reload")
+    public ResponseEntity<Map<String, Object>> reloadValidationRules() {
+        log.info("REST API: Reloading validation rules");
+        try {
+            return ResponseEntity.ok(Map.of(
+                "status", "success",
+                "rules", orderValidator.reload()
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "status", "error",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @GetMapping("/products/dictionary")
+    public ResponseEntity<Map<String, Object>> getProductDictionary() {
+        Map<Integer, String> entries = productDictionary.entries();
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "size", entries.size(),
+            "entries", entries
+        ));
+    }
+
+    @GetMapping("/catalog/stats")
+    public ResponseEntity<Map<String, Object>> getCatalogStats() {
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "cache", productCatalog.getStats()
+        ));
+    }
+
+    @GetMapping("/sink/stats")
+    public ResponseEntity<Map<String, Object>> getSinkStats() {
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "sink", processedOrderSink.getStats()
+        ));
+    }
+
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<Map<String, Object>> getOutboxStats() {
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "outbox", orderOutbox.getStats()
+        ));
+    }
+
+    @GetMapping("/lanes/stats")
+    public ResponseEntity<Map<String, Object>> getLaneStats() {
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "sloMs", laneMetrics.getSloMs(),
+            "lanes", laneMetrics.getStats()
+        ));
+    }
+
+    @GetMapping("/rebalance/stats")
+    public ResponseEntity<Map<String, Object>> getRebalanceStats() {
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "rebalance", orderRebalanceListener.getStats()
+        ));
+    }
+
+    @GetMapping("/deadlines/stats")
+    public ResponseEntity<Map<String, Object>> getDeadlineStats() {
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "deadlines", orderDeadlines.getStats()
+        ));
+    }
+
+    @GetMapping("/forwards/stats")
+    public ResponseEntity<Map<String, Object>> getForwardStats() {
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "forwards", failureForwarder.getStats()
+        ));
+    }
+
+    /**
+     * Ad-hoc aggregate over processed orders held in memory, e.g.
+     * /query?product=Laptop&minPrice=50&maxPrice=100&last=PT1H. Time bounds are epoch ms
+     * (from inclusive, to exclusive); last is a duration back from now and overrides from.
+     */
+    @GetMapping("/query")
+    public ResponseEntity<Map<String, Object>> queryOrders(
+        @RequestParam(required = false) String product,
+        @RequestParam(required = false) Long from,
+        @RequestParam(required = false) Long to,
+        @RequestParam(required = false) Duration last,
+        @RequestParam(required = false) Float minPrice,
+        @RequestParam(required = false) Float maxPrice
+    ) {
+        long start = last != null ? System.currentTimeMillis() - last.toMillis()
+            : from != null ? from : Long.MIN_VALUE;
+        OrderColumnStore.OrderQuery query = new OrderColumnStore.OrderQuery(
+            product,
+            start,
+            to != null ? to : Long.MAX_VALUE,
+            minPrice != null ? minPrice : Float.NEGATIVE_INFINITY,
+            maxPrice != null ? maxPrice : Float.POSITIVE_INFINITY
+        );
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "query", query,
+            "result", orderColumnStore.query(query)
+        ));
+    }
+
+    @GetMapping("/query/stats")
+    public ResponseEntity<Map<String, Object>> getQueryStoreStats() {
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "store", orderColumnStore.getStats()
+        ));
+    }
+
+    /**
+     * Starts a Flight Recorder recording of the pipeline stage events, e.g.
+     * /recording/start?threshold=PT0S&jvmEvents=true to keep every event plus GC and
+     * safepoint data. Open the dumped files in JDK Mission Control or with `jfr print`.
+     */
+    @PostMapping("/recording/start")
+    public ResponseEntity<Map<String, Object>> startRecording(
+        @RequestParam(required = false) Duration threshold,
+        @RequestParam(defaultValue = "false") boolean jvmEvents
+    ) {
+        log.info("REST API: Starting flight recording (threshold {}, JVM events {})", threshold, jvmEvents);
+        try {
+            return ResponseEntity.ok(Map.of(
+                "status", "success",
+                "recording", pipelineRecorder.start(threshold, jvmEvents)
+            ));
+        } catch (IllegalStateException e) {
+            return recordingError(HttpStatus.CONFLICT, e);
+        } catch (IOException | ParseException e) {
+            return recordingError(HttpStatus.INTERNAL_SERVER_ERROR, e);
+        }
+    }
+
+    @PostMapping("/recording/dump")
+    public ResponseEntity<Map<String, Object>> dumpRecording() {
+        log.info("REST API: Dumping flight recording");
+        try {
+            return ResponseEntity.ok(Map.of(
+                "status", "success",
+                "recording", pipelineRecorder.dump()
+            ));
+        } catch (IllegalStateException e) {
+            return recordingError(HttpStatus.CONFLICT, e);
+        } catch (IOException e) {
+            return recordingError(HttpStatus.INTERNAL_SERVER_ERROR, e);
+        }
+    }
+
+    @PostMapping("/recording/stop")
+    public ResponseEntity<Map<String, Object>> stopRecording() {
+        log.info("REST API: Stopping flight recording");
+        try {
+            return ResponseEntity.ok(Map.of(
+                "status", "success",
+                "recording", pipelineRecorder.stop()
+            ));
+        } catch (IllegalStateException e) {
+            return recordingError(HttpStatus.CONFLICT, e);
+        } catch (IOException e) {
+            return recordingError(HttpStatus.INTERNAL_SERVER_ERROR, e);
+        }
+    }
+
+    @GetMapping("/recording")
+    public ResponseEntity<Map<String, Object>> getRecording() {
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "recording", pipelineRecorder.getStatus()
+        ));
+    }
+
+    private static ResponseEntity<Map<String, Object>> recordingError(HttpStatus status, Exception e) {
+        if (status.is5xxServerError()) {
+            log.error("Flight recording request failed", e);
+        }
+        return ResponseEntity.status(status).body(Map.of(
+            "status", "error",
+            "message", String.valueOf(e.getMessage())
+        ));
+    }
+
+    @GetMapping("/events/recent")
+    public ResponseEntity<Map<String, Object>> getRecentEvents(
+        @RequestParam(defaultValue = "100") int limit,
+        @RequestParam(required = false) EventCategory category
+    ) {
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "capacity", hotPathLogger.getRecentEventsBuffer().capacity(),
+            "totalEvents", hotPathLogger.getRecentEventsBuffer().totalEvents(),
+            "events", hotPathLogger.recentEvents(Math.max(0, limit), category)
+        ));
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
+        PriceAnalyticsService.AggregationStats clusterStats = clusterStatsService.getClusterStats().stats();
         return ResponseEntity.ok(Map.of(
             "status", "UP",
             "service", "Kafka Order System",
-            "totalOrdersProcessed", aggregationService.getTotalOrders().get(),
-            "currentAverage", aggregationService.getRunningAverage().get(),
-            "failedOrders", deadLetterQueueService.getFailedOrderCount()
+            "totalOrdersProcessed", clusterStats.totalOrders(),
+            "currentAverage", clusterStats.runningAverage(),
+            "failedOrders", deadLetterQueueService.getFailedOrderCount(),
+            "timeToFirstRecordMs", startupMetrics.getTimeToFirstRecordMs()
         ));
     }
 
@@ -0,0 +1,17 @@
+package com.thana.kafka_assignment_01.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.thana.orders.DeadLetterIntake")
+@Label("Dead Letter Intake")
+@Description("DLQ record read and indexed for inspection")
+public final class DeadLetterIntakeEvent extends PipelineEvent {
+
+    @Label("Reason")
+    public String reason;
+
+    @Label("Retry Count")
+    public int retryCount;
+}
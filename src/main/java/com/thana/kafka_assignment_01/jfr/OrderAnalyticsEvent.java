@@ -0,0 +1,13 @@
+package com.thana.kafka_assignment_01.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("com.thana.orders.Analytics")
+@Label("Order Analytics")
+@Description("Order price added to the analytics shard and the query store")
+@Threshold("1 ms")
+public final class OrderAnalyticsEvent extends PipelineEvent {
+}
@@ -0,0 +1,29 @@
+package com.thana.kafka_assignment_01.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * One record through a listener, from delivery to handing it to the sink or the failure
+ * path. For retries the duration includes the retry delay, which is also reported on its
+ * own so it can be subtracted.
+ */
+@Name("com.thana.orders.Consume")
+@Label("Order Consume")
+@Description("Order record handled by a listener")
+@Threshold("1 ms")
+public final class OrderConsumeEvent extends PipelineEvent {
+
+    @Label("Topic")
+    public String topic;
+
+    @Label("Retry Count")
+    public int retryCount;
+
+    @Label("Retry Delay")
+    @Timespan(Timespan.MILLISECONDS)
+    public long retryDelay;
+}
@@ -0,0 +1,29 @@
+package com.thana.kafka_assignment_01.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A failed order forwarded to the retry topic or the DLQ, from its classification until
+ * the forward is on the broker. Rare, so every one is recorded.
+ */
+@Name("com.thana.orders.Forward")
+@Label("Order Forward")
+@Description("Failed order forwarded to the retry topic or the DLQ")
+public final class OrderForwardEvent extends PipelineEvent {
+
+    @Label("Target Topic")
+    @Description("Topic the forward landed on; the DLQ when a retry-topic forward fell back")
+    public String target;
+
+    @Label("Retry Count")
+    public int retryCount;
+
+    @Label("Failure")
+    public String failure;
+
+    @Label("Attempts")
+    @Description("Sends until the forward was on the broker, including a DLQ fallback")
+    public int attempts;
+}
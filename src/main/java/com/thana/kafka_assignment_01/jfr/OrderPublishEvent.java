@@ -0,0 +1,20 @@
+package com.thana.kafka_assignment_01.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * From encoding an order to the broker acknowledging it; committed on the producer's
+ * I/O thread.
+ */
+@Name("com.thana.orders.Publish")
+@Label("Order Publish")
+@Description("Order encoded, sent and acknowledged by the broker")
+@Threshold("1 ms")
+public final class OrderPublishEvent extends PipelineEvent {
+
+    @Label("Topic")
+    public String topic;
+}
@@ -0,0 +1,16 @@
+package com.thana.kafka_assignment_01.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("com.thana.orders.Validate")
+@Label("Order Validate")
+@Description("Validation rules applied to a consumed order")
+@Threshold("1 ms")
+public final class OrderValidateEvent extends PipelineEvent {
+
+    @Label("Valid")
+    public boolean valid;
+}
@@ -0,0 +1,41 @@
+package com.thana.kafka_assignment_01.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base of the order pipeline's Flight Recorder events: one event per stage an order
+ * passes through, timed with {@link #begin()} and finished with {@link #complete}.
+ *
+ * Stack traces are off, so a recorded event costs a few timestamps and field writes. When
+ * no recording has the event enabled, begin/complete return right away; the order id
+ * string is only built for events that are actually written.
+ */
+@Category("Order Pipeline")
+@StackTrace(false)
+public abstract class PipelineEvent extends Event {
+
+    @Label("Order ID")
+    String orderId;
+
+    @Label("Partition")
+    int partition;
+
+    @Label("Offset")
+    long offset;
+
+    /**
+     * Ends the event and writes it if a recording wants it (enabled and over the threshold).
+     */
+    public void complete(CharSequence orderId, int partition, long offset) {
+        end();
+        if (shouldCommit()) {
+            this.orderId = orderId == null ? null : orderId.toString();
+            this.partition = partition;
+            this.offset = offset;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.thana.kafka_assignment_01.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Starts, dumps and stops a Flight Recorder recording of the order pipeline events, one at
+ * a time.
+ *
+ * The per-record stage events (publish, consume, validate, analytics) are recorded when
+ * they take at least the threshold, so a recording stays small at full throughput and
+ * keeps the slow tail; forward and DLQ intake events are always recorded. JVM events (GC,
+ * safepoints, allocation, lock contention) are added on request with the JDK's "default"
+ * settings, to line stalls up with what the JVM was doing at the time.
+ */
+@Slf4j
+@Service
+public class PipelineRecorder {
+
+    private static final List<Class<? extends Event>> STAGE_EVENTS = List.of(
+        OrderPublishEvent.class, OrderConsumeEvent.class, OrderValidateEvent.class, OrderAnalyticsEvent.class);
+    private static final List<Class<? extends Event>> FAILURE_EVENTS = List.of(
+        OrderForwardEvent.class, DeadLetterIntakeEvent.class);
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final Duration defaultThreshold;
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+
+    private Recording recording;
+    private Duration threshold;
+    private boolean jvmEvents;
+
+    public PipelineRecorder(
+        @Value("${kafka.flight-recorder.directory}") String directory,
+        @Value("${kafka.flight-recorder.threshold}") Duration defaultThreshold,
+        @Value("${kafka.flight-recorder.max-age}") Duration maxAge,
+        @Value("${kafka.flight-recorder.max-size-mb}") long maxSizeMb
+    ) {
+        this.directory = Path.of(directory);
+        this.defaultThreshold = defaultThreshold;
+        this.maxAge = maxAge;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    /**
+     * @param threshold minimum duration of a recorded stage event, null for the configured one
+     * @throws IllegalStateException when a recording is already running
+     */
+    public synchronized RecordingStatus start(Duration threshold, boolean jvmEvents)
+            throws IOException, ParseException {
+        if (recording != null) {
+            throw new IllegalStateException("Recording " + recording.getName() + " is already running");
+        }
+        Duration stageThreshold = threshold != null ? threshold : defaultThreshold;
+
+        Recording fresh = jvmEvents
+            ? new Recording(Configuration.getConfiguration("default"))
+            : new Recording();
+        fresh.setName("order-pipeline");
+        STAGE_EVENTS.forEach(type -> fresh.enable(type).withThreshold(stageThreshold));
+        FAILURE_EVENTS.forEach(type -> fresh.enable(type).withThreshold(Duration.ZERO));
+        // Bounds the disk buffer of a recording nobody stops
+        fresh.setMaxAge(maxAge);
+        fresh.setMaxSize(maxSizeBytes);
+        fresh.start();
+
+        this.recording = fresh;
+        this.threshold = stageThreshold;
+        this.jvmEvents = jvmEvents;
+        log.info("Flight recording {} started (stage threshold {}, JVM events {})",
+            fresh.getName(), stageThreshold, jvmEvents);
+        return status(null);
+    }
+
+    /**
+     * Writes what the running recording holds so far to a new file and keeps recording.
+     *
+     * @throws IllegalStateException when no recording is running
+     */
+    public synchronized RecordingStatus dump() throws IOException {
+        Path file = writeTo(requireRecording());
+        log.info("Flight recording {} dumped to {}", recording.getName(), file);
+        return status(file);
+    }
+
+    /**
+     * Stops the running recording and writes it to a new file.
+     *
+     * @throws IllegalStateException when no recording is running
+     */
+    public synchronized RecordingStatus stop() throws IOException {
+        Recording stopping = requireRecording();
+        stopping.stop();
+        try {
+            Path file = writeTo(stopping);
+            RecordingStatus status = status(file);
+            log.info("Flight recording {} stopped and written to {}", stopping.getName(), file);
+            return status;
+        } finally {
+            stopping.close();
+            recording = null;
+        }
+    }
+
+    public synchronized RecordingStatus getStatus() {
+        return recording == null ? RecordingStatus.NONE : status(null);
+    }
+
+    private Recording requireRecording() {
+        if (recording == null) {
+            throw new IllegalStateException("No recording is running");
+        }
+        return recording;
+    }
+
+    private Path writeTo(Recording source) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(source.getName() + "-" + LocalDateTime.now().format(FILE_TIME) + ".jfr")
+            .toAbsolutePath();
+        source.dump(file);
+        return file;
+    }
+
+    private RecordingStatus status(Path file) {
+        return new RecordingStatus(
+            recording.getName(),
+            recording.getState().name(),
+            recording.getStartTime() == null ? 0 : recording.getStartTime().toEpochMilli(),
+            threshold.toString(),
+            jvmEvents,
+            recording.getSize(),
+            file == null ? null : file.toString()
+        );
+    }
+
+    /**
+     * state: the recording's JFR state, NONE when there is none; file: the file just written,
+     * if any.
+     */
+    public record RecordingStatus(
+        String name,
+        String state,
+        long startedAt,
+        String threshold,
+        boolean jvmEvents,
+        long sizeBytes,
+        String file
+    ) {
+        static final RecordingStatus NONE = new RecordingStatus(null, "NONE", 0, null, false, 0, null);
+    }
+}
@@ -0,0 +1,13 @@
+package com.thana.kafka_assignment_01.logging;
+
+/**
+ * Hot-path event categories, each with its own sampling and rate limit.
+ */
+public enum EventCategory {
+    RECEIVED,
+    VALIDATED,
+    PROCESSED,
+    ANALYTICS,
+    PUBLISHED,
+    DLQ
+}
@@ -0,0 +1,111 @@
+package com.thana.kafka_assignment_01.logging;
+
+import com.thana.kafka_assignment_01.config.HotPathLoggingProperties;
+import com.thana.kafka_assignment_01.config.HotPathLoggingProperties.CategoryLimits;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logging for per-record events. Every event lands in the in-memory ring; only a
+ * sampled, rate-limited subset is handed to the (asynchronous) log appenders.
+ */
+@Component
+public class HotPathLogger {
+
+    private final RecentEventsBuffer recentEvents;
+    private final Map<EventCategory, CategoryGate> gates = new EnumMap<>(EventCategory.class);
+
+    public HotPathLogger(HotPathLoggingProperties properties) {
+        this.recentEvents = new RecentEventsBuffer(properties.ringSize());
+        for (EventCategory category : EventCategory.values()) {
+            gates.put(category, new CategoryGate(properties.limitsFor(category)));
+        }
+    }
+
+    public void info(Logger logger, EventCategory category, String orderId, int partition, long offset,
+                     String message, Object... args) {
+        log(logger, Level.INFO, category, orderId, partition, offset, message, args);
+    }
+
+    public void error(Logger logger, EventCategory category, String orderId, int partition, long offset,
+                      String message, Object... args) {
+        log(logger, Level.ERROR, category, orderId, partition, offset, message, args);
+    }
+
+    public void log(Logger logger, Level level, EventCategory category, String orderId, int partition,
+                    long offset, String message, Object... args) {
+        recentEvents.add(category, level, orderId, partition, offset, message, args);
+
+        if (!logger.isEnabledForLevel(level)) {
+            return;
+        }
+        long suppressed = gates.get(category).tryPass();
+        if (suppressed < 0) {
+            return;
+        }
+        if (suppressed > 0) {
+            Object[] withSuppressed = Arrays.copyOf(args, args.length + 1);
+            withSuppressed[args.length] = suppressed;
+            logger.atLevel(level).log(message + " (+{} suppressed)", withSuppressed);
+        } else {
+            logger.atLevel(level).log(message, args);
+        }
+    }
+
+    public List<RecentEventsBuffer.RecentEvent> recentEvents(int limit, EventCategory category) {
+        return recentEvents.recent(limit, category);
+    }
+
+    public RecentEventsBuffer getRecentEventsBuffer() {
+        return recentEvents;
+    }
+
+    /**
+     * Lock-free 1-in-N sampler plus a per-second cap.
+     */
+    private static final class CategoryGate {
+
+        private final int sampleEvery;
+        private final int maxPerSecond;
+        private final AtomicLong seen = new AtomicLong();
+        private final AtomicLong suppressed = new AtomicLong();
+        private final AtomicLong currentSecond = new AtomicLong();
+        private final AtomicInteger passedThisSecond = new AtomicInteger();
+
+        CategoryGate(CategoryLimits limits) {
+            this.sampleEvery = Math.max(1, limits.sampleEvery());
+            this.maxPerSecond = Math.max(0, limits.maxPerSecond());
+        }
+
+        /**
+         * Returns -1 when the event should not be logged, otherwise how many events
+         * were dropped since the last one that was.
+         */
+        long tryPass() {
+            if (sampleEvery > 1 && seen.getAndIncrement() % sampleEvery != 0) {
+                suppressed.incrementAndGet();
+                return -1;
+            }
+            if (maxPerSecond > 0) {
+                long second = System.currentTimeMillis() / 1000;
+                long window = currentSecond.get();
+                if (window != second && currentSecond.compareAndSet(window, second)) {
+                    passedThisSecond.set(0);
+                }
+                if (passedThisSecond.incrementAndGet() > maxPerSecond) {
+                    suppressed.incrementAndGet();
+                    return -1;
+                }
+            }
+            return suppressed.getAndSet(0);
+        }
+    }
+}
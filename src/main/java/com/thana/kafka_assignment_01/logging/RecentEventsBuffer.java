@@ -0,0 +1,94 @@
+package com.thana.kafka_assignment_01.logging;
+
+import org.slf4j.event.Level;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size, lock-free ring of the most recent processing events. Writers claim a
+ * slot with one atomic increment and overwrite the oldest entry; messages are only
+ * formatted when someone reads them.
+ */
+public class RecentEventsBuffer {
+
+    private final AtomicReferenceArray<ProcessingEvent> slots;
+    private final AtomicLong sequence = new AtomicLong();
+    private final int mask;
+
+    public RecentEventsBuffer(int requestedSize) {
+        int size = Integer.highestOneBit(Math.max(2, requestedSize - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public void add(EventCategory category, Level level, String orderId, int partition, long offset,
+                    String message, Object[] args) {
+        long seq = sequence.getAndIncrement();
+        slots.set((int) (seq & mask), new ProcessingEvent(
+            seq, System.currentTimeMillis(), category, level, orderId, partition, offset, message, args));
+    }
+
+    /**
+     * Newest-first view of up to limit events, optionally restricted to one category.
+     */
+    public List<RecentEvent> recent(int limit, EventCategory category) {
+        List<RecentEvent> result = new ArrayList<>(Math.min(limit, slots.length()));
+        long newest = sequence.get() - 1;
+        long oldest = Math.max(0, newest - mask);
+
+        for (long seq = newest; seq >= oldest && result.size() < limit; seq--) {
+            ProcessingEvent event = slots.get((int) (seq & mask));
+            // Skip slots already overwritten by a newer writer, or not yet published
+            if (event == null || event.sequence() != seq) {
+                continue;
+            }
+            if (category == null || event.category() == category) {
+                result.add(event.toRecentEvent());
+            }
+        }
+        return result;
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    public long totalEvents() {
+        return sequence.get();
+    }
+
+    private record ProcessingEvent(
+        long sequence,
+        long timestamp,
+        EventCategory category,
+        Level level,
+        String orderId,
+        int partition,
+        long offset,
+        String message,
+        Object[] args
+    ) {
+        RecentEvent toRecentEvent() {
+            return new RecentEvent(sequence, timestamp, category, level.name(), orderId, partition, offset,
+                MessageFormatter.arrayFormat(message, args).getMessage());
+        }
+    }
+
+    /**
+     * Immutable record used as API response.
+     */
+    public record RecentEvent(
+        long sequence,
+        long timestamp,
+        EventCategory category,
+        String level,
+        String orderId,
+        int partition,
+        long offset,
+        String message
+    ) {}
+}
@@ -0,0 +1,108 @@
+package com.thana.kafka_assignment_01.model;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Failure details carried as record headers through the retry topic and into the DLQ,
+ * so every hop knows how often the order already failed and where it came from.
+ */
+public record FailureMetadata(
+    int retryCount,
+    long firstFailureTime,
+    String originalTopic,
+    int originalPartition,
+    long originalOffset,
+    String exceptionClass
+) {
+
+    public static final String RETRY_COUNT = "retry-count";
+    public static final String FIRST_FAILURE_TIME = "first-failure-time";
+    public static final String ORIGINAL_TOPIC = "original-topic";
+    public static final String ORIGINAL_PARTITION = "original-partition";
+    public static final String ORIGINAL_OFFSET = "original-offset";
+    public static final String EXCEPTION_CLASS = "exception-class";
+    public static final String FAILURE_REASON = "failure-reason";
+    // Bounded reason code (validation code, exception type, ...) next to the free-text reason
+    public static final String FAILURE_CODE = "failure-code";
+
+    /**
+     * Metadata for the first failure of a record consumed from its original topic.
+     */
+    public static FailureMetadata firstFailure(String topic, int partition, long offset, Throwable cause) {
+        return new FailureMetadata(0, System.currentTimeMillis(), topic, partition, offset,
+            cause.getClass().getName());
+    }
+
+    /**
+     * Metadata for a record leaving its original topic without having failed (e.g. expired).
+     */
+    public static FailureMetadata original(String topic, int partition, long offset) {
+        return new FailureMetadata(0, System.currentTimeMillis(), topic, partition, offset, null);
+    }
+
+    /**
+     * Read metadata written by a previous hop; records without it are treated as a first failure.
+     * Missing or malformed fields fall back to the record's own position, so a bad header set
+     * never fails the record.
+     */
+    public static FailureMetadata fromHeaders(Headers headers, String topic, int partition, long offset) {
+        long retryCount = parse(read(headers, RETRY_COUNT), -1);
+        if (retryCount < 0) {
+            return original(topic, partition, offset);
+        }
+        String originalTopic = read(headers, ORIGINAL_TOPIC);
+        return new FailureMetadata(
+            (int) Math.min(retryCount, Integer.MAX_VALUE),
+            parse(read(headers, FIRST_FAILURE_TIME), System.currentTimeMillis()),
+            originalTopic != null ? originalTopic : topic,
+            (int) parse(read(headers, ORIGINAL_PARTITION), partition),
+            parse(read(headers, ORIGINAL_OFFSET), offset),
+            read(headers, EXCEPTION_CLASS)
+        );
+    }
+
+    private static long parse(String value, long fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Metadata for the next hop after another failed attempt.
+     */
+    public FailureMetadata nextAttempt(Throwable cause) {
+        return new FailureMetadata(retryCount + 1, firstFailureTime, originalTopic, originalPartition,
+            originalOffset, cause.getClass().getName());
+    }
+
+    public void writeTo(Headers headers) {
+        write(headers, RETRY_COUNT, String.valueOf(retryCount));
+        write(headers, FIRST_FAILURE_TIME, String.valueOf(firstFailureTime));
+        write(headers, ORIGINAL_TOPIC, originalTopic);
+        write(headers, ORIGINAL_PARTITION, String.valueOf(originalPartition));
+        write(headers, ORIGINAL_OFFSET, String.valueOf(originalOffset));
+        if (exceptionClass != null) {
+            write(headers, EXCEPTION_CLASS, exceptionClass);
+        }
+    }
+
+    public static String read(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        return header == null || header.value() == null
+            ? null
+            : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    public static void write(Headers headers, String name, String value) {
+        headers.remove(name);
+        headers.add(name, value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -12,12 +12,13 @@ import org.apache.avro.message.BinaryMessageEncoder;
 import org.apache.avro.message.BinaryMessageDecoder;
 import org.apache.avro.message.SchemaStore;
 
+/** v2: product may be sent as a dictionary id (productId) instead of a string. v1 records, which only carry product, still decode with this schema. */
 @org.apache.avro.specific.AvroGenerated
 public class Order extends org.apache.avro.specific.SpecificRecordBase implements org.apache.avro.specific.SpecificRecord {
-  private static final long serialVersionUID = 6827819619664776270L;
+  private static final long serialVersionUID = -2151779384978035L;
 
 
-  public static final org.apache.avro.Schema SCHEMA$ = new org.apache.avro.Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Order\",\"namespace\":\"com.thana.kafka_assignment_01.model\",\"fields\":[{\"name\":\"orderId\",\"type\":\"string\"},{\"name\":\"product\",\"type\":\"string\"},{\"name\":\"price\",\"type\":\"float\"}]}");
+  public static final org.apache.avro.Schema SCHEMA$ = new org.apache.avro.Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Order\",\"namespace\":\"com.thana.kafka_assignment_01.model\",\"doc\":\"v2: product may be sent as a dictionary id (productId) instead of a string. v1 records, which only carry product, still decode with this schema.\",\"fields\":[{\"name\":\"orderId\",\"type\":\"string\"},{\"name\":\"product\",\"type\":[\"null\",\"string\"],\"doc\":\"Product name; null when the record is dictionary-encoded\",\"default\":null},{\"name\":\"price\",\"type\":\"float\"},{\"name\":\"productId\",\"type\":\"int\",\"doc\":\"Id in the product dictionary topic, -1 when product is sent as a string\",\"default\":-1}]}");
   public static org.apache.avro.Schema getClassSchema() { return SCHEMA$; }
 
   private static final SpecificData MODEL$ = new SpecificData();
@@ -74,8 +75,11 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
   }
 
   private java.lang.CharSequence orderId;
+  /** Product name; null when the record is dictionary-encoded */
   private java.lang.CharSequence product;
   private float price;
+  /** Id in the product dictionary topic, -1 when product is sent as a string */
+  private int productId;
 
   /**
    * Default constructor.  Note that this does not initialize fields
@@ -87,13 +91,15 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
   /**
    * All-args constructor.
    * @param orderId The new value for orderId
-   * @param product The new value for product
+   * @param product Product name; null when the record is dictionary-encoded
    * @param price The new value for price
+   * @param productId Id in the product dictionary topic, -1 when product is sent as a string
    */
-  public Order(java.lang.CharSequence orderId, java.lang.CharSequence product, java.lang.Float price) {
+  public Order(java.lang.CharSequence orderId, java.lang.CharSequence product, java.lang.Float price, java.lang.Integer productId) {
     this.orderId = orderId;
     this.product = product;
     this.price = price;
+    this.productId = productId;
   }
 
   @Override
@@ -109,6 +115,7 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     case 0: return orderId;
     case 1: return product;
     case 2: return price;
+    case 3: return productId;
     default: throw new IndexOutOfBoundsException("Invalid index: " + field$);
     }
   }
@@ -121,6 +128,7 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     case 0: orderId = (java.lang.CharSequence)value$; break;
     case 1: product = (java.lang.CharSequence)value$; break;
     case 2: price = (java.lang.Float)value$; break;
+    case 3: productId = (java.lang.Integer)value$; break;
     default: throw new IndexOutOfBoundsException("Invalid index: " + field$);
     }
   }
@@ -144,7 +152,7 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
 
   /**
    * Gets the value of the 'product' field.
-   * @return The value of the 'product' field.
+   * @return Product name; null when the record is dictionary-encoded
    */
   public java.lang.CharSequence getProduct() {
     return product;
@@ -153,6 +161,7 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
 
   /**
    * Sets the value of the 'product' field.
+   * Product name; null when the record is dictionary-encoded
    * @param value the value to set.
    */
   public void setProduct(java.lang.CharSequence value) {
@@ -176,6 +185,24 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     this.price = value;
   }
 
+  /**
+   * Gets the value of the 'productId' field.
+   * @return Id in the product dictionary topic, -1 when product is sent as a string
+   */
+  public int getProductId() {
+    return productId;
+  }
+
+
+  /**
+   * Sets the value of the 'productId' field.
+   * Id in the product dictionary topic, -1 when product is sent as a string
+   * @param value the value to set.
+   */
+  public void setProductId(int value) {
+    this.productId = value;
+  }
+
   /**
    * Creates a new Order RecordBuilder.
    * @return A new Order RecordBuilder
@@ -218,8 +245,11 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     implements org.apache.avro.data.RecordBuilder<Order> {
 
     private java.lang.CharSequence orderId;
+    /** Product name; null when the record is dictionary-encoded */
     private java.lang.CharSequence product;
     private float price;
+    /** Id in the product dictionary topic, -1 when product is sent as a string */
+    private int productId;
 
     /** Creates a new Builder */
     private Builder() {
@@ -244,6 +274,10 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
         this.price = data().deepCopy(fields()[2].schema(), other.price);
         fieldSetFlags()[2] = other.fieldSetFlags()[2];
       }
+      if (isValidValue(fields()[3], other.productId)) {
+        this.productId = data().deepCopy(fields()[3].schema(), other.productId);
+        fieldSetFlags()[3] = other.fieldSetFlags()[3];
+      }
     }
 
     /**
@@ -264,6 +298,10 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
         this.price = data().deepCopy(fields()[2].schema(), other.price);
         fieldSetFlags()[2] = true;
       }
+      if (isValidValue(fields()[3], other.productId)) {
+        this.productId = data().deepCopy(fields()[3].schema(), other.productId);
+        fieldSetFlags()[3] = true;
+      }
     }
 
     /**
@@ -308,6 +346,7 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
 
     /**
       * Gets the value of the 'product' field.
+      * Product name; null when the record is dictionary-encoded
       * @return The value.
       */
     public java.lang.CharSequence getProduct() {
@@ -317,6 +356,7 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
 
     /**
       * Sets the value of the 'product' field.
+      * Product name; null when the record is dictionary-encoded
       * @param value The value of 'product'.
       * @return This builder.
       */
@@ -329,6 +369,7 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
 
     /**
       * Checks whether the 'product' field has been set.
+      * Product name; null when the record is dictionary-encoded
       * @return True if the 'product' field has been set, false otherwise.
       */
     public boolean hasProduct() {
@@ -338,6 +379,7 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
 
     /**
       * Clears the value of the 'product' field.
+      * Product name; null when the record is dictionary-encoded
       * @return This builder.
       */
     public com.thana.kafka_assignment_01.model.Order.Builder clearProduct() {
@@ -385,6 +427,49 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
       return this;
     }
 
+    /**
+      * Gets the value of the 'productId' field.
+      * Id in the product dictionary topic, -1 when product is sent as a string
+      * @return The value.
+      */
+    public int getProductId() {
+      return productId;
+    }
+
+
+    /**
+      * Sets the value of the 'productId' field.
+      * Id in the product dictionary topic, -1 when product is sent as a string
+      * @param value The value of 'productId'.
+      * @return This builder.
+      */
+    public com.thana.kafka_assignment_01.model.Order.Builder setProductId(int value) {
+      validate(fields()[3], value);
+      this.productId = value;
+      fieldSetFlags()[3] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'productId' field has been set.
+      * Id in the product dictionary topic, -1 when product is sent as a string
+      * @return True if the 'productId' field has been set, false otherwise.
+      */
+    public boolean hasProductId() {
+      return fieldSetFlags()[3];
+    }
+
+
+    /**
+      * Clears the value of the 'productId' field.
+      * Id in the product dictionary topic, -1 when product is sent as a string
+      * @return This builder.
+      */
+    public com.thana.kafka_assignment_01.model.Order.Builder clearProductId() {
+      fieldSetFlags()[3] = false;
+      return this;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Order build() {
@@ -393,6 +478,7 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
         record.orderId = fieldSetFlags()[0] ? this.orderId : (java.lang.CharSequence) defaultValue(fields()[0]);
         record.product = fieldSetFlags()[1] ? this.product : (java.lang.CharSequence) defaultValue(fields()[1]);
         record.price = fieldSetFlags()[2] ? this.price : (java.lang.Float) defaultValue(fields()[2]);
+        record.productId = fieldSetFlags()[3] ? this.productId : (java.lang.Integer) defaultValue(fields()[3]);
         return record;
       } catch (org.apache.avro.AvroMissingFieldException e) {
         throw e;
@@ -427,10 +513,18 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
   {
     out.writeString(this.orderId);
 
-    out.writeString(this.product);
+    if (this.product == null) {
+      out.writeIndex(0);
+      out.writeNull();
+    } else {
+      out.writeIndex(1);
+      out.writeString(this.product);
+    }
 
     out.writeFloat(this.price);
 
+    out.writeInt(this.productId);
+
   }
 
   @Override public void customDecode(org.apache.avro.io.ResolvingDecoder in)
@@ -440,25 +534,41 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     if (fieldOrder == null) {
       this.orderId = in.readString(this.orderId instanceof Utf8 ? (Utf8)this.orderId : null);
 
-      this.product = in.readString(this.product instanceof Utf8 ? (Utf8)this.product : null);
+      if (in.readIndex() != 1) {
+        in.readNull();
+        this.product = null;
+      } else {
+        this.product = in.readString(this.product instanceof Utf8 ? (Utf8)this.product : null);
+      }
 
       this.price = in.readFloat();
 
+      this.productId = in.readInt();
+
     } else {
-      for (int i = 0; i < 3; i++) {
+      for (int i = 0; i < 4; i++) {
         switch (fieldOrder[i].pos()) {
         case 0:
           this.orderId = in.readString(this.orderId instanceof Utf8 ? (Utf8)this.orderId : null);
           break;
 
         case 1:
-          this.product = in.readString(this.product instanceof Utf8 ? (Utf8)this.product : null);
+          if (in.readIndex() != 1) {
+            in.readNull();
+            this.product = null;
+          } else {
+            this.product = in.readString(this.product instanceof Utf8 ? (Utf8)this.product : null);
+          }
           break;
 
         case 2:
           this.price = in.readFloat();
           break;
 
+        case 3:
+          this.productId = in.readInt();
+          break;
+
         default:
           throw new java.io.IOException("Corrupt ResolvingDecoder.");
         }
@@ -0,0 +1,52 @@
+package com.thana.kafka_assignment_01.model;
+
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Deadline of an order, set by the publisher as a record header (epoch ms) and copied to
+ * the retry and DLQ records. Past it the order is no longer worth processing. Records
+ * without the header never expire.
+ */
+public final class OrderDeadline {
+
+    public static final String HEADER = "order-deadline";
+    public static final long NONE = 0;
+
+    private OrderDeadline() {
+    }
+
+    public static long read(Headers headers) {
+        String value = FailureMetadata.read(headers, HEADER);
+        return value == null ? NONE : parse(value);
+    }
+
+    /**
+     * Header value as mapped onto a listener parameter; null when the record has none.
+     */
+    public static long parse(byte[] value) {
+        return value == null ? NONE : parse(new String(value, StandardCharsets.UTF_8));
+    }
+
+    private static long parse(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return NONE;
+        }
+    }
+
+    public static void write(Headers headers, long deadline) {
+        if (deadline != NONE) {
+            FailureMetadata.write(headers, HEADER, String.valueOf(deadline));
+        }
+    }
+
+    /**
+     * Whether the deadline has passed at the given time.
+     */
+    public static boolean isExpired(long deadline, long at) {
+        return deadline != NONE && at >= deadline;
+    }
+}
@@ -0,0 +1,19 @@
+package com.thana.kafka_assignment_01.outbox;
+
+/**
+ * A durable journal record failed its checksum. Nothing after it can be located reliably,
+ * so draining stops at this position.
+ */
+class CorruptJournalException extends IllegalStateException {
+
+    private final long position;
+
+    CorruptJournalException(long position) {
+        super("Corrupt outbox record at position " + position);
+        this.position = position;
+    }
+
+    long getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,14 @@
+package com.thana.kafka_assignment_01.outbox;
+
+/**
+ * One journaled order; nextPosition is where the following record starts and acceptedAt
+ * is when the outbox took the order, in epoch milliseconds.
+ */
+record JournalEntry(
+    long position,
+    long nextPosition,
+    String orderId,
+    String product,
+    float price,
+    long acceptedAt
+) {}
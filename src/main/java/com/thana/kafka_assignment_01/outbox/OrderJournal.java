@@ -0,0 +1,351 @@
+package com.thana.kafka_assignment_01.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of accepted orders in memory-mapped segment files.
+ *
+ * Positions are global byte offsets; a segment named after its base position holds
+ * [base, base + segmentSize). A record is [length][crc32c][payload], with the length
+ * written last. A length of -1 means the rest of the segment is unused and the next
+ * record starts in the following segment; a length of 0 means end of data.
+ *
+ * Appends only write to the page cache. {@link #flush()} forces everything appended so
+ * far to disk in one call and advances the durable position, so appends that arrive
+ * while a flush runs share the next one (group commit). Readers never go past the
+ * durable position. The checkpoint file records how far the journal has been
+ * consumed; segments entirely before it are deleted.
+ */
+@Slf4j
+final class OrderJournal implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int SKIP_MARKER = -1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Path checkpointFile;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+
+    // Guarded by this
+    private long activeBase;
+
+    private volatile long writePosition;
+    private volatile long durablePosition;
+    private volatile long checkpoint;
+
+    private final Object durableMonitor = new Object();
+
+    OrderJournal(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.checkpointFile = directory.resolve("checkpoint");
+
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve("journal.lock"),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Outbox journal " + directory + " is in use by another process");
+        }
+
+        this.checkpoint = readCheckpoint();
+        openSegments();
+    }
+
+    private void openSegments() throws IOException {
+        List<Long> bases = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length())))
+                .sorted()
+                .forEach(bases::add);
+        }
+
+        for (long base : bases) {
+            if (base + segmentSize <= checkpoint) {
+                Files.deleteIfExists(segmentPath(base));
+            } else {
+                segments.put(base, map(base));
+            }
+        }
+
+        if (segments.isEmpty()) {
+            activeBase = checkpoint;
+            segments.put(activeBase, map(activeBase));
+            writePosition = activeBase;
+        } else {
+            activeBase = segments.lastKey();
+            writePosition = recover(activeBase, segments.lastEntry().getValue());
+        }
+        durablePosition = writePosition;
+        log.info("Outbox journal opened at {}: checkpoint {}, end {}, {} segment(s)",
+            directory, checkpoint, writePosition, segments.size());
+    }
+
+    /**
+     * Find the end of valid data in the last segment; a torn record at the tail is cleared.
+     */
+    private long recover(long base, MappedByteBuffer buffer) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segmentSize) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length == SKIP_MARKER) {
+                return base + segmentSize;
+            }
+            if (length < 0 || offset + HEADER_BYTES + length > segmentSize
+                || buffer.getInt(offset + 4) != crc(buffer, offset + HEADER_BYTES, length)) {
+                log.warn("Discarding torn outbox record at position {}", base + offset);
+                for (int i = offset; i < segmentSize; i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force();
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        return base + offset;
+    }
+
+    /**
+     * Append one order to the page cache.
+     *
+     * @return the position right after the record, to pass to {@link #awaitDurable}
+     */
+    long append(String orderId, String product, float price, long acceptedAt) throws IOException {
+        byte[] id = orderId.getBytes(StandardCharsets.UTF_8);
+        byte[] name = product.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(4 + id.length + 4 + name.length + 4 + 8);
+        payload.putInt(id.length).put(id).putInt(name.length).put(name).putFloat(price).putLong(acceptedAt);
+        byte[] bytes = payload.array();
+
+        int recordSize = HEADER_BYTES + bytes.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Order " + orderId + " does not fit in an outbox segment");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+
+        synchronized (this) {
+            int offset = (int) (writePosition - activeBase);
+            if (offset + recordSize > segmentSize) {
+                if (offset + 4 <= segmentSize) {
+                    segments.get(activeBase).putInt(offset, SKIP_MARKER);
+                }
+                activeBase += segmentSize;
+                segments.put(activeBase, map(activeBase));
+                offset = 0;
+            }
+
+            MappedByteBuffer buffer = segments.get(activeBase);
+            buffer.put(offset + HEADER_BYTES, bytes);
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            buffer.putInt(offset, bytes.length);
+
+            writePosition = activeBase + offset + recordSize;
+            return writePosition;
+        }
+    }
+
+    /**
+     * Force everything appended so far to disk and wake the appenders waiting for it.
+     *
+     * @return false when there was nothing to flush
+     */
+    boolean flush() {
+        long target = writePosition;
+        long from = durablePosition;
+        if (target <= from) {
+            return false;
+        }
+
+        for (Map.Entry<Long, MappedByteBuffer> segment : segments.subMap(
+            segments.floorKey(from), true, target, false).entrySet()) {
+            long base = segment.getKey();
+            int start = (int) Math.max(0, from - base);
+            int end = (int) Math.min(segmentSize, target - base);
+            if (end > start) {
+                segment.getValue().force(start, end - start);
+            }
+        }
+
+        synchronized (durableMonitor) {
+            durablePosition = target;
+            durableMonitor.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Block until the given position is durable.
+     *
+     * @return false on timeout
+     */
+    boolean awaitDurable(long position, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (durableMonitor) {
+            while (durablePosition < position) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                durableMonitor.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Block until data beyond the given position is durable, or the timeout passes.
+     */
+    void awaitDataAfter(long position, long timeoutMs) throws InterruptedException {
+        synchronized (durableMonitor) {
+            if (durablePosition <= position) {
+                durableMonitor.wait(timeoutMs);
+            }
+        }
+    }
+
+    /**
+     * Read up to maxEntries durable records starting at the given position.
+     *
+     * @throws CorruptJournalException when a record before the durable position is damaged
+     */
+    List<JournalEntry> read(long from, int maxEntries) {
+        List<JournalEntry> entries = new ArrayList<>();
+        long end = durablePosition;
+        long position = from;
+
+        while (position < end && entries.size() < maxEntries) {
+            long base = segments.floorKey(position);
+            MappedByteBuffer buffer = segments.get(base);
+            int offset = (int) (position - base);
+
+            int length = offset + HEADER_BYTES > segmentSize ? SKIP_MARKER : buffer.getInt(offset);
+            if (length == SKIP_MARKER) {
+                position = base + segmentSize;
+                continue;
+            }
+            if (length <= 0 || buffer.getInt(offset + 4) != crc(buffer, offset + HEADER_BYTES, length)) {
+                throw new CorruptJournalException(position);
+            }
+
+            ByteBuffer payload = buffer.slice(offset + HEADER_BYTES, length);
+            String orderId = readString(payload);
+            String product = readString(payload);
+            float price = payload.getFloat();
+            // Records journaled before the accept time was stored count from now, as they used to
+            long acceptedAt = payload.remaining() >= Long.BYTES ? payload.getLong() : System.currentTimeMillis();
+
+            long next = position + HEADER_BYTES + length;
+            entries.add(new JournalEntry(position, next, orderId, product, price, acceptedAt));
+            position = next;
+        }
+        return entries;
+    }
+
+    /**
+     * Record that everything before the given position has been consumed.
+     */
+    void checkpoint(long position) throws IOException {
+        Path temp = directory.resolve("checkpoint.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, position));
+            channel.force(true);
+        }
+        Files.move(temp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        checkpoint = position;
+
+        synchronized (this) {
+            for (Long base : List.copyOf(segments.headMap(activeBase).keySet())) {
+                if (base + segmentSize <= position) {
+                    segments.remove(base);
+                    Files.deleteIfExists(segmentPath(base));
+                }
+            }
+        }
+    }
+
+    long getCheckpoint() {
+        return checkpoint;
+    }
+
+    long getWritePosition() {
+        return writePosition;
+    }
+
+    long getDurablePosition() {
+        return durablePosition;
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        lock.release();
+        lockChannel.close();
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong();
+    }
+
+    private MappedByteBuffer map(long base) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(base), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%020d", base) + SEGMENT_SUFFIX);
+    }
+
+    private static int crc(MappedByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static String readString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getInt()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
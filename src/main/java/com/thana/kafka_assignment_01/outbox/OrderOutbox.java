@@ -0,0 +1,317 @@
+package com.thana.kafka_assignment_01.outbox;
+
+import com.thana.kafka_assignment_01.logging.EventCategory;
+import com.thana.kafka_assignment_01.logging.HotPathLogger;
+import com.thana.kafka_assignment_01.service.OrderDeadlines;
+import com.thana.kafka_assignment_01.service.OrderEncoder;
+import com.thana.kafka_assignment_01.service.PriorityRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Outbox mode for the publisher: accepted orders are appended to the local journal
+ * and acknowledged once they are on disk, so the REST API neither waits for nor
+ * depends on the broker.
+ *
+ * A flusher thread fsyncs the journal in a loop; every append waiting at that moment
+ * is made durable by the same fsync. A drainer thread publishes journaled orders to
+ * the orders topics (normal or priority lane) in large batches through a producer tuned for batching, and
+ * checkpoints the longest prefix of each batch the broker acknowledged. While the
+ * broker is unavailable the drainer backs off and orders keep accumulating on disk.
+ *
+ * Delivery is at least once: orders published but not yet checkpointed when the
+ * process dies are published again after restart. A record that fails its checksum
+ * stops the drainer at that position (reported in the stats) rather than being retried
+ * forever or skipped: what follows it cannot be located reliably.
+ */
+@Slf4j
+@Service
+public class OrderOutbox {
+
+    private final ProducerFactory<String, Object> producerFactory;
+    private final OrderEncoder orderEncoder;
+    private final HotPathLogger hotPathLogger;
+    private final PriorityRouter priorityRouter;
+    private final OrderDeadlines orderDeadlines;
+
+    @Value("${kafka.outbox.enabled}")
+    private boolean enabled;
+
+    @Value("${kafka.outbox.directory}")
+    private String directory;
+
+    @Value("${kafka.outbox.segment-size-bytes}")
+    private int segmentSizeBytes;
+
+    @Value("${kafka.outbox.append-timeout-ms}")
+    private long appendTimeoutMs;
+
+    @Value("${kafka.outbox.drain-batch-size}")
+    private int drainBatchSize;
+
+    @Value("${kafka.outbox.retry-backoff-ms}")
+    private long retryBackoffMs;
+
+    @Value("${kafka.outbox.max-retry-backoff-ms}")
+    private long maxRetryBackoffMs;
+
+    @Value("${kafka.outbox.producer.linger-ms}")
+    private int lingerMs;
+
+    @Value("${kafka.outbox.producer.batch-size-bytes}")
+    private int batchSizeBytes;
+
+    @Value("${kafka.outbox.producer.max-block-ms}")
+    private int maxBlockMs;
+
+    private OrderJournal journal;
+    private KafkaTemplate<String, Object> outboxTemplate;
+    private volatile boolean running;
+    private Thread flusher;
+    private Thread drainer;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder fsyncs = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder publishFailures = new LongAdder();
+    private volatile long lastFsyncMicros;
+    private volatile long lastPublishedAt;
+    private volatile long corruptPosition = -1;
+
+    public OrderOutbox(
+        ProducerFactory<String, Object> producerFactory,
+        OrderEncoder orderEncoder,
+        HotPathLogger hotPathLogger,
+        PriorityRouter priorityRouter,
+        OrderDeadlines orderDeadlines
+    ) {
+        this.producerFactory = producerFactory;
+        this.orderEncoder = orderEncoder;
+        this.hotPathLogger = hotPathLogger;
+        this.priorityRouter = priorityRouter;
+        this.orderDeadlines = orderDeadlines;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        journal = new OrderJournal(Path.of(directory), segmentSizeBytes);
+        outboxTemplate = new KafkaTemplate<>(producerFactory, Map.of(
+            ProducerConfig.LINGER_MS_CONFIG, lingerMs,
+            ProducerConfig.BATCH_SIZE_CONFIG, batchSizeBytes,
+            ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs
+        ));
+
+        running = true;
+        flusher = Thread.ofPlatform().name("outbox-flusher").start(this::flushLoop);
+        drainer = Thread.ofPlatform().name("outbox-drainer").start(this::drainLoop);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Journal an order and wait until it is durable.
+     *
+     * @throws IllegalStateException when it is not durable within the append timeout
+     */
+    public void append(String orderId, String product, float price) {
+        try {
+            long position = journal.append(orderId, product, price, System.currentTimeMillis());
+            appended.increment();
+            LockSupport.unpark(flusher);
+            if (!journal.awaitDurable(position, appendTimeoutMs)) {
+                throw new IllegalStateException("Outbox journal not durable within " + appendTimeoutMs + " ms");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to journal order " + orderId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while journaling order " + orderId, e);
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            long started = System.nanoTime();
+            if (journal.flush()) {
+                fsyncs.increment();
+                lastFsyncMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+            } else {
+                // Nothing appended since the last fsync; the next append unparks us
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+    }
+
+    private void drainLoop() {
+        long position = journal.getCheckpoint();
+        long backoff = retryBackoffMs;
+
+        while (running) {
+            try {
+                List<JournalEntry> batch = journal.read(position, drainBatchSize);
+                if (batch.isEmpty()) {
+                    journal.awaitDataAfter(position, 100);
+                    continue;
+                }
+
+                long acknowledged = publish(batch);
+                if (acknowledged > position) {
+                    journal.checkpoint(acknowledged);
+                    position = acknowledged;
+                }
+
+                if (acknowledged < batch.get(batch.size() - 1).nextPosition()) {
+                    log.warn("Outbox publish incomplete, retrying in {} ms ({} bytes behind)",
+                        backoff, journal.getDurablePosition() - position);
+                    Thread.sleep(backoff);
+                    backoff = Math.min(backoff * 2, maxRetryBackoffMs);
+                } else {
+                    backoff = retryBackoffMs;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (CorruptJournalException e) {
+                corruptPosition = e.getPosition();
+                log.error("Outbox drainer stopped at corrupt record {}; orders from there on are not published",
+                    e.getPosition(), e);
+                return;
+            } catch (Exception e) {
+                log.error("Outbox drainer failed, retrying in {} ms", backoff, e);
+                sleepQuietly(backoff);
+                backoff = Math.min(backoff * 2, maxRetryBackoffMs);
+            }
+        }
+    }
+
+    /**
+     * Send a batch and wait for the broker.
+     *
+     * @return the position up to which every order was acknowledged
+     */
+    private long publish(List<JournalEntry> batch) throws InterruptedException {
+        List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(batch.size());
+        for (JournalEntry entry : batch) {
+            try {
+                String topic = priorityRouter.topicFor(entry.product(), entry.price());
+                ProducerRecord<String, Object> record = new ProducerRecord<>(topic, entry.orderId(),
+                    orderEncoder.encode(entry.orderId(), entry.product(), entry.price()));
+                // The TTL runs from acceptance, so time spent in the journal counts against it
+                orderDeadlines.stamp(record.headers(), entry.product(), entry.price(), entry.acceptedAt());
+                sends.add(outboxTemplate.send(record));
+            } catch (Exception e) {
+                // send() blocks up to max.block.ms for metadata, then throws while the broker is down
+                sends.add(CompletableFuture.failedFuture(e));
+                break;
+            }
+        }
+        outboxTemplate.flush();
+
+        long acknowledged = batch.get(0).position();
+        for (int i = 0; i < sends.size(); i++) {
+            JournalEntry entry = batch.get(i);
+            try {
+                RecordMetadata metadata = sends.get(i).get().getRecordMetadata();
+                hotPathLogger.info(log, EventCategory.PUBLISHED, entry.orderId(), metadata.partition(),
+                    metadata.offset(), "Order published from outbox: {} | Partition: {} | Offset: {}",
+                    entry.orderId(), metadata.partition(), metadata.offset());
+                acknowledged = entry.nextPosition();
+                published.increment();
+            } catch (ExecutionException e) {
+                publishFailures.increment();
+                log.error("Failed to publish order {} from outbox", entry.orderId(), e.getCause());
+                break;
+            }
+        }
+        if (acknowledged > batch.get(0).position()) {
+            lastPublishedAt = System.currentTimeMillis();
+        }
+        return acknowledged;
+    }
+
+    public OutboxStats getStats() {
+        if (!enabled) {
+            return new OutboxStats(false, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1);
+        }
+        return new OutboxStats(
+            true,
+            appended.sum(),
+            published.sum(),
+            publishFailures.sum(),
+            fsyncs.sum(),
+            lastFsyncMicros,
+            journal.getWritePosition(),
+            journal.getDurablePosition(),
+            journal.getCheckpoint(),
+            journal.getSegmentCount(),
+            lastPublishedAt,
+            corruptPosition
+        );
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        drainer.interrupt();
+        drainer.join(TimeUnit.SECONDS.toMillis(10));
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        journal.close();
+        outboxTemplate.getProducerFactory().reset();
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Positions are journal byte offsets: durable minus checkpoint is the backlog
+     * still waiting to be published. corruptPosition is where the drainer stopped,
+     * -1 while it is running.
+     */
+    public record OutboxStats(
+        boolean enabled,
+        long appended,
+        long published,
+        long publishFailures,
+        long fsyncs,
+        long lastFsyncMicros,
+        long writePosition,
+        long durablePosition,
+        long checkpoint,
+        int segments,
+        long lastPublishedAt,
+        long corruptPosition
+    ) {}
+}
@@ -0,0 +1,44 @@
+package com.thana.kafka_assignment_01.query;
+
+/**
+ * Filter-and-aggregate kernel over the rows of one chunk.
+ */
+interface ChunkScanner {
+
+    /**
+     * Add the rows below rows that match the bounds to the accumulator.
+     */
+    void scan(ColumnChunk chunk, int rows, ChunkBounds bounds, ScanAccumulator into);
+
+    String name();
+
+    /**
+     * A query in chunk-relative terms: time in [fromDelta, toDelta), price in
+     * [minPrice, maxPrice], productId -1 for any product.
+     */
+    record ChunkBounds(
+        int fromDelta,
+        int toDelta,
+        float minPrice,
+        float maxPrice,
+        int productId
+    ) {}
+
+    /**
+     * Running count, sum, min and max of the matched prices.
+     */
+    final class ScanAccumulator {
+
+        long count;
+        double sum;
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+
+        void add(long count, double sum, float min, float max) {
+            this.count += count;
+            this.sum += sum;
+            this.min = Math.min(this.min, min);
+            this.max = Math.max(this.max, max);
+        }
+    }
+}
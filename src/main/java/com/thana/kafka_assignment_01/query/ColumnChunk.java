@@ -0,0 +1,132 @@
+package com.thana.kafka_assignment_01.query;
+
+/**
+ * A fixed number of processed-order rows stored column by column, plus a zone map.
+ *
+ * Timestamps are stored as int milliseconds relative to the chunk's first row, so all
+ * three columns are 32 bits wide and one vector covers the same rows in each. The zone
+ * map holds min/max of every column, a 1024-bit set of the product ids present and, once
+ * the chunk is sealed, the price count/sum/min/max, so a query can skip a chunk or answer
+ * it without reading a row.
+ *
+ * One writer at a time (the store's append lock). Rows and zone map updates are written
+ * before the volatile size, so a reader that reads size first sees every row below it and
+ * a zone map covering them.
+ */
+final class ColumnChunk {
+
+    static final int PRODUCT_BITS = 1024;
+
+    private final long baseTime;
+    private final int[] timeDeltas;
+    private final float[] prices;
+    private final int[] productIds;
+    private final long[] productBits = new long[PRODUCT_BITS / Long.SIZE];
+
+    private int minTimeDelta = Integer.MAX_VALUE;
+    private int maxTimeDelta = Integer.MIN_VALUE;
+    private float minPrice = Float.POSITIVE_INFINITY;
+    private float maxPrice = Float.NEGATIVE_INFINITY;
+    private int minProductId = Integer.MAX_VALUE;
+    private int maxProductId = Integer.MIN_VALUE;
+    private double priceSum;
+    private volatile int size;
+
+    ColumnChunk(long baseTime, int capacity) {
+        this.baseTime = baseTime;
+        this.timeDeltas = new int[capacity];
+        this.prices = new float[capacity];
+        this.productIds = new int[capacity];
+    }
+
+    /**
+     * @return false when the chunk is full or the timestamp is too far from its base
+     */
+    boolean tryAppend(long timestamp, int productId, float price) {
+        int row = size;
+        long delta = timestamp - baseTime;
+        if (row == prices.length || delta <= Integer.MIN_VALUE || delta >= Integer.MAX_VALUE) {
+            return false;
+        }
+
+        timeDeltas[row] = (int) delta;
+        prices[row] = price;
+        productIds[row] = productId;
+
+        minTimeDelta = Math.min(minTimeDelta, (int) delta);
+        maxTimeDelta = Math.max(maxTimeDelta, (int) delta);
+        minPrice = Math.min(minPrice, price);
+        maxPrice = Math.max(maxPrice, price);
+        minProductId = Math.min(minProductId, productId);
+        maxProductId = Math.max(maxProductId, productId);
+        productBits[(productId & (PRODUCT_BITS - 1)) >>> 6] |= 1L << productId;
+        priceSum += price;
+        size = row + 1;
+        return true;
+    }
+
+    /**
+     * Chunk-relative time for an absolute timestamp, saturated to the int range.
+     */
+    int timeDelta(long timestamp) {
+        if (timestamp <= baseTime + Integer.MIN_VALUE) {
+            return Integer.MIN_VALUE;
+        }
+        if (timestamp >= baseTime + Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) (timestamp - baseTime);
+    }
+
+    /**
+     * Whether rows with this product may be present (false positives are possible).
+     */
+    boolean mayContainProduct(int productId) {
+        return productId >= minProductId && productId <= maxProductId
+            && (productBits[(productId & (PRODUCT_BITS - 1)) >>> 6] & (1L << productId)) != 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long baseTime() {
+        return baseTime;
+    }
+
+    int capacity() {
+        return prices.length;
+    }
+
+    int[] timeDeltas() {
+        return timeDeltas;
+    }
+
+    float[] prices() {
+        return prices;
+    }
+
+    int[] productIds() {
+        return productIds;
+    }
+
+    int minTimeDelta() {
+        return minTimeDelta;
+    }
+
+    int maxTimeDelta() {
+        return maxTimeDelta;
+    }
+
+    float minPrice() {
+        return minPrice;
+    }
+
+    float maxPrice() {
+        return maxPrice;
+    }
+
+    double priceSum() {
+        return priceSum;
+    }
+}
@@ -0,0 +1,242 @@
+package com.thana.kafka_assignment_01.query;
+
+import com.thana.kafka_assignment_01.query.ChunkScanner.ChunkBounds;
+import com.thana.kafka_assignment_01.query.ChunkScanner.ScanAccumulator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory columnar store of processed orders (processed time, product, price) for
+ * ad-hoc filter-and-aggregate queries, e.g. count and average price of product X between
+ * $50 and $100 in the last hour.
+ *
+ * Rows go into fixed-size {@link ColumnChunk}s; once max-rows are held the oldest chunk
+ * is dropped. A query first checks each chunk's zone map: chunks outside the bounds are
+ * skipped, sealed chunks entirely inside them (no product filter) are answered from the
+ * zone map, and only the rest are scanned. Scans use the Vector API when the build has
+ * the vector profile and the JVM runs with --add-modules jdk.incubator.vector, and a
+ * scalar loop otherwise.
+ *
+ * Rows are appended under a lock by the listener threads; queries run without it against
+ * a snapshot of the chunk list.
+ */
+@Slf4j
+@Service
+public class OrderColumnStore {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    // Only compiled with -Pvector, so it is looked up by name
+    private static final String VECTOR_SCANNER = "com.thana.kafka_assignment_01.query.VectorChunkScanner";
+
+    private final int chunkRows;
+    private final int maxChunks;
+    private final ChunkScanner scanner;
+
+    // Product name -> dense id stored in the product column
+    private final Map<String, Integer> productIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextProductId = new AtomicInteger();
+
+    // Oldest first; replaced, never modified, so queries can hold on to a snapshot
+    private volatile ColumnChunk[] chunks = new ColumnChunk[0];
+    private long droppedRows;
+
+    public OrderColumnStore(
+        @Value("${kafka.query.chunk-rows}") int chunkRows,
+        @Value("${kafka.query.max-rows}") long maxRows,
+        @Value("${kafka.query.vectorized}") boolean vectorized
+    ) {
+        if (chunkRows <= 0 || maxRows < chunkRows) {
+            throw new IllegalArgumentException("kafka.query.chunk-rows must be > 0 and <= kafka.query.max-rows");
+        }
+        this.chunkRows = chunkRows;
+        this.maxChunks = (int) (maxRows / chunkRows);
+        this.scanner = createScanner(vectorized);
+        log.info("Order column store: {} chunks of {} rows, {} scans", maxChunks, chunkRows, scanner.name());
+    }
+
+    private static ChunkScanner createScanner(boolean vectorized) {
+        if (vectorized && ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.info("{} is not enabled (--add-modules {}), order queries use scalar scans",
+                VECTOR_MODULE, VECTOR_MODULE);
+        } else if (vectorized) {
+            try {
+                return (ChunkScanner) Class.forName(VECTOR_SCANNER).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                log.info("Built without the vector profile (-Pvector), order queries use scalar scans");
+            }
+        }
+        return new ScalarChunkScanner();
+    }
+
+    public void append(String product, float price, long timestamp) {
+        int productId = productIds.computeIfAbsent(product, name -> nextProductId.getAndIncrement());
+        synchronized (this) {
+            ColumnChunk[] current = chunks;
+            ColumnChunk last = current.length == 0 ? null : current[current.length - 1];
+            if (last == null || !last.tryAppend(timestamp, productId, price)) {
+                ColumnChunk fresh = new ColumnChunk(timestamp, chunkRows);
+                fresh.tryAppend(timestamp, productId, price);
+                chunks = rotate(current, fresh);
+            }
+        }
+    }
+
+    private ColumnChunk[] rotate(ColumnChunk[] current, ColumnChunk fresh) {
+        int keep = Math.min(current.length, maxChunks - 1);
+        ColumnChunk[] next = Arrays.copyOfRange(current, current.length - keep, current.length + 1);
+        next[keep] = fresh;
+        for (int dropped = 0; dropped < current.length - keep; dropped++) {
+            droppedRows += current[dropped].size();
+        }
+        return next;
+    }
+
+    /**
+     * Count, sum, average, min and max price of the orders matching every bound of the query.
+     */
+    public OrderQueryResult query(OrderQuery query) {
+        long started = System.nanoTime();
+        ColumnChunk[] snapshot = chunks;
+
+        int productId = -1;
+        if (query.product() != null) {
+            Integer id = productIds.get(query.product());
+            if (id == null) {
+                return OrderQueryResult.empty(snapshot.length, scanner.name(), elapsedMicros(started));
+            }
+            productId = id;
+        }
+
+        ScanAccumulator matched = new ScanAccumulator();
+        long rowsScanned = 0;
+        int scanned = 0;
+        int fromZoneMaps = 0;
+        for (ColumnChunk chunk : snapshot) {
+            int rows = chunk.size();
+            ChunkBounds bounds = new ChunkBounds(chunk.timeDelta(query.from()), chunk.timeDelta(query.to()),
+                query.minPrice(), query.maxPrice(), productId);
+            if (rows == 0 || !overlaps(chunk, bounds)) {
+                continue;
+            }
+            // Judged on the rows read above, so the zone map answer and the row count agree
+            if (rows == chunk.capacity() && productId < 0 && covers(chunk, bounds)) {
+                matched.add(rows, chunk.priceSum(), chunk.minPrice(), chunk.maxPrice());
+                fromZoneMaps++;
+                continue;
+            }
+            scanner.scan(chunk, rows, bounds, matched);
+            rowsScanned += rows;
+            scanned++;
+        }
+
+        return new OrderQueryResult(
+            matched.count,
+            matched.sum,
+            matched.count == 0 ? 0.0 : matched.sum / matched.count,
+            matched.count == 0 ? 0.0 : matched.min,
+            matched.count == 0 ? 0.0 : matched.max,
+            snapshot.length,
+            scanned,
+            fromZoneMaps,
+            snapshot.length - scanned - fromZoneMaps,
+            rowsScanned,
+            scanner.name(),
+            elapsedMicros(started)
+        );
+    }
+
+    private static boolean overlaps(ColumnChunk chunk, ChunkBounds bounds) {
+        return chunk.maxTimeDelta() >= bounds.fromDelta() && chunk.minTimeDelta() < bounds.toDelta()
+            && chunk.maxPrice() >= bounds.minPrice() && chunk.minPrice() <= bounds.maxPrice()
+            && (bounds.productId() < 0 || chunk.mayContainProduct(bounds.productId()));
+    }
+
+    private static boolean covers(ColumnChunk chunk, ChunkBounds bounds) {
+        return chunk.minTimeDelta() >= bounds.fromDelta() && chunk.maxTimeDelta() < bounds.toDelta()
+            && chunk.minPrice() >= bounds.minPrice() && chunk.maxPrice() <= bounds.maxPrice();
+    }
+
+    private static long elapsedMicros(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1000;
+    }
+
+    public StoreStats getStats() {
+        ColumnChunk[] snapshot = chunks;
+        long rows = 0;
+        for (ColumnChunk chunk : snapshot) {
+            rows += chunk.size();
+        }
+        long droppedSoFar;
+        synchronized (this) {
+            droppedSoFar = droppedRows;
+        }
+        return new StoreStats(
+            rows,
+            snapshot.length,
+            chunkRows,
+            (long) maxChunks * chunkRows,
+            productIds.size(),
+            droppedSoFar,
+            // Three 4-byte columns per row slot
+            (long) snapshot.length * chunkRows * 12,
+            snapshot.length == 0 ? 0 : snapshot[0].baseTime(),
+            scanner.name()
+        );
+    }
+
+    /**
+     * Bounds of a query; null product matches every product. Time is [from, to) in epoch
+     * ms, price is [minPrice, maxPrice].
+     */
+    public record OrderQuery(
+        String product,
+        long from,
+        long to,
+        float minPrice,
+        float maxPrice
+    ) {}
+
+    /**
+     * chunksFromZoneMaps: chunks answered from their zone map without reading rows;
+     * chunksSkipped: chunks the zone map ruled out.
+     */
+    public record OrderQueryResult(
+        long count,
+        double sum,
+        double average,
+        double min,
+        double max,
+        int chunks,
+        int chunksScanned,
+        int chunksFromZoneMaps,
+        int chunksSkipped,
+        long rowsScanned,
+        String scan,
+        long elapsedMicros
+    ) {
+        static OrderQueryResult empty(int chunks, String scan, long elapsedMicros) {
+            return new OrderQueryResult(0, 0.0, 0.0, 0.0, 0.0, chunks, 0, 0, chunks, 0, scan, elapsedMicros);
+        }
+    }
+
+    /**
+     * oldestTimestamp: base time of the oldest chunk still held, 0 when empty.
+     */
+    public record StoreStats(
+        long rows,
+        int chunks,
+        int chunkRows,
+        long maxRows,
+        int products,
+        long droppedRows,
+        long columnBytes,
+        long oldestTimestamp,
+        String scan
+    ) {}
+}
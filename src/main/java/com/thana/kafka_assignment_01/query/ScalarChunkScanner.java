@@ -0,0 +1,44 @@
+package com.thana.kafka_assignment_01.query;
+
+/**
+ * Plain loop over the columns, used when the Vector API module is not available.
+ * The loop has no early exits, so C2 can still unroll it.
+ */
+final class ScalarChunkScanner implements ChunkScanner {
+
+    @Override
+    public void scan(ColumnChunk chunk, int rows, ChunkBounds bounds, ScanAccumulator into) {
+        scanRange(chunk, 0, rows, bounds, into);
+    }
+
+    /**
+     * Also the tail loop of the vector scanner.
+     */
+    static void scanRange(ColumnChunk chunk, int from, int to, ChunkBounds bounds, ScanAccumulator into) {
+        int[] times = chunk.timeDeltas();
+        float[] prices = chunk.prices();
+        int[] products = chunk.productIds();
+
+        long count = 0;
+        double sum = 0;
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int row = from; row < to; row++) {
+            float price = prices[row];
+            if (times[row] >= bounds.fromDelta() && times[row] < bounds.toDelta()
+                && price >= bounds.minPrice() && price <= bounds.maxPrice()
+                && (bounds.productId() < 0 || products[row] == bounds.productId())) {
+                count++;
+                sum += price;
+                min = Math.min(min, price);
+                max = Math.max(max, price);
+            }
+        }
+        into.add(count, sum, min, max);
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
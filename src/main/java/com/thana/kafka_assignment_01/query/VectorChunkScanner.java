@@ -0,0 +1,75 @@
+package com.thana.kafka_assignment_01.query;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Scan with the JDK Vector API: each step compares a full vector of times, product ids
+ * and prices and folds the matching prices into lane-wise sum/min/max accumulators, which
+ * are reduced once per chunk.
+ *
+ * The int and float species share the preferred shape, so one step covers the same rows
+ * in every column and a time/product mask converts to a price mask lane for lane. Matched
+ * prices are widened to two double vectors of the same shape before they are summed, so
+ * the sum is as exact as the scalar loop's.
+ *
+ * Only compiled with -Pvector, and only loaded when the JVM runs with --add-modules
+ * jdk.incubator.vector.
+ */
+final class VectorChunkScanner implements ChunkScanner {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, FLOATS.vectorShape());
+    private static final VectorSpecies<Double> DOUBLES = VectorSpecies.of(double.class, FLOATS.vectorShape());
+
+    @Override
+    public void scan(ColumnChunk chunk, int rows, ChunkBounds bounds, ScanAccumulator into) {
+        int[] times = chunk.timeDeltas();
+        float[] prices = chunk.prices();
+        int[] products = chunk.productIds();
+        boolean anyProduct = bounds.productId() < 0;
+
+        FloatVector zeros = FloatVector.zero(FLOATS);
+        DoubleVector sums = DoubleVector.zero(DOUBLES);
+        FloatVector mins = FloatVector.broadcast(FLOATS, Float.POSITIVE_INFINITY);
+        FloatVector maxs = FloatVector.broadcast(FLOATS, Float.NEGATIVE_INFINITY);
+        long count = 0;
+
+        int bound = FLOATS.loopBound(rows);
+        for (int row = 0; row < bound; row += FLOATS.length()) {
+            IntVector time = IntVector.fromArray(INTS, times, row);
+            VectorMask<Integer> keep = time.compare(VectorOperators.GE, bounds.fromDelta())
+                .and(time.compare(VectorOperators.LT, bounds.toDelta()));
+            if (!anyProduct) {
+                keep = keep.and(IntVector.fromArray(INTS, products, row)
+                    .compare(VectorOperators.EQ, bounds.productId()));
+            }
+
+            FloatVector price = FloatVector.fromArray(FLOATS, prices, row);
+            VectorMask<Float> match = keep.cast(FLOATS)
+                .and(price.compare(VectorOperators.GE, bounds.minPrice()))
+                .and(price.compare(VectorOperators.LE, bounds.maxPrice()));
+
+            count += match.trueCount();
+            // Unmatched lanes add 0; each half of the float lanes widens to one double vector
+            FloatVector matched = zeros.blend(price, match);
+            sums = sums.add(matched.convertShape(VectorOperators.F2D, DOUBLES, 0))
+                .add(matched.convertShape(VectorOperators.F2D, DOUBLES, 1));
+            mins = mins.lanewise(VectorOperators.MIN, price, match);
+            maxs = maxs.lanewise(VectorOperators.MAX, price, match);
+        }
+
+        into.add(count, sums.reduceLanes(VectorOperators.ADD), mins.reduceLanes(VectorOperators.MIN),
+            maxs.reduceLanes(VectorOperators.MAX));
+        ScalarChunkScanner.scanRange(chunk, bound, rows, bounds, into);
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + FLOATS.length() + "x32";
+    }
+}
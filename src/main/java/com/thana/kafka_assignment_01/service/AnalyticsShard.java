@@ -0,0 +1,69 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.PartitionStats;
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.ProductMoments;
+
+/**
+ * Analytics for one source partition: the partition total plus per-product and
+ * per-category statistics (the category comes from the catalog entry the order was
+ * enriched with).
+ * Only the consumer thread that currently owns the partition writes to it, so updates
+ * never contend; readers merge shards on demand.
+ *
+ * Ownership changes go through release/acquire from the rebalance listener. The volatile
+ * owner field orders the previous owner's last writes before the next owner's first.
+ */
+final class AnalyticsShard {
+
+    private final String topicPartition;
+    private final ProductStatsTable byProduct;
+    private final ProductStatsTable byCategory;
+    private volatile PartitionStats total;
+    private volatile String owner;
+
+    AnalyticsShard(String topicPartition, ProductStatsTable byProduct, ProductStatsTable byCategory,
+                   PartitionStats total) {
+        this.topicPartition = topicPartition;
+        this.byProduct = byProduct;
+        this.byCategory = byCategory;
+        this.total = total;
+    }
+
+    /**
+     * @return the moments the price was judged against when it is an outlier for its product,
+     *     null otherwise
+     */
+    ProductMoments add(String product, String category, float price) {
+        total = total.merge(PartitionStats.of(price));
+        byCategory.add(category, price);
+        return byProduct.add(product, price);
+    }
+
+    void acquire(String newOwner) {
+        owner = newOwner;
+    }
+
+    void release() {
+        owner = null;
+    }
+
+    String topicPartition() {
+        return topicPartition;
+    }
+
+    String owner() {
+        return owner;
+    }
+
+    PartitionStats total() {
+        return total;
+    }
+
+    ProductStatsTable byProduct() {
+        return byProduct;
+    }
+
+    ProductStatsTable byCategory() {
+        return byCategory;
+    }
+}
@@ -0,0 +1,527 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.catalog.CatalogEntry;
+import com.thana.kafka_assignment_01.catalog.CatalogUnavailableException;
+import com.thana.kafka_assignment_01.catalog.ProductCatalog;
+import com.thana.kafka_assignment_01.model.FailureMetadata;
+import com.thana.kafka_assignment_01.model.Order;
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.PartitionStats;
+import com.thana.kafka_assignment_01.sink.ProcessedOrderSink;
+import com.thana.kafka_assignment_01.validation.OrderValidator;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rebuilds the price analytics of this instance's orders and priority partitions straight
+ * from those topics, e.g. after a reset or a change to the validation rules.
+ *
+ * Live consumption keeps running for the bulk of the work. Each partition is read in
+ * parallel, with large fetches and without acks, retries or DLQ sends, from the requested
+ * start up to a snapshot of the live group's committed offsets. Only then are the live
+ * orders and priority listeners paused; once they report paused and the processed-order
+ * sink has written and acknowledged everything queued, the committed offsets are exactly
+ * where live processing stopped and will resume. The records committed since the snapshot
+ * are read into the same shards, which replace the live ones before the listeners resume:
+ * no gap, and no record counted twice.
+ *
+ * Orders that the live path forwarded to the retry topic or the DLQ are skipped. The
+ * live path never counted them on their source partition; recovered ones are counted on
+ * the retry partition that processed them, wherever that is. A record is only committed
+ * once its forward is on the broker, so reading those topics after taking a snapshot finds
+ * every forward below it; the catch-up only reads what was forwarded since.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BackfillService {
+
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final ListenerPauseControl pauseControl;
+    private final ProcessedOrderSink processedOrderSink;
+    private final FailureForwarder failureForwarder;
+    private final PriceAnalyticsService aggregationService;
+    private final ClusterStatsService clusterStatsService;
+    private final OrderValidator orderValidator;
+    private final ProductDictionary productDictionary;
+    private final ProductCatalog productCatalog;
+
+    @Value("${kafka.topics.orders}")
+    private String ordersTopic;
+
+    @Value("${kafka.topics.orders-priority}")
+    private String priorityTopic;
+
+    @Value("${kafka.topics.orders-retry}")
+    private String retryTopic;
+
+    @Value("${kafka.topics.orders-dlq}")
+    private String dlqTopic;
+
+    @Value("${kafka.backfill.max-poll-records}")
+    private int maxPollRecords;
+
+    @Value("${kafka.backfill.fetch-min-bytes}")
+    private int fetchMinBytes;
+
+    @Value("${kafka.backfill.fetch-max-wait-ms}")
+    private int fetchMaxWaitMs;
+
+    @Value("${kafka.backfill.max-partition-fetch-bytes}")
+    private int maxPartitionFetchBytes;
+
+    @Value("${kafka.backfill.pause-timeout-ms}")
+    private long pauseTimeoutMs;
+
+    private static final String PAUSE_REASON = "backfill";
+    private static final List<String> LIVE_LISTENER_IDS =
+        List.of(OrderProcessingService.ORDERS_LISTENER_ID, OrderProcessingService.PRIORITY_LISTENER_ID);
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final AtomicReference<BackfillStatus> status = new AtomicReference<>(BackfillStatus.IDLE);
+
+    // Fetching blocks on the network, one virtual thread per partition
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public BackfillStatus getStatus() {
+        return status.get();
+    }
+
+    /**
+     * Start a backfill in the background.
+     *
+     * @throws IllegalStateException when one is already running
+     */
+    public BackfillStatus start(BackfillRequest request) {
+        BackfillStatus current = status.get();
+        BackfillStatus started = BackfillStatus.running(System.currentTimeMillis());
+        if (current.state() == State.RUNNING || !status.compareAndSet(current, started)) {
+            throw new IllegalStateException("A backfill is already running");
+        }
+        executor.execute(() -> run(request, started.startedAt()));
+        return started;
+    }
+
+    private void run(BackfillRequest request, long startedAt) {
+        List<MessageListenerContainer> live = new ArrayList<>();
+        for (String listenerId : LIVE_LISTENER_IDS) {
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+            if (container == null) {
+                status.set(BackfillStatus.failed(startedAt, "Listener " + listenerId + " is not registered"));
+                return;
+            }
+            live.add(container);
+        }
+
+        boolean paused = false;
+        try {
+            // Bulk of the scan, with the live listeners running
+            List<TopicPartition> partitions = assignedLivePartitions(live);
+            Map<TopicPartition, OffsetAndMetadata> snapshot = committedOffsets(partitions, Map.of());
+            Map<TopicPartition, long[]> ranges = resolveRanges(partitions, snapshot, request);
+            Map<TopicPartition, Long> forwardedRead = new ConcurrentHashMap<>();
+            Map<TopicPartition, Set<Long>> forwarded = new ConcurrentHashMap<>();
+            scanForwardedOffsets(forwardedRead, forwarded);
+            Map<TopicPartition, PartitionScan> scans = scanPartitions(ranges, forwarded, Map.of());
+
+            // Catch-up and swap, with the live listeners paused
+            LIVE_LISTENER_IDS.forEach(id -> pauseControl.pause(id, PAUSE_REASON));
+            paused = true;
+            for (MessageListenerContainer container : live) {
+                awaitPaused(container);
+            }
+            if (!new HashSet<>(assignedLivePartitions(live)).equals(new HashSet<>(partitions))) {
+                throw new IllegalStateException("Live partitions were reassigned during the backfill");
+            }
+
+            // Forwards still in the producer buffer or waiting out a retry backoff must be
+            // visible in the retry/DLQ scan
+            kafkaTemplate.flush();
+            failureForwarder.awaitForwards(partitions, pauseTimeoutMs);
+            Map<TopicPartition, Long> durable = processedOrderSink.awaitDurable(partitions, pauseTimeoutMs);
+            Map<TopicPartition, OffsetAndMetadata> committed = committedOffsets(partitions, durable);
+            Map<TopicPartition, long[]> tails = new HashMap<>();
+            ranges.forEach((partition, range) -> {
+                OffsetAndMetadata stopped = committed.get(partition);
+                long to = stopped == null ? range[1] : Math.max(range[1], stopped.offset());
+                tails.put(partition, new long[] {range[1], to});
+            });
+            scanForwardedOffsets(forwardedRead, forwarded);
+            scans = scanPartitions(tails, forwarded, scans);
+
+            Map<String, PartitionProgress> progress = new TreeMap<>();
+            for (PartitionScan scan : scans.values()) {
+                String topicPartition = scan.partition().toString();
+                aggregationService.replaceShard(topicPartition, scan.byProduct(), scan.byCategory(), scan.total());
+                progress.put(topicPartition, scan.progress());
+            }
+            clusterStatsService.discardRestored(progress.keySet());
+
+            BackfillStatus completed = BackfillStatus.completed(startedAt, progress);
+            status.set(completed);
+            log.info("Backfill rebuilt {} partition(s) from {} record(s) in {} ms",
+                progress.size(), completed.recordsRead(), completed.finishedAt() - startedAt);
+
+        } catch (Exception e) {
+            log.error("Backfill failed, live analytics left unchanged", e);
+            status.set(BackfillStatus.failed(startedAt, String.valueOf(e.getMessage())));
+        } finally {
+            if (paused) {
+                LIVE_LISTENER_IDS.forEach(id -> pauseControl.resume(id, PAUSE_REASON));
+            }
+        }
+    }
+
+    /**
+     * Read every range in parallel, continuing the given earlier scans of the same partitions.
+     */
+    private Map<TopicPartition, PartitionScan> scanPartitions(
+        Map<TopicPartition, long[]> ranges,
+        Map<TopicPartition, Set<Long>> forwarded,
+        Map<TopicPartition, PartitionScan> earlier
+    ) {
+        Map<TopicPartition, CompletableFuture<PartitionScan>> scans = new HashMap<>();
+        ranges.forEach((partition, range) -> scans.put(partition, CompletableFuture.supplyAsync(
+            () -> scanPartition(partition, range[0], range[1], forwarded.getOrDefault(partition, Set.of()),
+                earlier.get(partition)),
+            executor)));
+        CompletableFuture.allOf(scans.values().toArray(CompletableFuture[]::new)).join();
+
+        Map<TopicPartition, PartitionScan> results = new HashMap<>();
+        scans.forEach((partition, scan) -> results.put(partition, scan.join()));
+        return results;
+    }
+
+    private void awaitPaused(MessageListenerContainer live) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + pauseTimeoutMs;
+        while (!live.isContainerPaused()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException(
+                    "Listener " + live.getListenerId() + " did not pause within " + pauseTimeoutMs + " ms");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private List<TopicPartition> assignedLivePartitions(List<MessageListenerContainer> live) {
+        Set<String> liveTopics = Set.of(ordersTopic, priorityTopic);
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (MessageListenerContainer container : live) {
+            Collection<TopicPartition> assigned = container.getAssignedPartitions();
+            if (assigned != null) {
+                assigned.stream().filter(tp -> liveTopics.contains(tp.topic())).forEach(partitions::add);
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * The live group's committed offsets, once they cover the given durable offsets.
+     */
+    private Map<TopicPartition, OffsetAndMetadata> committedOffsets(
+        List<TopicPartition> partitions,
+        Map<TopicPartition, Long> durable
+    ) throws InterruptedException {
+        if (partitions.isEmpty()) {
+            return Map.of();
+        }
+        try (Consumer<String, Object> consumer = createConsumer(false)) {
+            return awaitCommitted(consumer, partitions, durable);
+        }
+    }
+
+    /**
+     * [from, to) per partition: "to" is the live group's committed offset, "from" comes
+     * from the request (explicit offset, then timestamp, then the start of the partition).
+     */
+    private Map<TopicPartition, long[]> resolveRanges(
+        List<TopicPartition> partitions,
+        Map<TopicPartition, OffsetAndMetadata> committed,
+        BackfillRequest request
+    ) {
+        Map<TopicPartition, long[]> ranges = new HashMap<>();
+        if (partitions.isEmpty()) {
+            return ranges;
+        }
+
+        try (Consumer<String, Object> consumer = createConsumer(false)) {
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+
+            Map<TopicPartition, OffsetAndTimestamp> byTime = Map.of();
+            if (request.fromTimestamp() != null) {
+                Map<TopicPartition, Long> query = new HashMap<>();
+                partitions.forEach(tp -> query.put(tp, request.fromTimestamp()));
+                byTime = consumer.offsetsForTimes(query);
+            }
+
+            for (TopicPartition partition : partitions) {
+                long first = beginning.get(partition);
+                OffsetAndMetadata live = committed.get(partition);
+                long to = live == null ? first : live.offset();
+
+                long from = first;
+                Long requested = request.startOffsets() == null || !partition.topic().equals(ordersTopic)
+                    ? null : request.startOffsets().get(partition.partition());
+                if (requested != null) {
+                    from = requested;
+                } else if (request.fromTimestamp() != null) {
+                    OffsetAndTimestamp found = byTime.get(partition);
+                    from = found == null ? to : found.offset();
+                }
+                ranges.put(partition, new long[] {Math.min(Math.max(from, first), to), to});
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Sink acks are committed by the paused consumer on its next loop, so wait until the
+     * committed offsets cover the last durable offset of every partition.
+     */
+    private Map<TopicPartition, OffsetAndMetadata> awaitCommitted(
+        Consumer<String, Object> consumer,
+        List<TopicPartition> partitions,
+        Map<TopicPartition, Long> durable
+    ) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + pauseTimeoutMs;
+        while (true) {
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+            boolean caughtUp = durable.entrySet().stream().allMatch(entry -> {
+                OffsetAndMetadata offset = committed.get(entry.getKey());
+                return offset != null && offset.offset() > entry.getValue();
+            });
+            if (caughtUp) {
+                return committed;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Committed offsets did not catch up within " + pauseTimeoutMs + " ms");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Add the original offsets, per orders or priority partition, of the records in the retry
+     * topic and the DLQ, reading each of their partitions on from the position in read and
+     * moving it to the end. Only headers are needed, so values are not deserialized.
+     */
+    private void scanForwardedOffsets(Map<TopicPartition, Long> read, Map<TopicPartition, Set<Long>> forwarded) {
+        List<CompletableFuture<Void>> scans = new ArrayList<>();
+
+        try (Consumer<String, Object> consumer = createConsumer(true)) {
+            for (String topic : List.of(retryTopic, dlqTopic)) {
+                List<PartitionInfo> infos = consumer.partitionsFor(topic);
+                if (infos == null) {
+                    continue;
+                }
+                for (PartitionInfo info : infos) {
+                    TopicPartition partition = new TopicPartition(topic, info.partition());
+                    scans.add(CompletableFuture.runAsync(
+                        () -> read.put(partition, scanForwarded(partition, read.get(partition), forwarded)),
+                        executor));
+                }
+            }
+        }
+        CompletableFuture.allOf(scans.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * @param from offset to read on from, or null for the beginning of the partition
+     * @return the end offset read up to
+     */
+    private long scanForwarded(TopicPartition partition, Long from, Map<TopicPartition, Set<Long>> forwarded) {
+        try (Consumer<String, Object> consumer = createConsumer(true)) {
+            consumer.assign(List.of(partition));
+            long end = consumer.endOffsets(List.of(partition)).get(partition);
+            if (from == null) {
+                consumer.seekToBeginning(List.of(partition));
+            } else {
+                consumer.seek(partition, from);
+            }
+
+            while (consumer.position(partition) < end) {
+                for (ConsumerRecord<String, Object> record : consumer.poll(POLL_TIMEOUT).records(partition)) {
+                    FailureMetadata metadata = FailureMetadata.fromHeaders(
+                        record.headers(), record.topic(), record.partition(), record.offset());
+                    String originalTopic = metadata.originalTopic();
+                    if (ordersTopic.equals(originalTopic) || priorityTopic.equals(originalTopic)) {
+                        forwarded.computeIfAbsent(
+                                new TopicPartition(originalTopic, metadata.originalPartition()),
+                                tp -> ConcurrentHashMap.newKeySet())
+                            .add(metadata.originalOffset());
+                    }
+                }
+            }
+            return end;
+        }
+    }
+
+    /**
+     * Read [from, to) of a partition, adding to an earlier scan of it that ended at from.
+     */
+    private PartitionScan scanPartition(TopicPartition partition, long from, long to, Set<Long> forwarded,
+                                        PartitionScan earlier) {
+        ProductStatsTable byProduct = earlier == null ? aggregationService.newProductTable() : earlier.byProduct();
+        ProductStatsTable byCategory = earlier == null ? aggregationService.newProductTable() : earlier.byCategory();
+        PartitionStats total = earlier == null ? PartitionStats.EMPTY : earlier.total();
+        long read = 0;
+        long counted = 0;
+
+        try (Consumer<String, Object> consumer = createConsumer(false)) {
+            consumer.assign(List.of(partition));
+            consumer.seek(partition, from);
+
+            while (consumer.position(partition) < to) {
+                for (ConsumerRecord<String, Object> record : consumer.poll(POLL_TIMEOUT).records(partition)) {
+                    if (record.offset() >= to) {
+                        break;
+                    }
+                    read++;
+                    if (forwarded.contains(record.offset()) || !(record.value() instanceof Order order)) {
+                        continue;
+                    }
+                    try {
+                        productDictionary.resolve(order);
+                    } catch (ProductDictionary.UnknownProductIdException e) {
+                        continue;
+                    }
+                    if (!orderValidator.validate(order.getOrderId(), order.getProduct(), order.getPrice()).valid()) {
+                        continue;
+                    }
+                    String product = order.getProduct().toString();
+                    byProduct.add(product, order.getPrice());
+                    byCategory.add(categoryOf(product), order.getPrice());
+                    total = total.merge(PartitionStats.of(order.getPrice()));
+                    counted++;
+                }
+            }
+        }
+
+        log.info("Backfilled {} [{}, {}): {} read, {} counted", partition, from, to, read, counted);
+        PartitionProgress progress = earlier == null
+            ? new PartitionProgress(from, to, read, counted)
+            : new PartitionProgress(earlier.progress().fromOffset(), to,
+                earlier.progress().recordsRead() + read, earlier.progress().recordsCounted() + counted);
+        return new PartitionScan(partition, byProduct, byCategory, total, progress);
+    }
+
+    /**
+     * Category the live path would have aggregated the product under. A catalog outage does
+     * not fail the rebuild; those orders count as uncategorized.
+     */
+    private String categoryOf(String product) {
+        try {
+            return productCatalog.lookup(product).map(CatalogEntry::category).orElse(CatalogEntry.UNCATEGORIZED);
+        } catch (CatalogUnavailableException e) {
+            return CatalogEntry.UNCATEGORIZED;
+        }
+    }
+
+    /**
+     * Consumer tuned for throughput: big batches and fetches that wait to fill up.
+     * It shares the live group id only to read its committed offsets and never commits.
+     */
+    private Consumer<String, Object> createConsumer(boolean headersOnly) {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+        overrides.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, String.valueOf(fetchMinBytes));
+        overrides.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, String.valueOf(fetchMaxWaitMs));
+        overrides.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, String.valueOf(maxPartitionFetchBytes));
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        if (headersOnly) {
+            overrides.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        }
+        return consumerFactory.createConsumer(null, "backfill", null, overrides);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public enum State { IDLE, RUNNING, COMPLETED, FAILED }
+
+    /**
+     * Where to start: explicit offsets per orders partition win over fromTimestamp;
+     * partitions with neither (and priority partitions without a timestamp) start from the
+     * beginning of the topic.
+     */
+    public record BackfillRequest(
+        Long fromTimestamp,
+        Map<Integer, Long> startOffsets
+    ) {}
+
+    public record PartitionProgress(
+        long fromOffset,
+        long toOffset,
+        long recordsRead,
+        long recordsCounted
+    ) {}
+
+    public record BackfillStatus(
+        State state,
+        long startedAt,
+        long finishedAt,
+        long recordsRead,
+        long recordsCounted,
+        Map<String, PartitionProgress> partitions,
+        String error
+    ) {
+        static final BackfillStatus IDLE = new BackfillStatus(State.IDLE, 0, 0, 0, 0, Map.of(), null);
+
+        static BackfillStatus running(long startedAt) {
+            return new BackfillStatus(State.RUNNING, startedAt, 0, 0, 0, Map.of(), null);
+        }
+
+        static BackfillStatus completed(long startedAt, Map<String, PartitionProgress> partitions) {
+            long read = partitions.values().stream().mapToLong(PartitionProgress::recordsRead).sum();
+            long counted = partitions.values().stream().mapToLong(PartitionProgress::recordsCounted).sum();
+            return new BackfillStatus(State.COMPLETED, startedAt, System.currentTimeMillis(), read, counted,
+                partitions, null);
+        }
+
+        static BackfillStatus failed(long startedAt, String error) {
+            return new BackfillStatus(State.FAILED, startedAt, System.currentTimeMillis(), 0, 0, Map.of(), error);
+        }
+    }
+
+    private record PartitionScan(
+        TopicPartition partition,
+        ProductStatsTable byProduct,
+        ProductStatsTable byCategory,
+        PartitionStats total,
+        PartitionProgress progress
+    ) {}
+}
@@ -0,0 +1,285 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.AggregationStats;
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.PartitionStats;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes this instance's partial aggregates to the compacted stats topic and
+ * merges every instance's partials into one cluster-wide view.
+ *
+ * Records are keyed "instanceId|topic-partition". Since partials only ever add up
+ * records their owner processed, a partition that moved between instances during a
+ * rebalance is counted exactly once when all of its partials are merged.
+ *
+ * Live instances republish every partial each interval. A remote partial not refreshed
+ * within kafka.stats.stale-after-ms belongs to an instance that is gone. Its records were
+ * still processed, so it stays in the merge and is only reported as stale.
+ */
+@Slf4j
+@Service
+public class ClusterStatsService implements ConsumerSeekAware {
+
+    private static final String KEY_SEPARATOR = "|";
+
+    // Written by each instance at startup; reading it back means all older records were seen
+    private static final String START_MARKER = "__start";
+
+    private final PriceAnalyticsService aggregationService;
+    private final KafkaTemplate<String, String> statsKafkaTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Getter
+    private final String instanceId;
+
+    // A random id can never have earlier partials, so there is nothing to restore
+    private volatile boolean restoreComplete;
+
+    private final long startedAt = System.currentTimeMillis();
+
+    @Value("${kafka.topics.orders-stats}")
+    private String statsTopic;
+
+    @Value("${kafka.stats.stale-after-ms}")
+    private long staleAfterMs;
+
+    // Latest partial of every other instance, keyed "instanceId|topic-partition"
+    private final Map<String, ReceivedPartial> remotePartials = new ConcurrentHashMap<>();
+
+    // Partials this instance published before its last restart, keyed "topic-partition"
+    private final Map<String, PartitionStats> restoredPartials = new ConcurrentHashMap<>();
+
+    // Own keys written to the stats topic, tombstoned on reset
+    private final Set<String> publishedKeys = ConcurrentHashMap.newKeySet();
+
+    public ClusterStatsService(
+        PriceAnalyticsService aggregationService,
+        KafkaTemplate<String, String> statsKafkaTemplate,
+        ObjectMapper objectMapper,
+        @Value("${kafka.stats.instance-id:}") String configuredInstanceId
+    ) {
+        this.aggregationService = aggregationService;
+        this.statsKafkaTemplate = statsKafkaTemplate;
+        this.objectMapper = objectMapper;
+
+        boolean stableId = configuredInstanceId != null && !configuredInstanceId.isBlank();
+        this.instanceId = stableId ? configuredInstanceId : UUID.randomUUID().toString();
+        this.restoreComplete = !stableId;
+    }
+
+    /**
+     * Every instance reads the whole stats topic, so each one uses its own group.
+     */
+    public String getStatsGroupId() {
+        return "stats-" + instanceId;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void announceStart() {
+        if (!restoreComplete) {
+            // Not null: that would be a tombstone, which compaction removes
+            statsKafkaTemplate.send(statsTopic, key(START_MARKER), String.valueOf(startedAt));
+        }
+    }
+
+    /**
+     * Publish every local partial. Republishing unchanged partials doubles as a
+     * heartbeat, so a live instance's view is never older than the publish interval.
+     */
+    @Scheduled(fixedDelayString = "${kafka.stats.publish-interval-ms}")
+    public void publishPartials() {
+        if (!restoreComplete) {
+            log.debug("Skipping stats publish until own partials are restored");
+            return;
+        }
+
+        for (Map.Entry<String, PartitionStats> entry : localPartials().entrySet()) {
+            String key = key(entry.getKey());
+            try {
+                statsKafkaTemplate.send(statsTopic, key, objectMapper.writeValueAsString(entry.getValue()));
+                publishedKeys.add(key);
+            } catch (JsonProcessingException e) {
+                log.error("Failed to serialize partial stats {}", key, e);
+            }
+        }
+    }
+
+    @KafkaListener(
+        topics = "${kafka.topics.orders-stats}",
+        groupId = "#{__listener.statsGroupId}",
+        containerFactory = "stringListenerContainerFactory"
+    )
+    public void consumePartial(ConsumerRecord<String, String> record) {
+        String key = record.key();
+        int separator = key == null ? -1 : key.indexOf(KEY_SEPARATOR);
+        if (separator < 0) {
+            return;
+        }
+
+        String owner = key.substring(0, separator);
+        String topicPartition = key.substring(separator + 1);
+
+        if (owner.equals(instanceId)) {
+            restoreOwnPartial(record, topicPartition);
+            return;
+        }
+        if (START_MARKER.equals(topicPartition)) {
+            return;
+        }
+
+        if (record.value() == null) {
+            remotePartials.remove(key);
+        } else {
+            remotePartials.put(key, new ReceivedPartial(owner, parse(record.value()), record.timestamp()));
+        }
+    }
+
+    private void restoreOwnPartial(ConsumerRecord<String, String> record, String topicPartition) {
+        if (restoreComplete || record.timestamp() >= startedAt) {
+            if (START_MARKER.equals(topicPartition) && !restoreComplete) {
+                restoreComplete = true;
+                log.info("Restored {} partial(s) for instance {}", restoredPartials.size(), instanceId);
+            }
+            return;
+        }
+        if (START_MARKER.equals(topicPartition)) {
+            return;
+        }
+
+        if (record.value() == null) {
+            restoredPartials.remove(topicPartition);
+        } else {
+            restoredPartials.put(topicPartition, parse(record.value()));
+        }
+        publishedKeys.add(key(topicPartition));
+    }
+
+    /**
+     * Merge every known partial into one cluster-wide snapshot. Stale partials are merged
+     * too, since they count records nobody else counted; they only leave the age and
+     * instance figures, which describe the live instances.
+     */
+    public ClusterStats getClusterStats() {
+        long now = System.currentTimeMillis();
+        PartitionStats merged = PartitionStats.EMPTY;
+        Set<String> instances = new HashSet<>();
+        instances.add(instanceId);
+        Set<String> staleInstances = new HashSet<>();
+        int stalePartials = 0;
+        long oldestUpdate = now;
+
+        Map<String, PartitionStats> local = localPartials();
+        for (PartitionStats partial : local.values()) {
+            merged = merged.merge(partial);
+        }
+        Collection<ReceivedPartial> remote = remotePartials.values();
+        for (ReceivedPartial partial : remote) {
+            merged = merged.merge(partial.stats());
+            if (now - partial.updatedAt() > staleAfterMs) {
+                stalePartials++;
+                staleInstances.add(partial.instanceId());
+            } else {
+                instances.add(partial.instanceId());
+                oldestUpdate = Math.min(oldestUpdate, partial.updatedAt());
+            }
+        }
+        // An instance with some fresh partials is live; its others just have no new records
+        staleInstances.removeAll(instances);
+
+        return new ClusterStats(
+            merged.toAggregationStats(),
+            instances.size(),
+            staleInstances.size(),
+            local.size() + remote.size(),
+            stalePartials,
+            now - oldestUpdate
+        );
+    }
+
+    /**
+     * Reset this instance's contribution and remove its partials from the cluster view.
+     */
+    public void resetLocal() {
+        aggregationService.reset();
+        restoredPartials.clear();
+        for (String key : publishedKeys) {
+            statsKafkaTemplate.send(statsTopic, key, null);
+        }
+        publishedKeys.clear();
+    }
+
+    /**
+     * Drop partials restored from before the last restart for partitions whose analytics
+     * were rebuilt from the source topic, so they are not counted twice.
+     */
+    public void discardRestored(Collection<String> topicPartitions) {
+        topicPartitions.forEach(restoredPartials::remove);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        // The stats topic is the source of truth, rebuild the view from the start every time
+        callback.seekToBeginning(assignments.keySet());
+    }
+
+    private Map<String, PartitionStats> localPartials() {
+        Map<String, PartitionStats> partials = new HashMap<>(restoredPartials);
+        aggregationService.getPartitionStats()
+            .forEach((topicPartition, stats) -> partials.merge(topicPartition, stats, PartitionStats::merge));
+        return partials;
+    }
+
+    private String key(String topicPartition) {
+        return instanceId + KEY_SEPARATOR + topicPartition;
+    }
+
+    private PartitionStats parse(String value) {
+        try {
+            return objectMapper.readValue(value, PartitionStats.class);
+        } catch (JsonProcessingException e) {
+            log.error("Ignoring malformed partial stats: {}", value, e);
+            return PartitionStats.EMPTY;
+        }
+    }
+
+    private record ReceivedPartial(
+        String instanceId,
+        PartitionStats stats,
+        long updatedAt
+    ) {}
+
+    /**
+     * Cluster-wide view. stats includes every partial; staleInstances and stalePartials
+     * count those of instances that stopped publishing. oldestPartialAgeMs covers the live
+     * partials only, which their instances refresh every publish interval.
+     */
+    public record ClusterStats(
+        AggregationStats stats,
+        int instances,
+        int staleInstances,
+        int partials,
+        int stalePartials,
+        long oldestPartialAgeMs
+    ) {}
+}
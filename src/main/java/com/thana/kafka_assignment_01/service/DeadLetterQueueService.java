@@ -1,12 +1,16 @@
 package com.thana.kafka_assignment_01.service;
 
+import com.thana.kafka_assignment_01.config.KafkaConfig;
+import com.thana.kafka_assignment_01.jfr.DeadLetterIntakeEvent;
+import com.thana.kafka_assignment_01.logging.EventCategory;
+import com.thana.kafka_assignment_01.logging.HotPathLogger;
+import com.thana.kafka_assignment_01.model.FailureMetadata;
 import com.thana.kafka_assignment_01.model.Order;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -17,13 +21,28 @@ import java.util.*;
 @Service
 public class DeadLetterQueueService {
 
-    // Thread-safe list to store failed order data for monitoring/UI
-    private final List<FailedOrder> failedOrders =
-        Collections.synchronizedList(new ArrayList<>());
+    private static final String UNKNOWN_REASON = "unknown";
+
+    private final HotPathLogger hotPathLogger;
+    private final ProductDictionary productDictionary;
+
+    // Most recent failed orders plus incremental indexes by reason, product, source partition and time
+    private final FailedOrderIndex failedOrders;
 
     private static final DateTimeFormatter formatter =
         DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    public DeadLetterQueueService(
+        HotPathLogger hotPathLogger,
+        ProductDictionary productDictionary,
+        @Value("${kafka.dlq.histogram-bucket-ms}") long histogramBucketMs,
+        @Value("${kafka.dlq.max-indexed}") int maxIndexed
+    ) {
+        this.hotPathLogger = hotPathLogger;
+        this.productDictionary = productDictionary;
+        this.failedOrders = new FailedOrderIndex(histogramBucketMs, maxIndexed);
+    }
+
     /**
      * Kafka listener for DLQ topic
      */
@@ -31,55 +50,123 @@ public class DeadLetterQueueService {
         topics = "${kafka.topics.orders-dlq}",
         groupId = "${spring.kafka.consumer.group-id}-dlq"
     )
-    public void consumeDLQ(
-        @Payload Order order,
-        @Header(KafkaHeaders.RECEIVED_KEY) String key,
-        @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
-        @Header(KafkaHeaders.OFFSET) long offset,
-        Acknowledgment ack
-    ) {
+    public void consumeDLQ(ConsumerRecord<String, Order> record, Acknowledgment ack) {
+        Order order = record.value();
+        index(record, order.getOrderId().toString(), productName(order), order.getPrice(), UNKNOWN_REASON,
+            UNKNOWN_REASON);
+
+        // Acknowledge DLQ message to avoid reprocessing
+        ack.acknowledge();
+    }
+
+    /**
+     * Index a DLQ record whose value cannot be read, such as an order that already failed to
+     * deserialize on its source topic, from its key and failure headers. Called by the
+     * container's error handler, which commits the record afterwards.
+     */
+    public void recordUnreadable(ConsumerRecord<?, ?> record, Exception exception) {
+        String orderId = record.key() == null ? "unknown" : record.key().toString();
+        index(record, orderId, "unknown", 0f, KafkaConfig.DESERIALIZATION_FAILED_CODE,
+            String.valueOf(exception.getMessage()));
+    }
 
+    private void index(ConsumerRecord<?, ?> record, String orderId, String product, float price,
+                       String defaultCode, String defaultReason) {
+        DeadLetterIntakeEvent event = new DeadLetterIntakeEvent();
+        event.begin();
+        int partition = record.partition();
+        long offset = record.offset();
+        long receivedAt = System.currentTimeMillis();
         String timestamp = LocalDateTime.now().format(formatter);
 
-        log.error("======= DEAD LETTER MESSAGE RECEIVED =======");
-        log.error("Timestamp : {}", timestamp);
-        log.error("Order ID  : {}", order.getOrderId());
-        log.error("Product   : {}", order.getProduct());
-        log.error("Price     : {}", order.getPrice());
-        log.error("Partition : {}", partition);
-        log.error("Offset    : {}", offset);
-        log.error("============================================");
+        FailureMetadata metadata = FailureMetadata.fromHeaders(record.headers(), record.topic(), partition, offset);
+        String reason = Objects.requireNonNullElse(
+            FailureMetadata.read(record.headers(), FailureMetadata.FAILURE_REASON), defaultReason);
+        String reasonCode = Objects.requireNonNullElse(
+            FailureMetadata.read(record.headers(), FailureMetadata.FAILURE_CODE), defaultCode);
+
+        hotPathLogger.error(log, EventCategory.DLQ, orderId, partition, offset,
+            "Dead letter received | Order ID: {} | Product: {} | Price: {} | Partition: {} | Offset: {} | At: {} | Reason: {}",
+            orderId, product, price, partition, offset, timestamp, reason);
 
         // Save failed message details for later inspection
         failedOrders.add(new FailedOrder(
-            order.getOrderId().toString(),
-            order.getProduct().toString(),
-            order.getPrice(),
+            orderId,
+            product,
+            price,
             timestamp,
             partition,
-            offset
+            offset,
+            reason,
+            reasonCode,
+            metadata.exceptionClass(),
+            metadata.retryCount(),
+            metadata.originalTopic(),
+            metadata.originalPartition(),
+            metadata.originalOffset(),
+            receivedAt
         ));
 
-        // Acknowledge DLQ message to avoid reprocessing
-        ack.acknowledge();
+        event.reason = reason;
+        event.retryCount = metadata.retryCount();
+        event.complete(orderId, partition, offset);
+    }
+
+    private String productName(Order order) {
+        try {
+            CharSequence product = productDictionary.resolve(order).getProduct();
+            return product == null ? "unknown" : product.toString();
+        } catch (ProductDictionary.UnknownProductIdException e) {
+            return "product#" + order.getProductId();
+        }
     }
 
     // Public helper methods (optional for UI or API exposure)
     public List<FailedOrder> getFailedOrders() {
-        return new ArrayList<>(failedOrders);
+        return failedOrders.snapshot();
     }
 
     public int getFailedOrderCount() {
         return failedOrders.size();
     }
 
+    public long getEvictedFailedOrderCount() {
+        return failedOrders.evictions();
+    }
+
+    /**
+     * Filtered, newest-first page served from the secondary indexes.
+     */
+    public FailedOrderIndex.FailedOrderPage queryFailedOrders(
+        String reason, String product, Integer sourcePartition, int page, int size
+    ) {
+        Map<FailedOrderIndex.Dimension, String> filters = new EnumMap<>(FailedOrderIndex.Dimension.class);
+        if (reason != null) filters.put(FailedOrderIndex.Dimension.REASON, reason);
+        if (product != null) filters.put(FailedOrderIndex.Dimension.PRODUCT, product);
+        if (sourcePartition != null) filters.put(FailedOrderIndex.Dimension.PARTITION, String.valueOf(sourcePartition));
+        return failedOrders.query(filters, page, size);
+    }
+
+    public Map<String, Integer> getBreakdown(FailedOrderIndex.Dimension dimension) {
+        return failedOrders.breakdown(dimension);
+    }
+
+    public Map<Long, Map<String, Long>> getHistogram(FailedOrderIndex.Dimension dimension, long from, long to) {
+        return failedOrders.histogram(dimension, from, to);
+    }
+
+    public long getHistogramBucketMs() {
+        return failedOrders.getBucketMs();
+    }
+
     public void clearFailedOrders() {
         failedOrders.clear();
         log.info("DLQ records cleared successfully.");
     }
 
     /**
-     * Record representing failed message metadata.
+     * Record representing failed message metadata. reasonCode is the bounded code failures are
+     * indexed and broken down by; reason is the free-text detail.
      */
     public record FailedOrder(
         String orderId,
@@ -87,6 +174,14 @@ public class DeadLetterQueueService {
         float price,
         String timestamp,
         int partition,
-        long offset
+        long offset,
+        String reason,
+        String reasonCode,
+        String exceptionClass,
+        int retryCount,
+        String sourceTopic,
+        int sourcePartition,
+        long sourceOffset,
+        long receivedAt
     ) {}
 }
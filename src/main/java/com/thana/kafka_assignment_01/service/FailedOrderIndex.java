@@ -0,0 +1,266 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.service.DeadLetterQueueService.FailedOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Bounded store of the most recent DLQ records with secondary indexes maintained on insert.
+ *
+ * Records get increasing sequence numbers and live in a ring of maxOrders slots; once it
+ * is full, each new record evicts the oldest (counted in evictions). Every dimension maps
+ * a key to a primitive array of the sequence numbers of its records, oldest first, so
+ * eviction pops the head of three posting lists. A filtered query intersects the posting
+ * lists of its filters, walking the shortest one and binary-searching the others. Time
+ * buckets live in a sorted map and only count retained records, so a histogram costs one
+ * range lookup plus the buckets it returns.
+ */
+public class FailedOrderIndex {
+
+    /**
+     * Dimensions DLQ records can be broken down by.
+     */
+    public enum Dimension {
+        REASON(FailedOrder::reasonCode),
+        PRODUCT(FailedOrder::product),
+        PARTITION(order -> String.valueOf(order.sourcePartition()));
+
+        private final Function<FailedOrder, String> key;
+
+        Dimension(Function<FailedOrder, String> key) {
+            this.key = key;
+        }
+
+        String keyOf(FailedOrder order) {
+            return key.apply(order);
+        }
+    }
+
+    private final long bucketMs;
+    private final FailedOrder[] orders;
+    // Sequence number of the oldest retained record and of the next one to be added
+    private long first;
+    private long next;
+    private long evictions;
+    private final Map<Dimension, Map<String, Posting>> postings = new EnumMap<>(Dimension.class);
+    private final NavigableMap<Long, Map<Dimension, Map<String, Long>>> timeBuckets = new TreeMap<>();
+
+    public FailedOrderIndex(long bucketMs, int maxOrders) {
+        if (maxOrders <= 0) {
+            throw new IllegalArgumentException("maxOrders must be > 0");
+        }
+        this.bucketMs = bucketMs;
+        this.orders = new FailedOrder[maxOrders];
+        for (Dimension dimension : Dimension.values()) {
+            postings.put(dimension, new HashMap<>());
+        }
+    }
+
+    public synchronized void add(FailedOrder order) {
+        if (next - first == orders.length) {
+            evictOldest();
+        }
+        long sequence = next++;
+        orders[slot(sequence)] = order;
+
+        for (Dimension dimension : Dimension.values()) {
+            postings.get(dimension).computeIfAbsent(dimension.keyOf(order), key -> new Posting()).add(sequence);
+        }
+        Map<Dimension, Map<String, Long>> bucket =
+            timeBuckets.computeIfAbsent(bucketStart(order.receivedAt()), start -> new EnumMap<>(Dimension.class));
+        for (Dimension dimension : Dimension.values()) {
+            bucket.computeIfAbsent(dimension, d -> new HashMap<>()).merge(dimension.keyOf(order), 1L, Long::sum);
+        }
+    }
+
+    public synchronized int size() {
+        return (int) (next - first);
+    }
+
+    /**
+     * Records dropped to stay within maxOrders since the index was created.
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized List<FailedOrder> snapshot() {
+        List<FailedOrder> snapshot = new ArrayList<>(size());
+        for (long sequence = first; sequence < next; sequence++) {
+            snapshot.add(orders[slot(sequence)]);
+        }
+        return snapshot;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(orders, null);
+        first = next;
+        postings.values().forEach(Map::clear);
+        timeBuckets.clear();
+    }
+
+    /**
+     * Newest-first page of records matching every filter.
+     */
+    public synchronized FailedOrderPage query(Map<Dimension, String> filters, int page, int size) {
+        List<FailedOrder> items = new ArrayList<>(size);
+        long skip = (long) page * size;
+
+        if (filters.isEmpty()) {
+            for (long sequence = next - 1 - skip; sequence >= first && items.size() < size; sequence--) {
+                items.add(orders[slot(sequence)]);
+            }
+            return new FailedOrderPage(page, size, next - first, items);
+        }
+
+        List<Posting> lists = new ArrayList<>(filters.size());
+        for (Map.Entry<Dimension, String> filter : filters.entrySet()) {
+            Posting posting = postings.get(filter.getKey()).get(filter.getValue());
+            if (posting == null) {
+                return new FailedOrderPage(page, size, 0, items);
+            }
+            lists.add(posting);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        Posting shortest = lists.getFirst();
+        List<Posting> others = lists.subList(1, lists.size());
+
+        long total = 0;
+        for (int i = shortest.size - 1; i >= 0; i--) {
+            long sequence = shortest.get(i);
+            if (allContain(others, sequence)) {
+                if (total >= skip && items.size() < size) {
+                    items.add(orders[slot(sequence)]);
+                }
+                total++;
+            }
+        }
+        return new FailedOrderPage(page, size, total, items);
+    }
+
+    /**
+     * Count of retained records per key for the given dimension.
+     */
+    public synchronized Map<String, Integer> breakdown(Dimension dimension) {
+        Map<String, Integer> counts = new TreeMap<>();
+        postings.get(dimension).forEach((key, posting) -> counts.put(key, posting.size));
+        return counts;
+    }
+
+    /**
+     * Counts per key for each time bucket in [from, to), oldest bucket first.
+     */
+    public synchronized Map<Long, Map<String, Long>> histogram(Dimension dimension, long from, long to) {
+        Map<Long, Map<String, Long>> result = new LinkedHashMap<>();
+        timeBuckets.subMap(bucketStart(from), true, to, false).forEach((start, bucket) ->
+            result.put(start, new TreeMap<>(bucket.getOrDefault(dimension, Map.of()))));
+        return result;
+    }
+
+    public long getBucketMs() {
+        return bucketMs;
+    }
+
+    /**
+     * Drop the oldest record. It is the head of every posting list it is on, since
+     * sequence numbers are appended in order.
+     */
+    private void evictOldest() {
+        int slot = slot(first);
+        FailedOrder order = orders[slot];
+        orders[slot] = null;
+        first++;
+        evictions++;
+
+        for (Dimension dimension : Dimension.values()) {
+            Map<String, Posting> byKey = postings.get(dimension);
+            String key = dimension.keyOf(order);
+            Posting posting = byKey.get(key);
+            posting.removeFirst();
+            if (posting.size == 0) {
+                byKey.remove(key);
+            }
+        }
+        long start = bucketStart(order.receivedAt());
+        Map<Dimension, Map<String, Long>> bucket = timeBuckets.get(start);
+        for (Dimension dimension : Dimension.values()) {
+            Map<String, Long> counts = bucket.get(dimension);
+            if (counts.merge(dimension.keyOf(order), -1L, Long::sum) == 0) {
+                counts.remove(dimension.keyOf(order));
+            }
+        }
+        if (bucket.values().stream().allMatch(Map::isEmpty)) {
+            timeBuckets.remove(start);
+        }
+    }
+
+    private static boolean allContain(List<Posting> postings, long sequence) {
+        for (Posting posting : postings) {
+            if (!posting.contains(sequence)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % orders.length);
+    }
+
+    private long bucketStart(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, bucketMs);
+    }
+
+    /**
+     * Ascending sequence numbers of one key's records in a growable primitive array.
+     */
+    private static final class Posting {
+
+        private long[] sequences = new long[4];
+        private int head;
+        private int size;
+
+        void add(long sequence) {
+            if (head + size == sequences.length) {
+                // Reclaim the evicted head before growing
+                long[] target = size * 2 <= sequences.length ? sequences : new long[sequences.length * 2];
+                System.arraycopy(sequences, head, target, 0, size);
+                sequences = target;
+                head = 0;
+            }
+            sequences[head + size++] = sequence;
+        }
+
+        void removeFirst() {
+            head++;
+            size--;
+        }
+
+        long get(int index) {
+            return sequences[head + index];
+        }
+
+        boolean contains(long sequence) {
+            return Arrays.binarySearch(sequences, head, head + size, sequence) >= 0;
+        }
+    }
+
+    /**
+     * Immutable record used as API response.
+     */
+    public record FailedOrderPage(
+        int page,
+        int size,
+        long total,
+        List<FailedOrder> items
+    ) {}
+}
@@ -0,0 +1,47 @@
+package com.thana.kafka_assignment_01.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides whether a processing failure is worth retrying. Permanent failures
+ * (bad data) fail the same way on every attempt, so they go straight to the DLQ.
+ */
+@Slf4j
+@Component
+public class FailureClassifier {
+
+    private final List<Class<?>> permanentExceptions = new ArrayList<>();
+
+    public FailureClassifier(@Value("${kafka.consumer.permanent-exceptions}") List<String> permanentExceptionNames) {
+        for (String name : permanentExceptionNames) {
+            try {
+                permanentExceptions.add(ClassUtils.forName(name.trim(), getClass().getClassLoader()));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Unknown permanent exception class: " + name, e);
+            }
+        }
+    }
+
+    /**
+     * True when the failure, or any of its causes, is one of the configured permanent types.
+     */
+    public boolean isPermanent(Throwable failure) {
+        for (Throwable current = failure; current != null; current = current.getCause()) {
+            for (Class<?> type : permanentExceptions) {
+                if (type.isInstance(current)) {
+                    return true;
+                }
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,220 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.jfr.OrderForwardEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Forwards failed orders to the retry topic or the DLQ without blocking the listener.
+ *
+ * The source record is acknowledged only once its forward is acknowledged by the broker.
+ * Acks are async, so the container commits each partition up to the last record whose
+ * forward succeeded and a failed forward is never committed past. A failed send is
+ * retried with backoff: a retry-topic forward falls back to the DLQ after max-attempts,
+ * a DLQ forward is retried until it succeeds.
+ *
+ * Each source partition has a bounded window of pending forwards. When it fills, the
+ * partition is paused until the window has drained to half.
+ *
+ * The forward's {@link OrderForwardEvent} ends once the forward is on the broker, with the
+ * topic it landed on and the number of sends it took.
+ */
+@Slf4j
+@Service
+public class FailureForwarder {
+
+    private static final String PAUSE_REASON = "forward-window";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ListenerPauseControl pauseControl;
+    private final int windowSize;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+
+    private final ScheduledExecutorService retryScheduler =
+        Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("forward-retry").daemon().factory());
+
+    // Source partition -> forwards not yet acknowledged by the broker
+    private final Map<TopicPartition, AtomicInteger> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder failedSends = new LongAdder();
+    private final LongAdder dlqFallbacks = new LongAdder();
+    private final LongAdder pauses = new LongAdder();
+
+    public FailureForwarder(
+        KafkaTemplate<String, Object> kafkaTemplate,
+        ListenerPauseControl pauseControl,
+        @Value("${kafka.consumer.forward.window-size}") int windowSize,
+        @Value("${kafka.consumer.forward.max-attempts}") int maxAttempts,
+        @Value("${kafka.consumer.forward.retry-backoff-ms}") long retryBackoffMs,
+        @Value("${kafka.consumer.forward.max-retry-backoff-ms}") long maxRetryBackoffMs
+    ) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.pauseControl = pauseControl;
+        this.windowSize = windowSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+    }
+
+    /**
+     * Forward a record consumed from source at offset and acknowledge it once the forward is
+     * on the broker.
+     *
+     * @param fallback sent instead once record has failed max-attempts times; null to retry forever
+     * @param event    begun by the caller, completed when the forward is acknowledged
+     */
+    public void forward(TopicPartition source, long offset, ProducerRecord<String, Object> record,
+                        ProducerRecord<String, Object> fallback, Acknowledgment ack, OrderForwardEvent event) {
+        int inFlight = pending.computeIfAbsent(source, tp -> new AtomicInteger()).incrementAndGet();
+        if (inFlight >= windowSize && !pauseControl.isPartitionPausedFor(source, PAUSE_REASON)) {
+            pauses.increment();
+            log.warn("{} forwards pending for {}, pausing the partition", inFlight, source);
+            pauseControl.pausePartition(source, PAUSE_REASON);
+        }
+        send(new Forward(source, offset, record, fallback, ack, event), 1);
+    }
+
+    private void send(Forward forward, int attempt) {
+        // Sends are sequential per forward, so the count needs no synchronization
+        forward.event().attempts++;
+        CompletableFuture<SendResult<String, Object>> result;
+        try {
+            result = kafkaTemplate.send(copy(forward.record()));
+        } catch (Exception e) {
+            // send() throws when it cannot even buffer the record, e.g. no metadata within max.block.ms
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((sent, ex) -> {
+            if (ex == null) {
+                complete(forward);
+            } else {
+                retry(forward, attempt, ex);
+            }
+        });
+    }
+
+    private void retry(Forward forward, int attempt, Throwable failure) {
+        failedSends.increment();
+        ProducerRecord<String, Object> record = forward.record();
+
+        if (forward.fallback() != null && attempt >= maxAttempts) {
+            dlqFallbacks.increment();
+            log.error("Failed to forward order {} to {} after {} attempts, sending it to {}",
+                record.key(), record.topic(), attempt, forward.fallback().topic(), failure);
+            send(new Forward(forward.source(), forward.offset(), forward.fallback(), null, forward.ack(),
+                forward.event()), 1);
+            return;
+        }
+
+        long backoff = Math.min(retryBackoffMs << Math.min(attempt - 1, 20), maxRetryBackoffMs);
+        log.warn("Failed to forward order {} to {} (attempt {}), retrying in {} ms: {}",
+            record.key(), record.topic(), attempt, backoff, failure.getMessage());
+        retryScheduler.schedule(() -> send(forward, attempt + 1), backoff, TimeUnit.MILLISECONDS);
+    }
+
+    private void complete(Forward forward) {
+        forwarded.increment();
+        log.info("Order {} forwarded to {}", forward.record().key(), forward.record().topic());
+        forward.ack().acknowledge();
+        OrderForwardEvent event = forward.event();
+        event.target = forward.record().topic();
+        event.complete(forward.record().key(), forward.source().partition(), forward.offset());
+
+        int inFlight = pending.get(forward.source()).decrementAndGet();
+        if (inFlight <= windowSize / 2 && pauseControl.isPartitionPausedFor(forward.source(), PAUSE_REASON)) {
+            log.info("Forward window for {} drained to {}, resuming the partition", forward.source(), inFlight);
+            pauseControl.resumePartition(forward.source(), PAUSE_REASON);
+        }
+    }
+
+    /**
+     * Wait until every pending forward of the given partitions is on the broker, so their
+     * acks are in before the container commits them.
+     *
+     * @throws IllegalStateException when forwards are still pending after the timeout
+     */
+    public void awaitForwards(Collection<TopicPartition> partitions, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (pendingFor(partitions) > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException(pendingFor(partitions) + " forward(s) still pending after "
+                    + timeoutMs + " ms");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private int pendingFor(Collection<TopicPartition> partitions) {
+        int total = 0;
+        for (TopicPartition partition : partitions) {
+            AtomicInteger inFlight = pending.get(partition);
+            total += inFlight == null ? 0 : inFlight.get();
+        }
+        return total;
+    }
+
+    public ForwardStats getStats() {
+        int inFlight = pending.values().stream().mapToInt(AtomicInteger::get).sum();
+        long paused = pending.keySet().stream()
+            .filter(partition -> pauseControl.isPartitionPausedFor(partition, PAUSE_REASON))
+            .count();
+        return new ForwardStats(inFlight, paused, forwarded.sum(), failedSends.sum(), dlqFallbacks.sum(),
+            pauses.sum());
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Forwards still waiting for a retry stay unacknowledged and are redelivered after restart
+        retryScheduler.shutdownNow();
+    }
+
+    /**
+     * The producer marks a record's headers read-only once sent, so each attempt sends a copy.
+     */
+    private static ProducerRecord<String, Object> copy(ProducerRecord<String, Object> record) {
+        return new ProducerRecord<>(record.topic(), record.partition(), record.timestamp(), record.key(),
+            record.value(), new RecordHeaders(record.headers().toArray()));
+    }
+
+    private record Forward(
+        TopicPartition source,
+        long offset,
+        ProducerRecord<String, Object> record,
+        ProducerRecord<String, Object> fallback,
+        Acknowledgment ack,
+        OrderForwardEvent event
+    ) {}
+
+    /**
+     * pending: forwards not yet on the broker; pausedPartitions: partitions held by a full window.
+     */
+    public record ForwardStats(
+        int pending,
+        long pausedPartitions,
+        long forwarded,
+        long failedSends,
+        long dlqFallbacks,
+        long pauses
+    ) {}
+}
@@ -0,0 +1,106 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.service.PriorityRouter.Lane;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end latency per lane (consume time minus the record timestamp set at publish)
+ * against the lane's SLO. Latencies go into power-of-two millisecond buckets, so
+ * percentiles are upper bounds accurate to a factor of two.
+ */
+@Component
+public class LaneMetrics {
+
+    private static final int BUCKETS = 32;
+
+    private final long sloMs;
+    private final Map<Lane, LaneLatency> lanes = new EnumMap<>(Lane.class);
+
+    public LaneMetrics(@Value("${kafka.priority.latency-slo-ms}") long sloMs) {
+        this.sloMs = sloMs;
+        for (Lane lane : Lane.values()) {
+            lanes.put(lane, new LaneLatency());
+        }
+    }
+
+    public void record(Lane lane, long recordTimestamp) {
+        long latency = Math.max(0, System.currentTimeMillis() - recordTimestamp);
+        LaneLatency metrics = lanes.get(lane);
+        metrics.count.increment();
+        if (latency <= sloMs) {
+            metrics.withinSlo.increment();
+        }
+        metrics.histogram.incrementAndGet(bucket(latency));
+        metrics.windowMax.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * Highest latency seen in the lane since the previous call (the scheduler's tick).
+     */
+    long takeWindowMax(Lane lane) {
+        return lanes.get(lane).windowMax.getAndSet(0);
+    }
+
+    public long getSloMs() {
+        return sloMs;
+    }
+
+    public Map<Lane, LaneStats> getStats() {
+        Map<Lane, LaneStats> stats = new EnumMap<>(Lane.class);
+        lanes.forEach((lane, metrics) -> {
+            long count = metrics.count.sum();
+            stats.put(lane, new LaneStats(
+                count,
+                count == 0 ? 1.0 : (double) metrics.withinSlo.sum() / count,
+                percentile(metrics.histogram, count, 0.50),
+                percentile(metrics.histogram, count, 0.99),
+                percentile(metrics.histogram, count, 0.999)
+            ));
+        });
+        return stats;
+    }
+
+    private static int bucket(long latencyMs) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(latencyMs));
+    }
+
+    private static long percentile(AtomicLongArray histogram, long count, double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= rank) {
+                return i == 0 ? 0 : 1L << i;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    private static final class LaneLatency {
+        final LongAdder count = new LongAdder();
+        final LongAdder withinSlo = new LongAdder();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        final AtomicLong windowMax = new AtomicLong();
+    }
+
+    /**
+     * sloCompliance is the share of orders consumed within the SLO; percentiles in ms.
+     */
+    public record LaneStats(
+        long orders,
+        double sloCompliance,
+        long p50Ms,
+        long p99Ms,
+        long p999Ms
+    ) {}
+}
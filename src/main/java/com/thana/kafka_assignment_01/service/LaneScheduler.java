@@ -0,0 +1,52 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.service.PriorityRouter.Lane;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Weighted consumption between the lanes. While the priority lane misses its SLO the
+ * normal lane is paused for priority-weight ticks out of every priority-weight + 1,
+ * freeing CPU, broker fetches and downstream capacity for priority orders. It always
+ * keeps its share of ticks, so it never starves; once priority is back within its SLO
+ * both lanes run freely.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LaneScheduler {
+
+    private static final String PAUSE_REASON = "priority-lane";
+
+    private final LaneMetrics laneMetrics;
+    private final ListenerPauseControl pauseControl;
+
+    @Value("${kafka.priority.priority-weight}")
+    private int priorityWeight;
+
+    private long tick;
+    private boolean priorityBehind;
+
+    @Scheduled(fixedRateString = "${kafka.priority.tick-ms}")
+    public void tick() {
+        long worstPriorityLatency = laneMetrics.takeWindowMax(Lane.PRIORITY);
+        boolean behind = worstPriorityLatency > laneMetrics.getSloMs();
+        if (behind != priorityBehind) {
+            log.info(behind
+                ? "Priority lane over its SLO ({} ms), throttling the normal lane"
+                : "Priority lane within its SLO ({} ms), normal lane unthrottled", worstPriorityLatency);
+            priorityBehind = behind;
+        }
+
+        tick++;
+        boolean normalTurn = !behind || tick % (priorityWeight + 1) == 0;
+        if (normalTurn) {
+            pauseControl.resume(OrderProcessingService.ORDERS_LISTENER_ID, PAUSE_REASON);
+        } else {
+            pauseControl.pause(OrderProcessingService.ORDERS_LISTENER_ID, PAUSE_REASON);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.thana.kafka_assignment_01.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pauses listener containers, or single partitions, on behalf of several independent
+ * callers (backfill, sink backpressure, forward window). A container or partition only
+ * resumes once every caller that paused it let go. Containers that can no longer make
+ * progress are stopped here too.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ListenerPauseControl {
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+
+    // Listener id -> reasons it is currently paused for
+    private final Map<String, Set<String>> pauseReasons = new HashMap<>();
+
+    // Partition -> reasons it is currently paused for
+    private final Map<TopicPartition, Set<String>> partitionPauseReasons = new HashMap<>();
+
+    // Partition -> consumer container it was paused in, resumed there even if it moved since
+    private final Map<TopicPartition, MessageListenerContainer> pausedIn = new HashMap<>();
+
+    public synchronized void pause(String listenerId, String reason) {
+        Set<String> reasons = pauseReasons.computeIfAbsent(listenerId, id -> new HashSet<>());
+        if (!reasons.add(reason) || reasons.size() > 1) {
+            return;
+        }
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+        if (container != null) {
+            log.debug("Pausing listener {} ({})", listenerId, reason);
+            container.pause();
+        }
+    }
+
+    public synchronized void resume(String listenerId, String reason) {
+        Set<String> reasons = pauseReasons.get(listenerId);
+        if (reasons == null || !reasons.remove(reason) || !reasons.isEmpty()) {
+            return;
+        }
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+        if (container != null) {
+            log.debug("Resuming listener {} ({})", listenerId, reason);
+            container.resume();
+        }
+    }
+
+    public synchronized boolean isPausedFor(String listenerId, String reason) {
+        Set<String> reasons = pauseReasons.get(listenerId);
+        return reasons != null && reasons.contains(reason);
+    }
+
+    /**
+     * Pause one partition in whichever consumer container has it assigned. The container
+     * applies it on its next poll; records already fetched for the partition are still
+     * delivered. The pause is lifted in that same container, so a partition revoked
+     * while paused does not stay paused there if it is assigned back later.
+     */
+    public synchronized void pausePartition(TopicPartition partition, String reason) {
+        Set<String> reasons = partitionPauseReasons.computeIfAbsent(partition, tp -> new HashSet<>());
+        if (!reasons.add(reason) || reasons.size() > 1) {
+            return;
+        }
+        MessageListenerContainer container = containerFor(partition);
+        if (container != null) {
+            log.debug("Pausing partition {} ({})", partition, reason);
+            container.pausePartition(partition);
+            pausedIn.put(partition, container);
+        }
+    }
+
+    public synchronized void resumePartition(TopicPartition partition, String reason) {
+        Set<String> reasons = partitionPauseReasons.get(partition);
+        if (reasons == null || !reasons.remove(reason) || !reasons.isEmpty()) {
+            return;
+        }
+        partitionPauseReasons.remove(partition);
+        MessageListenerContainer container = pausedIn.remove(partition);
+        if (container != null) {
+            log.debug("Resuming partition {} ({})", partition, reason);
+            container.resumePartition(partition);
+        }
+    }
+
+    public synchronized boolean isPartitionPausedFor(TopicPartition partition, String reason) {
+        Set<String> reasons = partitionPauseReasons.get(partition);
+        return reasons != null && reasons.contains(reason);
+    }
+
+    /**
+     * Stop every running listener container that has one of the partitions assigned, without
+     * waiting for it. What it has not committed is redelivered from the last commit to
+     * whichever consumer is assigned the partitions next.
+     */
+    public void stop(Collection<TopicPartition> partitions, String reason) {
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            Collection<TopicPartition> assigned = container.getAssignedPartitions();
+            if (container.isRunning() && assigned != null && assigned.stream().anyMatch(partitions::contains)) {
+                log.error("Stopping listener {} ({})", container.getListenerId(), reason);
+                container.stop(() -> log.warn("Listener {} stopped ({})", container.getListenerId(), reason));
+            }
+        }
+    }
+
+    /**
+     * The single-consumer container that has the partition assigned. A concurrent container
+     * only forwards partition pauses and resumes to the child that currently owns the
+     * partition, so the child is the one to remember.
+     */
+    private MessageListenerContainer containerFor(TopicPartition partition) {
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            List<? extends MessageListenerContainer> consumers =
+                container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent
+                    ? concurrent.getContainers() : List.of(container);
+            for (MessageListenerContainer consumer : consumers) {
+                Collection<TopicPartition> assigned = consumer.getAssignedPartitions();
+                if (assigned != null && assigned.contains(partition)) {
+                    return consumer;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.config.DeadlineProperties;
+import com.thana.kafka_assignment_01.model.OrderDeadline;
+import com.thana.kafka_assignment_01.service.PriorityRouter.Lane;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stamps published orders with their deadline and counts the orders that expired, by
+ * where they were caught and by product.
+ */
+@Component
+public class OrderDeadlines {
+
+    /**
+     * CONSUME: past its deadline when read from an orders topic; RETRY_CONSUME: past it, or
+     * past it before the retry delay ends, when read from the retry topic; RETRY_FORWARD:
+     * failed and would be past it before a retry could run.
+     */
+    public enum ExpiredAt { CONSUME, RETRY_CONSUME, RETRY_FORWARD }
+
+    private final DeadlineProperties properties;
+    private final PriorityRouter priorityRouter;
+    private final LongAdder stamped = new LongAdder();
+    private final Map<ExpiredAt, LongAdder> expired = new EnumMap<>(ExpiredAt.class);
+    private final Map<String, LongAdder> expiredByProduct = new ConcurrentHashMap<>();
+
+    public OrderDeadlines(DeadlineProperties properties, PriorityRouter priorityRouter) {
+        this.properties = properties;
+        this.priorityRouter = priorityRouter;
+        for (ExpiredAt where : ExpiredAt.values()) {
+            expired.put(where, new LongAdder());
+        }
+    }
+
+    public Duration ttlFor(String product, float price) {
+        Duration ttl = properties.products().get(product);
+        if (ttl != null) {
+            return ttl;
+        }
+        return priorityRouter.laneFor(product, price) == Lane.PRIORITY
+            ? properties.priorityTtl()
+            : properties.defaultTtl();
+    }
+
+    /**
+     * Adds the deadline header to an order about to be published, unless its TTL is zero.
+     *
+     * @param acceptedAt when the order was accepted; the TTL counts from there
+     */
+    public void stamp(Headers headers, String product, float price, long acceptedAt) {
+        Duration ttl = ttlFor(product, price);
+        if (!ttl.isZero()) {
+            OrderDeadline.write(headers, acceptedAt + ttl.toMillis());
+            stamped.increment();
+        }
+    }
+
+    public void recordExpired(ExpiredAt where, String product) {
+        expired.get(where).increment();
+        expiredByProduct.computeIfAbsent(product, name -> new LongAdder()).increment();
+    }
+
+    public DeadlineStats getStats() {
+        Map<ExpiredAt, Long> byStage = new EnumMap<>(ExpiredAt.class);
+        long total = 0;
+        for (Map.Entry<ExpiredAt, LongAdder> entry : expired.entrySet()) {
+            long count = entry.getValue().sum();
+            byStage.put(entry.getKey(), count);
+            total += count;
+        }
+        Map<String, Long> byProduct = new TreeMap<>();
+        expiredByProduct.forEach((product, count) -> byProduct.put(product, count.sum()));
+        return new DeadlineStats(stamped.sum(), total, byStage, byProduct, properties);
+    }
+
+    /**
+     * stamped: orders this instance published with a deadline.
+     */
+    public record DeadlineStats(
+        long stamped,
+        long expired,
+        Map<ExpiredAt, Long> expiredByStage,
+        Map<String, Long> expiredByProduct,
+        DeadlineProperties ttls
+    ) {}
+}
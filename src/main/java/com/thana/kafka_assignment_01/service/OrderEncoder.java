@@ -0,0 +1,31 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.model.Order;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the Avro Order for a validated order, in the configured wire format.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderEncoder {
+
+    private final ProductDictionary productDictionary;
+
+    @Value("${kafka.wire-format.compact-products}")
+    private boolean compactProducts;
+
+    public Order encode(String orderId, String product, float price) {
+        Order.Builder builder = Order.newBuilder()
+            .setOrderId(orderId)
+            .setPrice(price);
+
+        // Compact (v2) encoding sends a dictionary id instead of the product name
+        Integer productId = compactProducts ? productDictionary.idFor(product) : null;
+        return productId != null
+            ? builder.setProductId(productId).build()
+            : builder.setProduct(product).build();
+    }
+}
@@ -1,24 +1,67 @@
 package com.thana.kafka_assignment_01.service;
 
+import com.thana.kafka_assignment_01.catalog.CatalogEntry;
+import com.thana.kafka_assignment_01.catalog.ProductCatalog;
+import com.thana.kafka_assignment_01.jfr.OrderAnalyticsEvent;
+import com.thana.kafka_assignment_01.jfr.OrderConsumeEvent;
+import com.thana.kafka_assignment_01.jfr.OrderForwardEvent;
+import com.thana.kafka_assignment_01.jfr.OrderValidateEvent;
+import com.thana.kafka_assignment_01.logging.EventCategory;
+import com.thana.kafka_assignment_01.logging.HotPathLogger;
+import com.thana.kafka_assignment_01.model.FailureMetadata;
 import com.thana.kafka_assignment_01.model.Order;
+import com.thana.kafka_assignment_01.model.OrderDeadline;
+import com.thana.kafka_assignment_01.query.OrderColumnStore;
+import com.thana.kafka_assignment_01.service.OrderDeadlines.ExpiredAt;
+import com.thana.kafka_assignment_01.service.PriorityRouter.Lane;
+import com.thana.kafka_assignment_01.sink.ProcessedOrder;
+import com.thana.kafka_assignment_01.sink.ProcessedOrderSink;
+import com.thana.kafka_assignment_01.validation.OrderValidationException;
+import com.thana.kafka_assignment_01.validation.OrderValidator;
+import com.thana.kafka_assignment_01.validation.ValidationResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.event.Level;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderProcessingService {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    public static final String ORDERS_LISTENER_ID = "orders-listener";
+    public static final String RETRY_LISTENER_ID = "orders-retry-listener";
+    public static final String PRIORITY_LISTENER_ID = "orders-priority-listener";
+    public static final String EXPIRED_REASON = "expired";
+
+    // DLQ reason codes: a bounded set the DLQ indexes by; the reason text is payload only
+    public static final String EXPIRED_CODE = "EXPIRED";
+    public static final String MAX_RETRIES_CODE = "MAX_RETRIES_EXCEEDED";
+    public static final String RETRY_PUBLISH_FAILED_CODE = "RETRY_PUBLISH_FAILED";
+
     private final PriceAnalyticsService aggregationService;
+    private final FailureClassifier failureClassifier;
+    private final HotPathLogger hotPathLogger;
+    private final OrderValidator orderValidator;
+    private final ProductDictionary productDictionary;
+    private final StartupMetrics startupMetrics;
+    private final ProductCatalog productCatalog;
+    private final ProcessedOrderSink processedOrderSink;
+    private final LaneMetrics laneMetrics;
+    private final FailureForwarder failureForwarder;
+    private final OrderColumnStore orderColumnStore;
+    private final OrderDeadlines orderDeadlines;
 
     @Value("${kafka.topics.orders-dlq}")
     private String dlqTopic;
@@ -32,122 +75,313 @@ public class OrderProcessingService {
     @Value("${kafka.consumer.retry-delay-ms}")
     private long retryDelayMs;
 
+    @Value("${kafka.catalog.require-entry}")
+    private boolean requireCatalogEntry;
+
     /**
      * Main Kafka consumer for processing new orders.
      */
-    @KafkaListener(topics = "${kafka.topics.orders}", groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(
+        id = ORDERS_LISTENER_ID,
+        topics = "${kafka.topics.orders}",
+        groupId = "${spring.kafka.consumer.group-id}"
+    )
     public void consumeOrder(
         @Payload Order order,
-        @Header(KafkaHeaders.RECEIVED_KEY) String key,
         @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
         @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
         @Header(KafkaHeaders.OFFSET) long offset,
+        @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long timestamp,
+        @Header(name = OrderDeadline.HEADER, required = false) byte[] deadline,
+        Acknowledgment ack
+    ) {
+        laneMetrics.record(Lane.NORMAL, timestamp);
+        handleOrder(order, topic, partition, offset, OrderDeadline.parse(deadline), ack);
+    }
+
+    /**
+     * Priority lane: high-value orders on their own topic and listener threads.
+     */
+    @KafkaListener(
+        id = PRIORITY_LISTENER_ID,
+        topics = "${kafka.topics.orders-priority}",
+        groupId = "${spring.kafka.consumer.group-id}",
+        concurrency = "${kafka.priority.listener-concurrency}"
+    )
+    public void consumePriorityOrder(
+        @Payload Order order,
+        @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+        @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+        @Header(KafkaHeaders.OFFSET) long offset,
+        @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long timestamp,
+        @Header(name = OrderDeadline.HEADER, required = false) byte[] deadline,
         Acknowledgment ack
     ) {
+        laneMetrics.record(Lane.PRIORITY, timestamp);
+        handleOrder(order, topic, partition, offset, OrderDeadline.parse(deadline), ack);
+    }
+
+    private void handleOrder(Order order, String topic, int partition, long offset, long deadline,
+                             Acknowledgment ack) {
+        OrderConsumeEvent event = new OrderConsumeEvent();
+        event.begin();
+        event.topic = topic;
+        startupMetrics.recordConsumed();
         try {
-            log.info("Received order: {} | Product: {} | Price: {} | Partition: {} | Offset: {}",
-                order.getOrderId(), order.getProduct(), order.getPrice(), partition, offset);
+            if (OrderDeadline.isExpired(deadline, System.currentTimeMillis())) {
+                expire(order, FailureMetadata.original(topic, partition, offset), ExpiredAt.CONSUME,
+                    new TopicPartition(topic, partition), offset, deadline, ack);
+                return;
+            }
+            productDictionary.resolve(order);
 
-            processOrder(order);
-            aggregationService.addPrice(order.getPrice());
+            String orderId = order.getOrderId().toString();
+            hotPathLogger.info(log, EventCategory.RECEIVED, orderId, partition, offset,
+                "Received order: {} | Product: {} | Price: {} | Partition: {} | Offset: {}",
+                orderId, order.getProduct(), order.getPrice(), partition, offset);
 
-            ack.acknowledge();
-            log.info("Order processed successfully: {}", order.getOrderId());
+            processOrder(order, partition, offset);
+            CatalogEntry catalog = enrich(order);
+
+            // Acknowledged and counted by the sink once the row is durable
+            processedOrderSink.submit(toProcessedOrder(order, catalog, topic, partition, offset),
+                durableAck(order, catalog, topic, partition, offset, ack));
+            hotPathLogger.info(log, EventCategory.PROCESSED, orderId, partition, offset,
+                "Order processed successfully: {} | Category: {} | List price: {} {}",
+                orderId, catalog.category(), catalog.listPrice(), catalog.currency());
 
         } catch (Exception e) {
             log.error("Error processing order: {} — switching to retry handler", order.getOrderId(), e);
-            handleFailure(order, 0, ack);
+            handleFailure(order, FailureMetadata.firstFailure(topic, partition, offset, e), e,
+                new TopicPartition(topic, partition), offset, deadline, ack);
+        } finally {
+            event.complete(order.getOrderId(), partition, offset);
         }
     }
 
     /**
-     * Kafka consumer for retry topic.
+     * Kafka consumer for retry topic. Failure metadata travels in the record headers.
+     * An order that is past its deadline, or would be by the end of its retry delay, goes
+     * to the DLQ without waiting.
      */
-    @KafkaListener(topics = "${kafka.topics.orders-retry}", groupId = "${spring.kafka.consumer.group-id}")
-    public void consumeRetryOrder(
-        @Payload Order order,
-        @Header(value = "retry-count", defaultValue = "0") int retryCount,
-        Acknowledgment ack
-    ) {
+    @KafkaListener(
+        id = RETRY_LISTENER_ID,
+        topics = "${kafka.topics.orders-retry}",
+        groupId = "${spring.kafka.consumer.group-id}"
+    )
+    public void consumeRetryOrder(ConsumerRecord<String, Order> record, Acknowledgment ack) {
+        Order order = record.value();
+        FailureMetadata metadata = FailureMetadata.fromHeaders(
+            record.headers(), record.topic(), record.partition(), record.offset());
+        long deadline = OrderDeadline.read(record.headers());
+        OrderConsumeEvent event = new OrderConsumeEvent();
+        event.begin();
+        event.topic = record.topic();
+        event.retryCount = metadata.retryCount();
+
         try {
-            log.info("Retry attempt {} for order {}", retryCount, order.getOrderId());
+            // Only wait for whatever part of the delay has not already passed in the topic
+            long now = System.currentTimeMillis();
+            long remainingDelay = retryDelayMs - (now - record.timestamp());
+            if (OrderDeadline.isExpired(deadline, now + Math.max(0, remainingDelay))) {
+                expire(order, metadata, ExpiredAt.RETRY_CONSUME,
+                    new TopicPartition(record.topic(), record.partition()), record.offset(), deadline, ack);
+                return;
+            }
+            productDictionary.resolve(order);
 
-            Thread.sleep(retryDelayMs);
+            log.info("Retry attempt {} for order {} (first failed at {} on {}-{}@{})",
+                metadata.retryCount(), order.getOrderId(), metadata.firstFailureTime(),
+                metadata.originalTopic(), metadata.originalPartition(), metadata.originalOffset());
+            if (remainingDelay > 0) {
+                event.retryDelay = remainingDelay;
+                Thread.sleep(remainingDelay);
+            }
 
-            processOrder(order);
-            aggregationService.addPrice(order.getPrice());
+            processOrder(order, record.partition(), record.offset());
+            CatalogEntry catalog = enrich(order);
 
-            ack.acknowledge();
-            log.info("Order recovered after {} retries: {}", retryCount, order.getOrderId());
+            processedOrderSink.submit(
+                toProcessedOrder(order, catalog, record.topic(), record.partition(), record.offset()),
+                durableAck(order, catalog, record.topic(), record.partition(), record.offset(), ack));
+            log.info("Order recovered after {} retries: {}", metadata.retryCount(), order.getOrderId());
 
         } catch (Exception e) {
-            log.error("Retry {} failed for order {}", retryCount, order.getOrderId(), e);
-            handleFailure(order, retryCount, ack);
+            log.error("Retry {} failed for order {}", metadata.retryCount(), order.getOrderId(), e);
+            handleFailure(order, metadata, e, new TopicPartition(record.topic(), record.partition()),
+                record.offset(), deadline, ack);
+        } finally {
+            event.complete(order.getOrderId(), record.partition(), record.offset());
         }
     }
 
     /**
-     * Business logic: simple validation.
+     * Business logic: one pass of the shared validation rules.
      */
-    private void processOrder(Order order) throws Exception {
+    private void processOrder(Order order, int partition, long offset) throws Exception {
 
         log.debug("Validating order {} | Product: {} | Price: {}",
             order.getOrderId(), order.getProduct(), order.getPrice());
 
-        if (order.getOrderId() == null || order.getOrderId().toString().isEmpty()) {
-            throw new IllegalArgumentException("Order ID cannot be empty");
+        OrderValidateEvent event = new OrderValidateEvent();
+        event.begin();
+        ValidationResult validation = orderValidator.validate(order.getOrderId(), order.getProduct(), order.getPrice());
+        event.valid = validation.valid();
+        event.complete(order.getOrderId(), partition, offset);
+        if (!validation.valid()) {
+            throw new OrderValidationException(validation);
         }
-        if (order.getProduct() == null || order.getProduct().toString().isEmpty()) {
-            throw new IllegalArgumentException("Product name cannot be empty");
-        }
-        if (order.getPrice() <= 0) {
-            throw new IllegalArgumentException("Price must be greater than zero");
+
+        hotPathLogger.info(log, EventCategory.VALIDATED, order.getOrderId().toString(), -1, -1,
+            "Order validated: {}", order.getOrderId());
+    }
+
+    /**
+     * Ack for the sink to release once the order's row is durable. The order is only counted
+     * in the analytics after its ack went through: a record whose ack never happens is
+     * redelivered, and counting it before would count it twice.
+     */
+    private Acknowledgment durableAck(Order order, CatalogEntry catalog, String topic, int partition, long offset,
+                                      Acknowledgment ack) {
+        return () -> {
+            ack.acknowledge();
+            recordAnalytics(order, catalog, topic, partition, offset);
+        };
+    }
+
+    /**
+     * Analytics stage: per-partition price statistics (by product and by catalog category)
+     * and the ad-hoc query store.
+     */
+    private void recordAnalytics(Order order, CatalogEntry catalog, String topic, int partition, long offset) {
+        OrderAnalyticsEvent event = new OrderAnalyticsEvent();
+        event.begin();
+        String product = order.getProduct().toString();
+        aggregationService.addPrice(topic, partition, product, catalog.category(), order.getPrice());
+        orderColumnStore.append(product, order.getPrice(), System.currentTimeMillis());
+        event.complete(order.getOrderId(), partition, offset);
+    }
+
+    /**
+     * Enrichment stage: catalog data for the order's product, served from the cache.
+     * A catalog outage surfaces as a transient failure and goes through the retry path.
+     */
+    private CatalogEntry enrich(Order order) {
+        String product = order.getProduct().toString();
+        Optional<CatalogEntry> entry = productCatalog.lookup(product);
+        if (entry.isEmpty() && requireCatalogEntry) {
+            throw new OrderValidationException(
+                ValidationResult.failure("PRODUCT_NOT_IN_CATALOG", "Product is not in the catalog: " + product));
         }
+        return entry.orElseGet(() -> CatalogEntry.uncatalogued(product));
+    }
 
-        log.info("Order validated: {}", order.getOrderId());
+    private static ProcessedOrder toProcessedOrder(Order order, CatalogEntry catalog, String topic, int partition,
+                                                   long offset) {
+        return new ProcessedOrder(order.getOrderId().toString(), order.getProduct().toString(), order.getPrice(),
+            catalog.category(), catalog.listPrice(), catalog.currency(), topic, partition, offset,
+            System.currentTimeMillis());
     }
 
     /**
-     * Retry handling.
+     * Retry handling. Permanent failures, and orders that would expire before a retry runs,
+     * skip the retry topic entirely. The source record is acknowledged, and the forward
+     * event completed, by the forwarder once the retry or DLQ record is on the broker.
      */
-    private void handleFailure(Order order, int retryCount, Acknowledgment ack) {
-        retryCount++;
-        final int count = retryCount;
+    private void handleFailure(Order order, FailureMetadata metadata, Exception failure, TopicPartition source,
+                               long offset, long deadline, Acknowledgment ack) {
+        OrderForwardEvent event = new OrderForwardEvent();
+        event.begin();
+        FailureMetadata next = metadata.nextAttempt(failure);
+        event.retryCount = next.retryCount();
+        event.failure = failure.getClass().getName();
+
+        if (failure instanceof OrderValidationException invalid) {
+            log.error("Order {} failed validation ({}) — sending to DLQ without retry",
+                order.getOrderId(), invalid.getCode());
+            sendToDLQ(order, next, invalid.getCode(), "Validation failed: " + invalid.getCode(), source,
+                offset, deadline, ack, event);
+
+        } else if (failureClassifier.isPermanent(failure)) {
+            log.error("Permanent failure for order {} ({}) — sending to DLQ without retry",
+                order.getOrderId(), failure.getClass().getSimpleName());
+            sendToDLQ(order, next, failure.getClass().getSimpleName(), "Permanent failure: " + failure.getMessage(),
+                source, offset, deadline, ack, event);
+
+        } else if (OrderDeadline.isExpired(deadline, System.currentTimeMillis() + retryDelayMs)) {
+            orderDeadlines.recordExpired(ExpiredAt.RETRY_FORWARD, productName(order));
+            log.warn("Order {} would expire before its retry — sending to DLQ", order.getOrderId());
+            sendToDLQ(order, next, EXPIRED_CODE, EXPIRED_REASON, source, offset, deadline, ack, event);
 
-        if (retryCount < maxRetryAttempts) {
-            log.warn("Retrying order {} (attempt {})", order.getOrderId(), retryCount);
+        } else if (next.retryCount() < maxRetryAttempts) {
+            log.warn("Retrying order {} (attempt {})", order.getOrderId(), next.retryCount());
 
-            kafkaTemplate.send(retryTopic, order.getOrderId().toString(), order)
-                .whenComplete((result, ex) -> {
-                    if (ex != null) {
-                        log.error("Failed to publish to retry topic {}", order.getOrderId(), ex);
-                        sendToDLQ(order, count, "Failed to publish to retry topic");
-                    }
-                });
+            ProducerRecord<String, Object> retryRecord =
+                new ProducerRecord<>(retryTopic, order.getOrderId().toString(), order);
+            next.writeTo(retryRecord.headers());
+            OrderDeadline.write(retryRecord.headers(), deadline);
+
+            failureForwarder.forward(source, offset, retryRecord,
+                dlqRecord(order, next, RETRY_PUBLISH_FAILED_CODE, "Failed to publish to retry topic", deadline), ack,
+                event);
 
         } else {
             log.error("Maximum retries exceeded for order {} — sending to DLQ", order.getOrderId());
-            sendToDLQ(order, retryCount, "Max retry attempts exceeded");
+            sendToDLQ(order, next, MAX_RETRIES_CODE, "Max retry attempts exceeded", source, offset, deadline, ack,
+                event);
         }
+    }
 
-        ack.acknowledge();
+    /**
+     * An order past its deadline goes straight to the DLQ without being processed.
+     */
+    private void expire(Order order, FailureMetadata metadata, ExpiredAt where, TopicPartition source, long offset,
+                        long deadline, Acknowledgment ack) {
+        OrderForwardEvent event = new OrderForwardEvent();
+        event.begin();
+        event.retryCount = metadata.retryCount();
+        event.failure = EXPIRED_REASON;
+
+        orderDeadlines.recordExpired(where, productName(order));
+        hotPathLogger.log(log, Level.WARN, EventCategory.DLQ, order.getOrderId().toString(), source.partition(),
+            offset, "Order expired: {} | Deadline: {} | {} ms late | Caught at: {}",
+            order.getOrderId(), deadline, System.currentTimeMillis() - deadline, where);
+        failureForwarder.forward(source, offset, dlqRecord(order, metadata, EXPIRED_CODE, EXPIRED_REASON, deadline),
+            null, ack, event);
     }
 
     /**
-     * Send message to DLQ with reason.
+     * Product name without resolving the order, which expired orders skip; the DLQ resolves
+     * them when it indexes the record.
      */
-    private void sendToDLQ(Order order, int retryCount, String reason) {
+    private String productName(Order order) {
+        if (order.getProduct() != null) {
+            return order.getProduct().toString();
+        }
+        String name = productDictionary.nameFor(order.getProductId());
+        return name == null ? "product#" + order.getProductId() : name;
+    }
+
+    /**
+     * Send message to DLQ with reason and the accumulated failure metadata.
+     */
+    private void sendToDLQ(Order order, FailureMetadata metadata, String code, String reason, TopicPartition source,
+                           long offset, long deadline, Acknowledgment ack, OrderForwardEvent event) {
 
         log.error("Sending order {} to DLQ | Reason: {} | Retries: {}",
-            order.getOrderId(), reason, retryCount);
-
-        kafkaTemplate.send(dlqTopic, order.getOrderId().toString(), order)
-            .whenComplete((result, ex) -> {
-                if (ex == null) {
-                    log.info("Order sent to DLQ successfully: {}", order.getOrderId());
-                } else {
-                    log.error("Failed to send order to DLQ: {}", order.getOrderId(), ex);
-                }
-            });
+            order.getOrderId(), reason, metadata.retryCount());
+
+        failureForwarder.forward(source, offset, dlqRecord(order, metadata, code, reason, deadline), null, ack, event);
+    }
+
+    private ProducerRecord<String, Object> dlqRecord(Order order, FailureMetadata metadata, String code,
+                                                     String reason, long deadline) {
+        ProducerRecord<String, Object> dlqRecord =
+            new ProducerRecord<>(dlqTopic, order.getOrderId().toString(), order);
+        metadata.writeTo(dlqRecord.headers());
+        OrderDeadline.write(dlqRecord.headers(), deadline);
+        FailureMetadata.write(dlqRecord.headers(), FailureMetadata.FAILURE_CODE, code);
+        FailureMetadata.write(dlqRecord.headers(), FailureMetadata.FAILURE_REASON, String.valueOf(reason));
+        return dlqRecord;
     }
 }
@@ -1,9 +1,16 @@
 package com.thana.kafka_assignment_01.service;
 
+import com.thana.kafka_assignment_01.jfr.OrderPublishEvent;
+import com.thana.kafka_assignment_01.logging.EventCategory;
+import com.thana.kafka_assignment_01.logging.HotPathLogger;
 import com.thana.kafka_assignment_01.model.Order;
+import com.thana.kafka_assignment_01.outbox.OrderOutbox;
+import com.thana.kafka_assignment_01.validation.OrderValidator;
+import com.thana.kafka_assignment_01.validation.ValidationResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
@@ -16,47 +23,54 @@ import java.util.concurrent.CompletableFuture;
 public class OrderPublisherService {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
-
-    @Value("${kafka.topics.orders}")
-    private String ordersTopic;
+    private final HotPathLogger hotPathLogger;
+    private final OrderValidator orderValidator;
+    private final OrderEncoder orderEncoder;
+    private final OrderOutbox orderOutbox;
+    private final PriorityRouter priorityRouter;
+    private final OrderDeadlines orderDeadlines;
 
     /**
-     * Publish a new order to the main orders topic.
+     * Validate and publish a new order to the main orders topic. This is the only
+     * validation pass on the producing side; callers act on the returned result.
+     * In outbox mode the order is journaled instead and published in the background;
+     * an exception then means it was not accepted.
      */
-    public void sendOrder(String orderId, String product, float price) {
+    public ValidationResult sendOrder(String orderId, String product, float price) {
 
-        // Basic input validation before publishing
-        if (orderId == null || orderId.isBlank()) {
-            log.warn("Skipping publish: orderId is empty");
-            return;
-        }
-        if (product == null || product.isBlank()) {
-            log.warn("Skipping publish: product name is empty for order {}", orderId);
-            return;
+        ValidationResult validation = orderValidator.validate(orderId, product, price);
+        if (!validation.valid()) {
+            log.warn("Skipping publish: {} for order {}", validation.message(), orderId);
+            return validation;
         }
-        if (price <= 0) {
-            log.warn("Skipping publish: price must be > 0 for order {}", orderId);
-            return;
+
+        if (orderOutbox.isEnabled()) {
+            // Durable once this returns; the outbox drainer publishes it
+            orderOutbox.append(orderId, product, price);
+            return validation;
         }
 
+        OrderPublishEvent event = new OrderPublishEvent();
+        event.begin();
         try {
-            Order order = Order.newBuilder()
-                .setOrderId(orderId)
-                .setProduct(product)
-                .setPrice(price)
-                .build();
+            Order order = orderEncoder.encode(orderId, product, price);
+            String topic = priorityRouter.topicFor(product, price);
+            event.topic = topic;
+
+            ProducerRecord<String, Object> record = new ProducerRecord<>(topic, orderId, order);
+            orderDeadlines.stamp(record.headers(), product, price, System.currentTimeMillis());
 
-            CompletableFuture<SendResult<String, Object>> future =
-                kafkaTemplate.send(ordersTopic, orderId, order);
+            CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(record);
 
             future.whenComplete((result, ex) -> {
                 if (ex == null) {
-                    log.info("Order published: {} | Topic: {} | Partition: {} | Offset: {}",
-                        orderId,
-                        result.getRecordMetadata().topic(),
-                        result.getRecordMetadata().partition(),
-                        result.getRecordMetadata().offset());
+                    RecordMetadata metadata = result.getRecordMetadata();
+                    event.complete(orderId, metadata.partition(), metadata.offset());
+                    hotPathLogger.info(log, EventCategory.PUBLISHED, orderId, metadata.partition(), metadata.offset(),
+                        "Order published: {} | Topic: {} | Partition: {} | Offset: {}",
+                        orderId, metadata.topic(), metadata.partition(), metadata.offset());
                 } else {
+                    event.complete(orderId, -1, -1);
                     log.error("Failed to publish order {}", orderId, ex);
                 }
             });
@@ -65,5 +79,6 @@ public class OrderPublisherService {
             // Extra safety in case Avro building or send() throws synchronously
             log.error("Unexpected error while building or sending order {}", orderId, ex);
         }
+        return validation;
     }
 }
@@ -0,0 +1,149 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.catalog.ProductCatalog;
+import com.thana.kafka_assignment_01.sink.ProcessedOrderSink;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rebalance hooks shared by the order listeners.
+ *
+ * On revoke, in-flight work for the consumer is flushed first: the processed-order sink
+ * writes what it holds and pending retry/DLQ forwards complete, so their acks reach the
+ * container before it commits the revoked partitions. Analytics shards are then handed
+ * over. On assign the shards are acquired, and the catalog cache is warmed in the
+ * background with the busiest products of the assigned shards, up to the cache capacity,
+ * so the consumer thread goes back to polling right away.
+ *
+ * The time between a consumer losing partitions and getting its new assignment is
+ * recorded as the rebalance pause. With the cooperative-sticky assignor only the
+ * partitions that move are revoked, and a rebalance without revocations pauses nothing.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private final PriceAnalyticsService aggregationService;
+    private final ProcessedOrderSink processedOrderSink;
+    private final ProductCatalog productCatalog;
+    private final FailureForwarder failureForwarder;
+
+    @Value("${kafka.consumer.revoke-flush-timeout-ms}")
+    private long revokeFlushTimeoutMs;
+
+    // Consumer -> time its partitions were revoked, until its next assignment
+    private final Map<Consumer<?, ?>, Long> revokedAt = new ConcurrentHashMap<>();
+
+    private final ExecutorService warmUp = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder rebalances = new LongAdder();
+    private final LongAdder revocations = new LongAdder();
+    private final LongAdder partitionsRevoked = new LongAdder();
+    private final LongAdder totalPauseMs = new LongAdder();
+    private final AtomicLong maxPauseMs = new AtomicLong();
+    private volatile long lastPauseMs;
+    private volatile long lastWarmUpMs;
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        revokedAt.putIfAbsent(consumer, System.currentTimeMillis());
+        revocations.increment();
+        partitionsRevoked.add(partitions.size());
+
+        log.info("Revoking {}: flushing in-flight work before commit", partitions);
+        try {
+            processedOrderSink.awaitDurable(partitions, revokeFlushTimeoutMs);
+            failureForwarder.awaitForwards(partitions, revokeFlushTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            // Uncommitted records are redelivered to the new owner and upserted again
+            log.warn("Revoking {} with unflushed work: {}", partitions, e.getMessage());
+        }
+        aggregationService.onPartitionsRevoked(partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        revokedAt.putIfAbsent(consumer, System.currentTimeMillis());
+        aggregationService.onPartitionsRevoked(partitions);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        rebalances.increment();
+        if (!partitions.isEmpty()) {
+            log.info("Acquiring analytics shards for {}", partitions);
+            aggregationService.onPartitionsAssigned(partitions);
+
+            List<TopicPartition> assigned = List.copyOf(partitions);
+            warmUp.execute(() -> warmUp(assigned));
+        }
+
+        Long revoked = revokedAt.remove(consumer);
+        if (revoked != null) {
+            long pause = System.currentTimeMillis() - revoked;
+            lastPauseMs = pause;
+            totalPauseMs.add(pause);
+            maxPauseMs.accumulateAndGet(pause, Math::max);
+            log.info("Rebalance paused consumption for {} ms", pause);
+        }
+    }
+
+    private void warmUp(List<TopicPartition> partitions) {
+        long started = System.currentTimeMillis();
+        int warmed = productCatalog.prefetch(
+            aggregationService.getBusiestProducts(partitions, productCatalog.getMaxEntries()));
+        lastWarmUpMs = System.currentTimeMillis() - started;
+        log.debug("Warm-up for {}: {} catalog load(s) started", partitions, warmed);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        warmUp.shutdownNow();
+    }
+
+    public RebalanceStats getStats() {
+        return new RebalanceStats(
+            rebalances.sum(),
+            revocations.sum(),
+            partitionsRevoked.sum(),
+            lastPauseMs,
+            maxPauseMs.get(),
+            totalPauseMs.sum(),
+            lastWarmUpMs
+        );
+    }
+
+    /**
+     * Pause figures are per consumer, from revocation to the next assignment, in ms.
+     */
+    public record RebalanceStats(
+        long rebalances,
+        long revocations,
+        long partitionsRevoked,
+        long lastPauseMs,
+        long maxPauseMs,
+        long totalPauseMs,
+        long lastWarmUpMs
+    ) {}
+}
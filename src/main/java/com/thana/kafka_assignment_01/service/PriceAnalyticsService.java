@@ -1,83 +1,248 @@
 package com.thana.kafka_assignment_01.service;
 
-import lombok.Getter;
+import com.thana.kafka_assignment_01.logging.EventCategory;
+import com.thana.kafka_assignment_01.logging.HotPathLogger;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Price analytics sharded by source partition. Each shard is written only by the
+ * consumer thread that owns its partition and handed over through the rebalance
+ * listener; totals and per-product stats are merged across shards when read.
+ *
+ * Per-product count, mean, variance and min/max are kept with Welford's online algorithm
+ * in each shard's {@link ProductStatsTable}; a price more than the configured number of
+ * standard deviations from its product's mean is flagged as an outlier. The same moments
+ * are kept per catalog category.
+ */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class PriceAnalyticsService {
 
-    // Running average of all processed order prices
-    @Getter
-    private final AtomicReference<Double> runningAverage = new AtomicReference<>(0.0);
+    private final HotPathLogger hotPathLogger;
 
-    // Total number of processed orders
-    @Getter
-    private final AtomicInteger totalOrders = new AtomicInteger(0);
+    @Value("${kafka.analytics.max-products-per-shard}")
+    private int maxProductsPerShard;
 
-    // Total sum of prices for computing averages
-    private final AtomicReference<Double> totalSum = new AtomicReference<>(0.0);
+    @Value("${kafka.analytics.outliers.min-samples}")
+    private int outlierMinSamples;
 
-    // Min/max tracking
-    @Getter
-    private volatile double minPrice = Double.MAX_VALUE;
+    @Value("${kafka.analytics.outliers.z-threshold}")
+    private double outlierZThreshold;
 
-    @Getter
-    private volatile double maxPrice = Double.MIN_VALUE;
+    // One shard per source "topic-partition"; also the partials published cluster-wide
+    private final Map<String, AnalyticsShard> shards = new ConcurrentHashMap<>();
 
     /**
-     * Add a new price entry and update stats.
+     * Add a new price entry to the shard of the partition it was consumed from.
      */
-    public synchronized void addPrice(float price) {
+    public void addPrice(String topic, int partition, String product, String category, float price) {
 
-        int currentCount = totalOrders.get();
-        double currentSum = totalSum.get();
+        AnalyticsShard shard = shards.computeIfAbsent(topic + "-" + partition, this::newShard);
+        // Null unless the price is an outlier; then the moments it was judged against
+        ProductMoments moments = shard.add(product, category, price);
+        PartitionStats shardTotal = shard.total();
 
-        double newSum = currentSum + price;
-        int newCount = currentCount + 1;
-
-        totalSum.set(newSum);
-        totalOrders.set(newCount);
+        if (moments != null) {
+            hotPathLogger.log(log, Level.WARN, EventCategory.ANALYTICS, null, partition, -1,
+                "Outlier price -> Product: {} | Price: {} | Product Mean: {} | Std Dev: {}",
+                product, price, moments.mean(), Math.sqrt(moments.variance()));
+        }
+        hotPathLogger.info(log, EventCategory.ANALYTICS, null, partition, -1,
+            "Price Update -> Product: {} | Price: {} | Partition Avg: {} | Count: {} | Min: {} | Max: {}",
+            product, price, shardTotal.sum() / shardTotal.count(), shardTotal.count(),
+            shardTotal.min(), shardTotal.max()
+        );
+    }
 
-        double newAverage = newSum / newCount;
-        runningAverage.set(newAverage);
+    /**
+     * Called on the consumer thread that was just assigned these partitions.
+     */
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        String owner = Thread.currentThread().getName();
+        for (TopicPartition partition : partitions) {
+            shards.computeIfAbsent(partition.toString(), this::newShard).acquire(owner);
+        }
+    }
 
-        // Track min/max
-        if (price < minPrice) minPrice = price;
-        if (price > maxPrice) maxPrice = price;
+    /**
+     * Called on the consumer thread that is giving these partitions up.
+     */
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            AnalyticsShard shard = shards.get(partition.toString());
+            if (shard != null) {
+                shard.release();
+            }
+        }
+    }
 
-        log.info(
-            "Price Update -> Price: {} | Avg: {} | Count: {} | Min: {} | Max: {}",
-            price, newAverage, newCount, minPrice, maxPrice
-        );
+    /**
+     * Replace a shard with aggregates rebuilt elsewhere (backfill). The caller makes sure
+     * the owning consumer is paused, so no live update lands in the old shard meanwhile.
+     */
+    public void replaceShard(String topicPartition, ProductStatsTable byProduct, ProductStatsTable byCategory,
+                             PartitionStats total) {
+        shards.compute(topicPartition, (key, current) -> {
+            AnalyticsShard rebuilt = new AnalyticsShard(key, byProduct, byCategory, total);
+            if (current != null && current.owner() != null) {
+                rebuilt.acquire(current.owner());
+            }
+            return rebuilt;
+        });
     }
 
     /**
      * Get snapshot object containing all computed stats.
      */
     public AggregationStats getStats() {
-        return new AggregationStats(
-            runningAverage.get(),
-            totalOrders.get(),
-            minPrice == Double.MAX_VALUE ? 0.0 : minPrice,
-            maxPrice == Double.MIN_VALUE ? 0.0 : maxPrice,
-            totalSum.get()
-        );
+        PartitionStats merged = PartitionStats.EMPTY;
+        for (AnalyticsShard shard : shards.values()) {
+            merged = merged.merge(shard.total());
+        }
+        return merged.toAggregationStats();
+    }
+
+    /**
+     * Empty per-product table with the configured capacity and outlier rule.
+     */
+    public ProductStatsTable newProductTable() {
+        return new ProductStatsTable(maxProductsPerShard, outlierMinSamples, outlierZThreshold);
+    }
+
+    /**
+     * Per-product stats, merged across every shard that saw the product.
+     */
+    public Map<String, AggregationStats> getProductStats() {
+        ProductStatsTable merged = mergedProducts(shards.values());
+        Map<String, AggregationStats> result = new LinkedHashMap<>();
+        for (String product : merged.products()) {
+            result.put(product, merged.get(product).toAggregationStats());
+        }
+        return result;
+    }
+
+    /**
+     * Per-category stats, merged across shards.
+     */
+    public Map<String, AggregationStats> getCategoryStats() {
+        Map<String, ProductMoments> merged = new TreeMap<>();
+        for (AnalyticsShard shard : shards.values()) {
+            shard.byCategory().forEach((category, moments) -> merged.merge(category, moments, ProductMoments::merge));
+        }
+        Map<String, AggregationStats> result = new LinkedHashMap<>();
+        merged.forEach((category, moments) -> result.put(category, moments.toAggregationStats()));
+        return result;
+    }
+
+    /**
+     * Stats of one product merged across shards, or null when no shard tracks it.
+     */
+    public ProductStats getProductStats(String product) {
+        ProductMoments merged = null;
+        for (AnalyticsShard shard : shards.values()) {
+            ProductMoments moments = shard.byProduct().get(product);
+            if (moments != null) {
+                merged = merged == null ? moments : merged.merge(moments);
+            }
+        }
+        return merged == null ? null : merged.toProductStats(product);
+    }
+
+    /**
+     * The first limit products ordered by the given stat, highest first unless ascending.
+     */
+    public List<ProductStats> getRankedProducts(ProductSort sortBy, boolean ascending, int limit) {
+        return mergedProducts(shards.values()).top(sortBy, ascending, limit);
+    }
+
+    /**
+     * Up to limit products of the given partitions' shards, most orders first.
+     */
+    public List<String> getBusiestProducts(Collection<TopicPartition> partitions, int limit) {
+        List<AnalyticsShard> held = new ArrayList<>();
+        for (TopicPartition partition : partitions) {
+            AnalyticsShard shard = shards.get(partition.toString());
+            if (shard != null) {
+                held.add(shard);
+            }
+        }
+        return mergedProducts(held).top(ProductSort.COUNT, false, limit).stream()
+            .map(ProductStats::product)
+            .toList();
+    }
+
+    /**
+     * Size of the per-product tables, summed over shards.
+     */
+    public ProductTableStats getProductTableStats() {
+        int tracked = 0;
+        long evictions = 0;
+        long outliers = 0;
+        for (AnalyticsShard shard : shards.values()) {
+            tracked += shard.byProduct().size();
+            evictions += shard.byProduct().evictions();
+            outliers += shard.byProduct().outliers();
+        }
+        return new ProductTableStats(shards.size(), tracked, evictions, outliers);
+    }
+
+    /**
+     * Product moments of the given shards merged into one primitive table.
+     */
+    private static ProductStatsTable mergedProducts(Collection<AnalyticsShard> from) {
+        return ProductStatsTable.mergeOf(from.stream().map(AnalyticsShard::byProduct).toList());
+    }
+
+    /**
+     * Snapshot of the partial aggregates this instance holds, keyed by "topic-partition".
+     */
+    public Map<String, PartitionStats> getPartitionStats() {
+        Map<String, PartitionStats> partials = new HashMap<>();
+        for (AnalyticsShard shard : shards.values()) {
+            PartitionStats total = shard.total();
+            if (total.count() > 0) {
+                partials.put(shard.topicPartition(), total);
+            }
+        }
+        return partials;
+    }
+
+    /**
+     * Current owner thread of every shard (null when the partition is not assigned here).
+     */
+    public Map<String, String> getShardOwners() {
+        Map<String, String> owners = new TreeMap<>();
+        shards.values().forEach(shard -> owners.put(shard.topicPartition(), String.valueOf(shard.owner())));
+        return owners;
     }
 
     /**
      * Reset all metrics.
      */
     public void reset() {
-        runningAverage.set(0.0);
-        totalOrders.set(0);
-        totalSum.set(0.0);
-        minPrice = Double.MAX_VALUE;
-        maxPrice = Double.MIN_VALUE;
+        shards.replaceAll((topicPartition, shard) -> {
+            AnalyticsShard fresh = newShard(topicPartition);
+            if (shard.owner() != null) {
+                fresh.acquire(shard.owner());
+            }
+            return fresh;
+        });
 
         log.info("Price analytics statistics have been reset");
     }
@@ -92,4 +257,157 @@ public class PriceAnalyticsService {
         double maxPrice,
         double totalSum
     ) {}
+
+    private AnalyticsShard newShard(String topicPartition) {
+        return new AnalyticsShard(topicPartition, newProductTable(), newProductTable(), PartitionStats.EMPTY);
+    }
+
+    /**
+     * Per-product stats as returned by the API; variance is the sample variance.
+     */
+    public record ProductStats(
+        String product,
+        long count,
+        double mean,
+        double variance,
+        double stdDev,
+        double min,
+        double max,
+        long outliers
+    ) {}
+
+    /**
+     * shards: analytics shards held; trackedProducts counts a product once per shard holding it.
+     */
+    public record ProductTableStats(
+        int shards,
+        int trackedProducts,
+        long evictions,
+        long outliers
+    ) {}
+
+    /**
+     * Orderings for the product listing.
+     */
+    public enum ProductSort {
+        COUNT((count, mean, variance, min, max, outliers) -> count),
+        MEAN((count, mean, variance, min, max, outliers) -> mean),
+        STD_DEV((count, mean, variance, min, max, outliers) -> Math.sqrt(variance)),
+        MIN((count, mean, variance, min, max, outliers) -> min),
+        MAX((count, mean, variance, min, max, outliers) -> max),
+        OUTLIERS((count, mean, variance, min, max, outliers) -> outliers);
+
+        private final SortKey key;
+        private final Comparator<ProductStats> comparator;
+
+        ProductSort(SortKey key) {
+            this.key = key;
+            this.comparator = Comparator.<ProductStats>comparingDouble(this::key)
+                .thenComparing(ProductStats::product, Comparator.reverseOrder());
+        }
+
+        Comparator<ProductStats> comparator() {
+            return comparator;
+        }
+
+        /**
+         * The sort key from raw stats, so a table can rank its slots without building objects.
+         */
+        double key(long count, double mean, double variance, double min, double max, long outliers) {
+            return key.of(count, mean, variance, min, max, outliers);
+        }
+
+        double key(ProductStats stats) {
+            return key.of(stats.count(), stats.mean(), stats.variance(), stats.min(), stats.max(), stats.outliers());
+        }
+    }
+
+    @FunctionalInterface
+    private interface SortKey {
+        double of(long count, double mean, double variance, double min, double max, long outliers);
+    }
+
+    /**
+     * Welford state of one product: count, mean and sum of squared deviations (m2).
+     * Partials merge exactly (Chan et al.), so a product seen by several shards
+     * combines into the same stats as if one shard had seen every price.
+     */
+    public record ProductMoments(
+        long count,
+        double mean,
+        double m2,
+        double min,
+        double max,
+        long outliers
+    ) {
+        public ProductMoments merge(ProductMoments other) {
+            if (other.count == 0) {
+                return this;
+            }
+            if (count == 0) {
+                return other;
+            }
+            long n = count + other.count;
+            double delta = other.mean - mean;
+            return new ProductMoments(
+                n,
+                mean + delta * other.count / n,
+                m2 + other.m2 + delta * delta * count * other.count / n,
+                Math.min(min, other.min),
+                Math.max(max, other.max),
+                outliers + other.outliers
+            );
+        }
+
+        public double variance() {
+            return count < 2 ? 0.0 : m2 / (count - 1);
+        }
+
+        public ProductStats toProductStats(String product) {
+            double variance = variance();
+            return new ProductStats(product, count, mean, variance, Math.sqrt(variance), min, max, outliers);
+        }
+
+        public AggregationStats toAggregationStats() {
+            return new AggregationStats(mean, (int) count, min, max, mean * count);
+        }
+    }
+
+    /**
+     * Mergeable partial aggregate: count and sum add, min and max combine, so
+     * partials for the same partition held by different instances across a
+     * rebalance merge into the correct total.
+     */
+    public record PartitionStats(
+        long count,
+        double sum,
+        double min,
+        double max
+    ) {
+        public static final PartitionStats EMPTY =
+            new PartitionStats(0, 0.0, Double.MAX_VALUE, -Double.MAX_VALUE);
+
+        public static PartitionStats of(double price) {
+            return new PartitionStats(1, price, price, price);
+        }
+
+        public PartitionStats merge(PartitionStats other) {
+            return new PartitionStats(
+                count + other.count,
+                sum + other.sum,
+                Math.min(min, other.min),
+                Math.max(max, other.max)
+            );
+        }
+
+        public AggregationStats toAggregationStats() {
+            return new AggregationStats(
+                count == 0 ? 0.0 : sum / count,
+                (int) count,
+                count == 0 ? 0.0 : min,
+                count == 0 ? 0.0 : max,
+                sum
+            );
+        }
+    }
 }
@@ -0,0 +1,49 @@
+package com.thana.kafka_assignment_01.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Routes high-value orders to the priority lane: a separate topic with its own
+ * listener, so they are not queued behind floods of small orders or retries.
+ * An order is high priority when its price reaches the threshold or its product
+ * is in the priority set; with neither rule configured every order is normal.
+ */
+@Component
+public class PriorityRouter {
+
+    public enum Lane { PRIORITY, NORMAL }
+
+    private final float priceThreshold;
+    private final Set<String> priorityProducts;
+    private final String ordersTopic;
+    private final String priorityTopic;
+
+    public PriorityRouter(
+        @Value("${kafka.priority.price-threshold}") float priceThreshold,
+        @Value("${kafka.priority.products}") List<String> priorityProducts,
+        @Value("${kafka.topics.orders}") String ordersTopic,
+        @Value("${kafka.topics.orders-priority}") String priorityTopic
+    ) {
+        this.priceThreshold = priceThreshold;
+        this.priorityProducts = priorityProducts.stream()
+            .map(String::trim)
+            .filter(product -> !product.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+        this.ordersTopic = ordersTopic;
+        this.priorityTopic = priorityTopic;
+    }
+
+    public Lane laneFor(String product, float price) {
+        boolean byPrice = priceThreshold > 0 && price >= priceThreshold;
+        return byPrice || priorityProducts.contains(product) ? Lane.PRIORITY : Lane.NORMAL;
+    }
+
+    public String topicFor(String product, float price) {
+        return laneFor(product, price) == Lane.PRIORITY ? priorityTopic : ordersTopic;
+    }
+}
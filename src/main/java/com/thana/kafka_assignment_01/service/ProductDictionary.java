@@ -0,0 +1,215 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.model.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product name dictionary for the compact (v2) Order encoding.
+ *
+ * A product's id is the offset of the first record that registered it on the single-partition,
+ * compacted dictionary topic, so ids are unique without any coordination. Records are keyed
+ * by product and ids are only learned by reading the topic in order, so every instance picks
+ * the lowest offset. Compaction keeps the latest record of a key, so an instance that finds
+ * its own registration lost a race restates the winning id in a header; that restatement is
+ * what survives. The topic is read by assignment, without a consumer group, and products
+ * are only registered once this instance has caught up with it.
+ */
+@Slf4j
+@Service
+public class ProductDictionary implements ConsumerSeekAware {
+
+    static final String ID_HEADER = "dictionary-id";
+    static final String REGISTRANT_HEADER = "dictionary-registrant";
+
+    private final KafkaTemplate<String, String> stringKafkaTemplate;
+    private final KafkaAdmin kafkaAdmin;
+    private final String registrantId = UUID.randomUUID().toString();
+
+    @Value("${kafka.topics.product-dictionary}")
+    private String dictionaryTopic;
+
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final Set<String> pendingRegistrations = ConcurrentHashMap.newKeySet();
+    // End offset of the topic when it was assigned; -1 once this instance has read up to it
+    private volatile long catchUpOffset = Long.MAX_VALUE;
+
+    public ProductDictionary(KafkaTemplate<String, String> stringKafkaTemplate, KafkaAdmin kafkaAdmin) {
+        this.stringKafkaTemplate = stringKafkaTemplate;
+        this.kafkaAdmin = kafkaAdmin;
+    }
+
+    /**
+     * Id for a product, or null while it is not registered yet. An unknown product is
+     * registered in the background once the dictionary has caught up; until then callers
+     * send the name as a string.
+     */
+    public Integer idFor(String product) {
+        if (!isCaughtUp()) {
+            return null;
+        }
+        Integer id = idsByName.get(product);
+        if (id == null) {
+            register(product);
+        }
+        return id;
+    }
+
+    public boolean isCaughtUp() {
+        return catchUpOffset < 0;
+    }
+
+    /**
+     * Fill in the product name of a dictionary-encoded order (no-op for v1/string orders).
+     */
+    public Order resolve(Order order) {
+        if (order.getProduct() != null || order.getProductId() < 0) {
+            return order;
+        }
+        String name = namesById.get(order.getProductId());
+        if (name == null) {
+            // Dictionary not caught up yet: transient, the retry path will try again
+            throw new UnknownProductIdException(order.getProductId());
+        }
+        order.setProduct(name);
+        return order;
+    }
+
+    /**
+     * Product name for a dictionary id, or null when this instance has not seen it.
+     */
+    public String nameFor(int productId) {
+        return namesById.get(productId);
+    }
+
+    public Map<Integer, String> entries() {
+        return Map.copyOf(namesById);
+    }
+
+    @KafkaListener(
+        topicPartitions = @org.springframework.kafka.annotation.TopicPartition(
+            topic = "${kafka.topics.product-dictionary}", partitions = "0"),
+        containerFactory = "stringListenerContainerFactory"
+    )
+    public void consumeEntry(ConsumerRecord<String, String> record) {
+        String product = record.value();
+        if (product != null) {
+            Header restated = record.headers().lastHeader(ID_HEADER);
+            long id = restated != null ? Long.parseLong(headerValue(restated)) : record.offset();
+            Integer known = idsByName.get(product);
+            learn(id, product);
+            if (restated == null && known != null && known < id && isOwnRegistration(record)) {
+                restate(product, known);
+            }
+        }
+        if (catchUpOffset >= 0 && record.offset() + 1 >= catchUpOffset) {
+            catchUpOffset = -1;
+            log.info("Product dictionary caught up with {} products", idsByName.size());
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToBeginning(assignments.keySet());
+        catchUpOffset = endOffset(new TopicPartition(dictionaryTopic, 0));
+        if (catchUpOffset == 0) {
+            catchUpOffset = -1;
+        }
+    }
+
+    private long endOffset(TopicPartition partition) {
+        try (Admin admin = Admin.create(kafkaAdmin.getConfigurationProperties())) {
+            return admin.listOffsets(Map.of(partition, OffsetSpec.latest()))
+                .partitionResult(partition)
+                .get(10, TimeUnit.SECONDS)
+                .offset();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // Registering early only risks a duplicate, which gets restated
+            log.warn("Could not read the end offset of {}, registering without catching up", partition, e);
+            return 0;
+        }
+    }
+
+    private void register(String product) {
+        if (!pendingRegistrations.add(product)) {
+            return;
+        }
+        ProducerRecord<String, String> record = new ProducerRecord<>(dictionaryTopic, product, product);
+        record.headers().add(REGISTRANT_HEADER, registrantId.getBytes(StandardCharsets.UTF_8));
+        stringKafkaTemplate.send(record)
+            .whenComplete((result, ex) -> {
+                if (ex == null) {
+                    log.info("Registered product '{}' in dictionary at offset {}", product,
+                        result.getRecordMetadata().offset());
+                } else {
+                    log.warn("Failed to register product '{}' in dictionary", product, ex);
+                }
+                pendingRegistrations.remove(product);
+            });
+    }
+
+    /**
+     * Re-send the winning id of a product whose registration by this instance came second,
+     * so compaction keeps a record that still carries it.
+     */
+    private void restate(String product, int id) {
+        ProducerRecord<String, String> record = new ProducerRecord<>(dictionaryTopic, product, product);
+        record.headers().add(ID_HEADER, String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+        stringKafkaTemplate.send(record)
+            .whenComplete((result, ex) -> {
+                if (ex != null) {
+                    log.warn("Failed to restate product '{}' as dictionary id {}", product, id, ex);
+                }
+            });
+    }
+
+    private boolean isOwnRegistration(ConsumerRecord<String, String> record) {
+        Header registrant = record.headers().lastHeader(REGISTRANT_HEADER);
+        return registrant != null && registrantId.equals(headerValue(registrant));
+    }
+
+    private static String headerValue(Header header) {
+        return new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private void learn(long offset, String product) {
+        if (offset > Integer.MAX_VALUE) {
+            log.warn("Dictionary offset {} does not fit an int id, '{}' stays string-encoded", offset, product);
+            return;
+        }
+        int id = (int) offset;
+        namesById.put(id, product);
+        idsByName.merge(product, id, Math::min);
+    }
+
+    /**
+     * Thrown when an order references a dictionary id this instance has not seen yet.
+     */
+    public static class UnknownProductIdException extends IllegalStateException {
+        public UnknownProductIdException(int productId) {
+            super("Unknown product id " + productId);
+        }
+    }
+}
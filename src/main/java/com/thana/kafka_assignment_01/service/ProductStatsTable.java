@@ -0,0 +1,389 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.ProductMoments;
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.ProductSort;
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.ProductStats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * Per-product price statistics in an open-addressing table with primitive columns.
+ *
+ * Products are probed linearly by hash; each slot's count, Welford mean and sum of squared
+ * deviations, min, max and outlier count live in parallel arrays, so an update allocates
+ * nothing and a table of a few hundred thousand products is a handful of arrays instead of
+ * one map entry plus one stats object per product. Removal shifts the following entries
+ * of the probe run back, so there are no tombstones.
+ *
+ * Once maxProducts are tracked, a new product evicts the least recently updated of a
+ * small random sample of products (approximate LRU).
+ *
+ * Listings merge the shards' tables into one more table of the same layout, and rank
+ * its slots by their primitive columns; only the products that make the cut become objects.
+ *
+ * Written by the shard's owner thread; methods are synchronized so REST reads see whole
+ * updates. The lock is uncontended on the write path.
+ */
+public final class ProductStatsTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final double LOAD_FACTOR = 0.6;
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final int maxProducts;
+    private final int minSamples;
+    private final double zThreshold;
+
+    private String[] keys;
+    private int[] hashes;
+    private long[] counts;
+    private double[] means;
+    private double[] m2s;
+    private double[] mins;
+    private double[] maxs;
+    private long[] outliers;
+    // Value of clock at the slot's last update, for eviction
+    private long[] touched;
+
+    private int mask;
+    private int size;
+    private long clock;
+    private long evictions;
+
+    /**
+     * @param minSamples prices a product needs before later ones can be flagged as outliers
+     * @param zThreshold standard deviations from the product mean beyond which a price is an outlier
+     */
+    public ProductStatsTable(int maxProducts, int minSamples, double zThreshold) {
+        this(maxProducts, minSamples, zThreshold, INITIAL_CAPACITY);
+    }
+
+    private ProductStatsTable(int maxProducts, int minSamples, double zThreshold, int capacity) {
+        if (maxProducts <= 0) {
+            throw new IllegalArgumentException("maxProducts must be > 0");
+        }
+        this.maxProducts = maxProducts;
+        this.minSamples = Math.max(minSamples, 2);
+        this.zThreshold = zThreshold;
+        allocate(capacity);
+    }
+
+    /**
+     * Unbounded table for merging the given tables into, sized so that it does not grow.
+     */
+    static ProductStatsTable mergeOf(Iterable<ProductStatsTable> tables) {
+        int expected = 0;
+        for (ProductStatsTable table : tables) {
+            expected += table.size();
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit((int) (expected / LOAD_FACTOR)) << 1);
+        ProductStatsTable merged = new ProductStatsTable(Integer.MAX_VALUE, 2, 0, capacity);
+        for (ProductStatsTable table : tables) {
+            table.mergeInto(merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Add a price to its product's statistics.
+     *
+     * @return the product's statistics the price was judged against when it is an outlier,
+     *     null otherwise
+     */
+    public synchronized ProductMoments add(String product, double price) {
+        int slot = slotFor(product);
+        long n = counts[slot];
+        double mean = means[slot];
+
+        ProductMoments judged = null;
+        if (n >= minSamples) {
+            double stdDev = Math.sqrt(m2s[slot] / (n - 1));
+            if (stdDev > 0 && Math.abs(price - mean) > zThreshold * stdDev) {
+                judged = momentsAt(slot);
+            }
+        }
+
+        n++;
+        double delta = price - mean;
+        mean += delta / n;
+        counts[slot] = n;
+        means[slot] = mean;
+        m2s[slot] += delta * (price - mean);
+        mins[slot] = Math.min(mins[slot], price);
+        maxs[slot] = Math.max(maxs[slot], price);
+        touched[slot] = ++clock;
+        if (judged != null) {
+            outliers[slot]++;
+        }
+        return judged;
+    }
+
+    /**
+     * Statistics of one product, or null when it is not tracked.
+     */
+    public synchronized ProductMoments get(String product) {
+        int slot = find(product, hash(product));
+        return slot < 0 ? null : momentsAt(slot);
+    }
+
+    public synchronized void forEach(BiConsumer<String, ProductMoments> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                action.accept(keys[slot], momentsAt(slot));
+            }
+        }
+    }
+
+    /**
+     * Tracked products in name order.
+     */
+    public synchronized String[] products() {
+        String[] products = new String[size];
+        int next = 0;
+        for (String key : keys) {
+            if (key != null) {
+                products[next++] = key;
+            }
+        }
+        Arrays.sort(products);
+        return products;
+    }
+
+    /**
+     * The first limit products ordered by the given stat, highest first unless ascending.
+     * A product only becomes a {@link ProductStats} when it can still make the cut.
+     */
+    public synchronized List<ProductStats> top(ProductSort sortBy, boolean ascending, int limit) {
+        Comparator<ProductStats> order = ascending ? sortBy.comparator().reversed() : sortBy.comparator();
+        double sign = ascending ? -1 : 1;
+        // Heap of the best limit so far, worst on top
+        PriorityQueue<ProductStats> best = new PriorityQueue<>(Math.min(limit, size) + 1, order);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == null) {
+                continue;
+            }
+            if (best.size() == limit) {
+                double key = sortBy.key(counts[slot], means[slot], variance(slot), mins[slot], maxs[slot],
+                    outliers[slot]);
+                if (sign * key < sign * sortBy.key(best.peek())) {
+                    continue;
+                }
+            }
+            best.add(momentsAt(slot).toProductStats(keys[slot]));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<ProductStats> ranked = new ArrayList<>(best);
+        ranked.sort(order.reversed());
+        return ranked;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long outliers() {
+        long total = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            total += outliers[slot];
+        }
+        return total;
+    }
+
+    private ProductMoments momentsAt(int slot) {
+        return new ProductMoments(counts[slot], means[slot], m2s[slot], mins[slot], maxs[slot], outliers[slot]);
+    }
+
+    private double variance(int slot) {
+        return counts[slot] < 2 ? 0.0 : m2s[slot] / (counts[slot] - 1);
+    }
+
+    /**
+     * Merge every product of this table into target (Chan et al., as {@link ProductMoments#merge}).
+     */
+    private synchronized void mergeInto(ProductStatsTable target) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                target.merge(keys[slot], counts[slot], means[slot], m2s[slot], mins[slot], maxs[slot],
+                    outliers[slot]);
+            }
+        }
+    }
+
+    private synchronized void merge(String product, long count, double mean, double m2, double min, double max,
+                                    long outlierCount) {
+        if (count == 0) {
+            return;
+        }
+        int slot = slotFor(product);
+        long n = counts[slot] + count;
+        double delta = mean - means[slot];
+        m2s[slot] += m2 + delta * delta * counts[slot] * count / n;
+        means[slot] += delta * count / n;
+        counts[slot] = n;
+        mins[slot] = Math.min(mins[slot], min);
+        maxs[slot] = Math.max(maxs[slot], max);
+        outliers[slot] += outlierCount;
+    }
+
+    /**
+     * Slot of the product, inserting it (and making room) when it is not tracked yet.
+     */
+    private int slotFor(String product) {
+        int hash = hash(product);
+        int slot = find(product, hash);
+        if (slot >= 0) {
+            return slot;
+        }
+
+        if (size >= maxProducts) {
+            evictColdest();
+        } else if (size + 1 > keys.length * LOAD_FACTOR) {
+            allocate(keys.length * 2);
+        }
+
+        slot = hash & mask;
+        while (keys[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = product;
+        hashes[slot] = hash;
+        mins[slot] = Double.MAX_VALUE;
+        maxs[slot] = -Double.MAX_VALUE;
+        size++;
+        return slot;
+    }
+
+    private int find(String product, int hash) {
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && keys[slot].equals(product)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Evict the least recently updated of up to EVICTION_SAMPLE products, scanning from a
+     * random slot. At capacity the table is at least LOAD_FACTOR / 2 full, so the scan is short.
+     */
+    private void evictColdest() {
+        int slot = ThreadLocalRandom.current().nextInt(keys.length);
+        int coldest = -1;
+        for (int seen = 0; seen < EVICTION_SAMPLE; slot = (slot + 1) & mask) {
+            if (keys[slot] != null) {
+                if (coldest < 0 || touched[slot] < touched[coldest]) {
+                    coldest = slot;
+                }
+                seen++;
+            }
+        }
+        removeAt(coldest);
+        evictions++;
+    }
+
+    /**
+     * Backward-shift deletion: entries after the hole that may live in it move back, so
+     * every remaining entry is still reachable from its home slot without tombstones.
+     */
+    private void removeAt(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int home = hashes[next] & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                move(next, hole);
+                hole = next;
+            }
+        }
+        clear(hole);
+        size--;
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        hashes[to] = hashes[from];
+        counts[to] = counts[from];
+        means[to] = means[from];
+        m2s[to] = m2s[from];
+        mins[to] = mins[from];
+        maxs[to] = maxs[from];
+        outliers[to] = outliers[from];
+        touched[to] = touched[from];
+    }
+
+    private void clear(int slot) {
+        keys[slot] = null;
+        hashes[slot] = 0;
+        counts[slot] = 0;
+        means[slot] = 0;
+        m2s[slot] = 0;
+        outliers[slot] = 0;
+        touched[slot] = 0;
+    }
+
+    private void allocate(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        long[] oldCounts = counts;
+        double[] oldMeans = means;
+        double[] oldM2s = m2s;
+        double[] oldMins = mins;
+        double[] oldMaxs = maxs;
+        long[] oldOutliers = outliers;
+        long[] oldTouched = touched;
+
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        counts = new long[capacity];
+        means = new double[capacity];
+        m2s = new double[capacity];
+        mins = new double[capacity];
+        maxs = new double[capacity];
+        outliers = new long[capacity];
+        touched = new long[capacity];
+        mask = capacity - 1;
+
+        if (oldKeys == null) {
+            return;
+        }
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldKeys[old] == null) {
+                continue;
+            }
+            int slot = oldHashes[old] & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[old];
+            hashes[slot] = oldHashes[old];
+            counts[slot] = oldCounts[old];
+            means[slot] = oldMeans[old];
+            m2s[slot] = oldM2s[old];
+            mins[slot] = oldMins[old];
+            maxs[slot] = oldMaxs[old];
+            outliers[slot] = oldOutliers[old];
+            touched[slot] = oldTouched[old];
+        }
+    }
+
+    /**
+     * Spread the hash code so similar product names do not land in one probe run.
+     */
+    private static int hash(String product) {
+        int h = product.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,34 @@
+package com.thana.kafka_assignment_01.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long after JVM start the first order was consumed, the number the
+ * startup benchmark compares between the default and the fast-start build.
+ */
+@Slf4j
+@Component
+public class StartupMetrics {
+
+    private final AtomicLong timeToFirstRecordMs = new AtomicLong(-1);
+
+    public void recordConsumed() {
+        if (timeToFirstRecordMs.get() < 0) {
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            if (timeToFirstRecordMs.compareAndSet(-1, uptime)) {
+                log.info("Time to first consumed record: {} ms", uptime);
+            }
+        }
+    }
+
+    /**
+     * Milliseconds from JVM start to the first consumed record, or -1 if none yet.
+     */
+    public long getTimeToFirstRecordMs() {
+        return timeToFirstRecordMs.get();
+    }
+}
@@ -0,0 +1,173 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.AggregationStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes live stats to dashboards over Server-Sent Events.
+ *
+ * A snapshot is computed and serialized once per tick and the same bytes go to every
+ * subscriber. Between keyframes only the fields that changed are sent ("delta" events).
+ * A subscriber whose previous send has not finished skips the tick and gets a full
+ * snapshot once it catches up; after too many skipped ticks it is disconnected.
+ */
+@Slf4j
+@Service
+public class StatsStreamService {
+
+    private final ClusterStatsService clusterStatsService;
+    private final DeadLetterQueueService deadLetterQueueService;
+    private final ObjectMapper objectMapper;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    // Sends block on slow sockets, so each one runs on its own virtual thread
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${kafka.stats-stream.keyframe-every-ticks}")
+    private int keyframeEveryTicks;
+
+    @Value("${kafka.stats-stream.max-skipped-ticks}")
+    private int maxSkippedTicks;
+
+    private Map<String, Object> previous = Map.of();
+    private long tick;
+
+    public StatsStreamService(
+        ClusterStatsService clusterStatsService,
+        DeadLetterQueueService deadLetterQueueService,
+        ObjectMapper objectMapper
+    ) {
+        this.clusterStatsService = clusterStatsService;
+        this.deadLetterQueueService = deadLetterQueueService;
+        this.objectMapper = objectMapper;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.add(subscriber);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Scheduled(fixedRateString = "${kafka.stats-stream.tick-ms}")
+    public void tick() {
+        if (subscribers.isEmpty()) {
+            previous = Map.of();
+            return;
+        }
+
+        Map<String, Object> current = snapshot();
+        Map<String, Object> changes = new LinkedHashMap<>();
+        current.forEach((field, value) -> {
+            if (!Objects.equals(previous.get(field), value)) {
+                changes.put(field, value);
+            }
+        });
+        previous = current;
+
+        boolean keyframe = tick++ % keyframeEveryTicks == 0;
+        String snapshotJson = toJson(current);
+        String deltaJson = changes.isEmpty() ? null : toJson(changes);
+
+        for (Subscriber subscriber : subscribers) {
+            boolean full = keyframe || subscriber.needsSnapshot;
+            if (!full && deltaJson == null) {
+                continue;
+            }
+            if (!subscriber.sending.compareAndSet(false, true)) {
+                subscriber.needsSnapshot = true;
+                if (++subscriber.skippedTicks > maxSkippedTicks) {
+                    log.warn("Dropping stats stream subscriber after {} skipped ticks", subscriber.skippedTicks);
+                    subscribers.remove(subscriber);
+                    subscriber.emitter.complete();
+                }
+                continue;
+            }
+            subscriber.skippedTicks = 0;
+            if (full) {
+                // Cleared before sending, so a tick skipped while this send runs asks for another one
+                subscriber.needsSnapshot = false;
+            }
+            long eventId = tick;
+            sendExecutor.execute(() -> send(subscriber, eventId, full ? "snapshot" : "delta",
+                full ? snapshotJson : deltaJson));
+        }
+    }
+
+    private void send(Subscriber subscriber, long eventId, String name, String json) {
+        try {
+            subscriber.emitter.send(SseEmitter.event().id(String.valueOf(eventId)).name(name).data(json));
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    private Map<String, Object> snapshot() {
+        ClusterStatsService.ClusterStats cluster = clusterStatsService.getClusterStats();
+        AggregationStats stats = cluster.stats();
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("totalOrders", stats.totalOrders());
+        snapshot.put("runningAverage", stats.runningAverage());
+        snapshot.put("minPrice", stats.minPrice());
+        snapshot.put("maxPrice", stats.maxPrice());
+        snapshot.put("totalSum", stats.totalSum());
+        snapshot.put("instances", cluster.instances());
+        snapshot.put("failedOrders", deadLetterQueueService.getFailedOrderCount());
+        return snapshot;
+    }
+
+    private String toJson(Map<String, Object> fields) {
+        try {
+            return objectMapper.writeValueAsString(fields);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stats snapshot is not serializable", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        sendExecutor.shutdownNow();
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean needsSnapshot = true;
+        private int skippedTicks;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.thana.kafka_assignment_01.sink;
+
+/**
+ * Row of the processed_orders table. Keyed by orderId, so a redelivered or
+ * retried order overwrites its earlier row instead of duplicating it.
+ */
+public record ProcessedOrder(
+    String orderId,
+    String product,
+    float price,
+    String category,
+    double listPrice,
+    String currency,
+    String sourceTopic,
+    int sourcePartition,
+    long sourceOffset,
+    long processedAt
+) {}
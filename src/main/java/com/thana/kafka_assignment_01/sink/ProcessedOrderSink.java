@@ -0,0 +1,317 @@
+package com.thana.kafka_assignment_01.sink;
+
+import com.thana.kafka_assignment_01.service.ListenerPauseControl;
+import com.thana.kafka_assignment_01.service.OrderProcessingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind sink of processed orders into the processed_orders table.
+ *
+ * Listener threads only enqueue; one writer thread drains the queue into multi-row
+ * MERGE statements (upsert by orderId) and commits each batch in one transaction, so
+ * many records share one commit. A record's Kafka ack is only released after its batch
+ * is committed: offsets never move past rows that are not durable yet. A failed batch
+ * is retried until it succeeds, and when the queue fills past the high watermark the
+ * listeners are paused until the writer catches up. Any other failure of a batch (an ack
+ * that throws, a row that cannot be bound) leaves the rest of the batch unacked. Acks are
+ * async, so the container would hold back every later offset of those partitions and stop
+ * fetching them; their listeners are stopped instead, so the records are redelivered from
+ * the last commit after a rebalance or restart, and the writer moves on.
+ */
+@Slf4j
+@Service
+public class ProcessedOrderSink {
+
+    private static final String PAUSE_REASON = "processed-order-sink";
+    private static final int COLUMNS = 10;
+    private static final String MERGE_PREFIX = "MERGE INTO processed_orders (order_id, product, price, category, "
+        + "list_price, currency, source_topic, source_partition, source_offset, processed_at) KEY (order_id) VALUES ";
+
+    private final DataSource dataSource;
+    private final ListenerPauseControl pauseControl;
+    private final List<String> listenerIds =
+        List.of(OrderProcessingService.ORDERS_LISTENER_ID, OrderProcessingService.PRIORITY_LISTENER_ID,
+            OrderProcessingService.RETRY_LISTENER_ID);
+    private final int batchSize;
+    private final long lingerMs;
+    private final long retryBackoffMs;
+    private final int highWatermark;
+    private final int lowWatermark;
+
+    private final BlockingQueue<PendingWrite> queue;
+    private final String fullBatchSql;
+    private volatile boolean running = true;
+    private volatile boolean inFlight;
+    private Thread writer;
+
+    // Highest offset acknowledged per source partition, i.e. known durable
+    private final Map<TopicPartition, Long> durableOffsets = new ConcurrentHashMap<>();
+
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder batchesWritten = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder abandonedBatches = new LongAdder();
+    private final LongAdder pauses = new LongAdder();
+    private volatile long lastBatchMs;
+
+    public ProcessedOrderSink(
+        DataSource dataSource,
+        ListenerPauseControl pauseControl,
+        @Value("${kafka.sink.queue-capacity}") int queueCapacity,
+        @Value("${kafka.sink.batch-size}") int batchSize,
+        @Value("${kafka.sink.linger-ms}") long lingerMs,
+        @Value("${kafka.sink.retry-backoff-ms}") long retryBackoffMs,
+        @Value("${kafka.sink.pause-at}") double pauseAt,
+        @Value("${kafka.sink.resume-at}") double resumeAt
+    ) {
+        this.dataSource = dataSource;
+        this.pauseControl = pauseControl;
+        this.batchSize = batchSize;
+        this.lingerMs = lingerMs;
+        this.retryBackoffMs = retryBackoffMs;
+        this.highWatermark = (int) (queueCapacity * pauseAt);
+        this.lowWatermark = (int) (queueCapacity * resumeAt);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.fullBatchSql = mergeSql(batchSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = Thread.ofPlatform().name("processed-order-writer").start(this::writeLoop);
+    }
+
+    /**
+     * Queue a processed order; ack is acknowledged once its row is committed.
+     * Blocks only if the queue is full, which the pause watermark normally prevents.
+     */
+    public void submit(ProcessedOrder order, Acknowledgment ack) throws InterruptedException {
+        queue.put(new PendingWrite(order, ack));
+        if (queue.size() >= highWatermark && !pauseControl.isPausedFor(listenerIds.get(0), PAUSE_REASON)) {
+            pauses.increment();
+            log.warn("Processed-order sink is {} rows behind, pausing listeners", queue.size());
+            listenerIds.forEach(id -> pauseControl.pause(id, PAUSE_REASON));
+        }
+    }
+
+    /**
+     * Wait until everything queued so far is committed, then return the highest durable
+     * offset of each given partition (absent when nothing was written for it).
+     */
+    public Map<TopicPartition, Long> awaitDurable(Collection<TopicPartition> partitions, long timeoutMs)
+        throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!queue.isEmpty() || inFlight) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Processed-order sink did not drain within " + timeoutMs + " ms");
+            }
+            Thread.sleep(10);
+        }
+        Map<TopicPartition, Long> offsets = new LinkedHashMap<>();
+        for (TopicPartition partition : partitions) {
+            Long offset = durableOffsets.get(partition);
+            if (offset != null) {
+                offsets.put(partition, offset);
+            }
+        }
+        return offsets;
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            int acked = 0;
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                inFlight = true;
+                batch.add(first);
+                fillBatch(batch);
+                writeDurably(batch);
+                for (PendingWrite write : batch) {
+                    write.ack().acknowledge();
+                    acked++;
+                    ProcessedOrder order = write.order();
+                    durableOffsets.merge(sourceOf(order), order.sourceOffset(), Math::max);
+                }
+            } catch (InterruptedException e) {
+                // Records of an unwritten batch stay unacked and are redelivered
+                running = false;
+            } catch (RuntimeException e) {
+                abandonedBatches.increment();
+                Set<TopicPartition> unacked = new LinkedHashSet<>();
+                batch.subList(acked, batch.size()).forEach(write -> unacked.add(sourceOf(write.order())));
+                log.error("Abandoned a batch of {} processed order(s), {} unacked; stopping the listeners of {}",
+                    batch.size(), batch.size() - acked, unacked, e);
+                pauseControl.stop(unacked, "processed-order batch abandoned");
+            } finally {
+                batch.clear();
+                inFlight = false;
+            }
+            resumeIfCaughtUp();
+        }
+    }
+
+    private static TopicPartition sourceOf(ProcessedOrder order) {
+        return new TopicPartition(order.sourceTopic(), order.sourcePartition());
+    }
+
+    /**
+     * Group commit: keep collecting until the batch is full or the linger time is up.
+     */
+    private void fillBatch(List<PendingWrite> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeDurably(List<PendingWrite> batch) throws InterruptedException {
+        // Last write per orderId wins, the way sequential upserts would
+        Map<String, ProcessedOrder> rows = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            rows.remove(write.order().orderId());
+            rows.put(write.order().orderId(), write.order());
+        }
+
+        while (true) {
+            long started = System.currentTimeMillis();
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement(
+                    rows.size() == batchSize ? fullBatchSql : mergeSql(rows.size()))) {
+                    int index = 1;
+                    for (ProcessedOrder row : rows.values()) {
+                        index = bind(statement, index, row);
+                    }
+                    statement.executeUpdate();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+                rowsWritten.add(rows.size());
+                batchesWritten.increment();
+                lastBatchMs = System.currentTimeMillis() - started;
+                return;
+            } catch (SQLException e) {
+                writeFailures.increment();
+                log.error("Failed to write {} processed order(s), retrying in {} ms", rows.size(), retryBackoffMs, e);
+                Thread.sleep(retryBackoffMs);
+            }
+        }
+    }
+
+    private static int bind(PreparedStatement statement, int index, ProcessedOrder row) throws SQLException {
+        statement.setString(index++, row.orderId());
+        statement.setString(index++, row.product());
+        statement.setFloat(index++, row.price());
+        statement.setString(index++, row.category());
+        statement.setDouble(index++, row.listPrice());
+        if (row.currency() == null) {
+            statement.setNull(index++, Types.VARCHAR);
+        } else {
+            statement.setString(index++, row.currency());
+        }
+        statement.setString(index++, row.sourceTopic());
+        statement.setInt(index++, row.sourcePartition());
+        statement.setLong(index++, row.sourceOffset());
+        statement.setTimestamp(index++, new Timestamp(row.processedAt()));
+        return index;
+    }
+
+    private static String mergeSql(int rows) {
+        String placeholders = "(" + "?, ".repeat(COLUMNS - 1) + "?)";
+        StringBuilder sql = new StringBuilder(MERGE_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append(placeholders);
+        }
+        return sql.toString();
+    }
+
+    private void resumeIfCaughtUp() {
+        if (queue.size() <= lowWatermark && pauseControl.isPausedFor(listenerIds.get(0), PAUSE_REASON)) {
+            log.info("Processed-order sink caught up ({} rows queued), resuming listeners", queue.size());
+            listenerIds.forEach(id -> pauseControl.resume(id, PAUSE_REASON));
+        }
+    }
+
+    public SinkStats getStats() {
+        long batches = batchesWritten.sum();
+        long rows = rowsWritten.sum();
+        return new SinkStats(
+            queue.size(),
+            queue.size() + queue.remainingCapacity(),
+            pauseControl.isPausedFor(listenerIds.get(0), PAUSE_REASON),
+            rows,
+            batches,
+            batches == 0 ? 0.0 : (double) rows / batches,
+            lastBatchMs,
+            writeFailures.sum(),
+            abandonedBatches.sum(),
+            pauses.sum()
+        );
+    }
+
+    /**
+     * Drain the queue before shutting down. Acks that arrive after the listener
+     * containers stopped are lost; those records are redelivered and upserted again.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private record PendingWrite(ProcessedOrder order, Acknowledgment ack) {}
+
+    public record SinkStats(
+        int queued,
+        int capacity,
+        boolean listenersPaused,
+        long rowsWritten,
+        long batchesWritten,
+        double averageBatchSize,
+        long lastBatchMs,
+        long writeFailures,
+        long abandonedBatches,
+        long pauses
+    ) {}
+}
@@ -0,0 +1,18 @@
+package com.thana.kafka_assignment_01.validation;
+
+import lombok.Getter;
+
+/**
+ * Thrown by the consumer when an order breaks a validation rule. It is an
+ * IllegalArgumentException, so the failure classifier treats it as permanent.
+ */
+@Getter
+public class OrderValidationException extends IllegalArgumentException {
+
+    private final String code;
+
+    public OrderValidationException(ValidationResult result) {
+        super(result.message());
+        this.code = result.code();
+    }
+}
@@ -0,0 +1,188 @@
+package com.thana.kafka_assignment_01.validation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thana.kafka_assignment_01.validation.ValidationRules.PriceRange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Single validation engine used by the REST edge, the publisher and the consumer.
+ *
+ * The rule set is compiled into a flat array of predicates that only contains the
+ * rules actually configured; the product allowlist and per-product price ranges
+ * collapse into one map lookup. An order is checked in one pass and the first
+ * broken rule is reported. The rules file is polled and swapped in atomically.
+ */
+@Slf4j
+@Component
+public class OrderValidator {
+
+    private final ObjectMapper objectMapper;
+    private final Path rulesFile;
+
+    private volatile CompiledRules compiledRules;
+    private volatile long rulesFileModified = -1;
+
+    public OrderValidator(
+        ObjectMapper objectMapper,
+        @Value("${kafka.validation.rules-file:}") String rulesFile
+    ) {
+        this.objectMapper = objectMapper;
+        this.rulesFile = rulesFile == null || rulesFile.isBlank() ? null : Path.of(rulesFile);
+        this.compiledRules = compile(ValidationRules.DEFAULTS);
+        // A broken rules file fails startup
+        checkForChange();
+    }
+
+    public ValidationResult validate(CharSequence orderId, CharSequence product, float price) {
+        return compiledRules.validate(orderId, product, price);
+    }
+
+    /**
+     * Recompile when the rules file changed. A broken file keeps the previous rules active;
+     * a deleted file brings back the built-in rules.
+     */
+    @Scheduled(fixedDelayString = "${kafka.validation.reload-interval-ms}")
+    public void reloadIfChanged() {
+        try {
+            checkForChange();
+        } catch (IllegalStateException e) {
+            // Logged by reload(); retried once the file changes again
+        }
+    }
+
+    private void checkForChange() {
+        if (rulesFile == null) {
+            return;
+        }
+        try {
+            long modified = Files.exists(rulesFile) ? Files.getLastModifiedTime(rulesFile).toMillis() : -1;
+            if (modified != rulesFileModified) {
+                rulesFileModified = modified;
+                reload();
+            }
+        } catch (IOException e) {
+            log.error("Could not check validation rules file {}", rulesFile, e);
+        }
+    }
+
+    /**
+     * Load and compile the rules file now.
+     */
+    public synchronized ValidationRules reload() {
+        if (rulesFile == null || !Files.exists(rulesFile)) {
+            compiledRules = compile(ValidationRules.DEFAULTS);
+            if (rulesFile == null) {
+                log.info("No validation rules file configured, using built-in rules");
+            } else {
+                log.warn("Validation rules file {} not found, using built-in rules", rulesFile);
+            }
+            return ValidationRules.DEFAULTS;
+        }
+        try {
+            ValidationRules rules = objectMapper.readValue(rulesFile.toFile(), ValidationRules.class);
+            compiledRules = compile(rules);
+            log.info("Validation rules loaded from {} ({} rules)", rulesFile, compiledRules.size());
+            return rules;
+        } catch (IOException | RuntimeException e) {
+            log.error("Invalid validation rules in {} — keeping previous rules", rulesFile, e);
+            throw new IllegalStateException("Invalid validation rules: " + e.getMessage(), e);
+        }
+    }
+
+    private static CompiledRules compile(ValidationRules rules) {
+        List<Rule> chain = new ArrayList<>();
+
+        chain.add(new Rule("ORDER_ID_REQUIRED", "Order ID is required",
+            (orderId, product, price) -> !isBlank(orderId)));
+        chain.add(new Rule("PRODUCT_REQUIRED", "Product name is required",
+            (orderId, product, price) -> !isBlank(product)));
+
+        if (rules.orderIdMaxLength() != null) {
+            int maxLength = rules.orderIdMaxLength();
+            chain.add(new Rule("ORDER_ID_TOO_LONG", "Order ID must be at most " + maxLength + " characters",
+                (orderId, product, price) -> orderId.length() <= maxLength));
+        }
+        if (rules.orderIdPattern() != null) {
+            Pattern pattern = Pattern.compile(rules.orderIdPattern());
+            chain.add(new Rule("ORDER_ID_FORMAT", "Order ID must match " + rules.orderIdPattern(),
+                (orderId, product, price) -> pattern.matcher(orderId).matches()));
+        }
+        if (rules.productMaxLength() != null) {
+            int maxLength = rules.productMaxLength();
+            chain.add(new Rule("PRODUCT_TOO_LONG", "Product name must be at most " + maxLength + " characters",
+                (orderId, product, price) -> product.length() <= maxLength));
+        }
+
+        // Allowlist and price ranges share one lookup: a product maps to its range,
+        // and with an allowlist, products missing from the map are rejected
+        Map<String, PriceRange> ranges = new HashMap<>();
+        for (String allowed : rules.allowedProducts()) {
+            ranges.put(allowed, rules.defaultPriceRange());
+        }
+        ranges.putAll(rules.productPriceRanges());
+        PriceRange fallback = rules.allowedProducts().isEmpty() ? rules.defaultPriceRange() : null;
+
+        return new CompiledRules(chain.toArray(Rule[]::new), Map.copyOf(ranges), fallback);
+    }
+
+    private static boolean isBlank(CharSequence value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface OrderPredicate {
+        boolean test(CharSequence orderId, CharSequence product, float price);
+    }
+
+    private record Rule(String code, String message, OrderPredicate predicate) {}
+
+    private record CompiledRules(
+        Rule[] fieldRules,
+        Map<String, PriceRange> productRanges,
+        PriceRange fallbackRange
+    ) {
+
+        int size() {
+            return fieldRules.length + 1;
+        }
+
+        ValidationResult validate(CharSequence orderId, CharSequence product, float price) {
+            for (Rule rule : fieldRules) {
+                if (!rule.predicate().test(orderId, product, price)) {
+                    return ValidationResult.failure(rule.code(), rule.message());
+                }
+            }
+
+            PriceRange range = productRanges.isEmpty()
+                ? fallbackRange
+                : productRanges.getOrDefault(product.toString(), fallbackRange);
+            if (range == null) {
+                return ValidationResult.failure("PRODUCT_NOT_ALLOWED", "Product is not allowed: " + product);
+            }
+            if (!range.contains(price)) {
+                return ValidationResult.failure("PRICE_OUT_OF_RANGE", range.describe());
+            }
+            return ValidationResult.OK;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.thana.kafka_assignment_01.validation;
+
+/**
+ * Outcome of running the rule chain once over an order.
+ */
+public record ValidationResult(
+    boolean valid,
+    String code,
+    String message
+) {
+
+    public static final ValidationResult OK = new ValidationResult(true, null, null);
+
+    public static ValidationResult failure(String code, String message) {
+        return new ValidationResult(false, code, message);
+    }
+}
@@ -0,0 +1,48 @@
+package com.thana.kafka_assignment_01.validation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declarative rule set, read from the rules file. Missing fields fall back to
+ * the built-in defaults, which match the original hard-coded checks.
+ */
+public record ValidationRules(
+    List<String> allowedProducts,
+    PriceRange defaultPriceRange,
+    Map<String, PriceRange> productPriceRanges,
+    Integer orderIdMaxLength,
+    String orderIdPattern,
+    Integer productMaxLength
+) {
+
+    public static final ValidationRules DEFAULTS = new ValidationRules(null, null, null, null, null, null);
+
+    public ValidationRules {
+        allowedProducts = allowedProducts == null ? List.of() : List.copyOf(allowedProducts);
+        defaultPriceRange = defaultPriceRange == null ? PriceRange.POSITIVE : defaultPriceRange;
+        productPriceRanges = productPriceRanges == null ? Map.of() : Map.copyOf(productPriceRanges);
+    }
+
+    /**
+     * Valid prices are greater than min and at most max (no upper bound when max is null).
+     */
+    public record PriceRange(
+        float min,
+        Float max
+    ) {
+
+        public static final PriceRange POSITIVE = new PriceRange(0f, null);
+
+        boolean contains(float price) {
+            return price > min && (max == null || price <= max);
+        }
+
+        String describe() {
+            if (max == null) {
+                return min == 0f ? "Price must be greater than zero" : "Price must be greater than " + min;
+            }
+            return "Price must be greater than " + min + " and at most " + max;
+        }
+    }
+}
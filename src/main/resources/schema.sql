@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS processed_orders (
+    order_id         VARCHAR(255)     NOT NULL PRIMARY KEY,
+    product          VARCHAR(255)     NOT NULL,
+    price            REAL             NOT NULL,
+    category         VARCHAR(255),
+    list_price       DOUBLE PRECISION,
+    currency         VARCHAR(16),
+    source_topic     VARCHAR(255)     NOT NULL,
+    source_partition INT              NOT NULL,
+    source_offset    BIGINT           NOT NULL,
+    processed_at     TIMESTAMP        NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS processed_orders_product ON processed_orders (product);
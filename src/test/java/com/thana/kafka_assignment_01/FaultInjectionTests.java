@@ -0,0 +1,558 @@
+package com.thana.kafka_assignment_01;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thana.kafka_assignment_01.config.KafkaConfig;
+import com.thana.kafka_assignment_01.model.Order;
+import com.thana.kafka_assignment_01.service.DeadLetterQueueService;
+import com.thana.kafka_assignment_01.service.DeadLetterQueueService.FailedOrder;
+import com.thana.kafka_assignment_01.sink.ProcessedOrderSink;
+import com.thana.kafka_assignment_01.validation.OrderValidator;
+import com.thana.kafka_assignment_01.validation.ValidationResult;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import kafka.server.KafkaServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.AlterConfigOp;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaZKBroker;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fault-injection suite: runs the full application against an embedded broker and the
+ * schema registry stand-in under a steady order load, injects one fault per scenario
+ * for a fixed window, and reports per scenario:
+ *
+ * - recovery time: from the end of the fault until every order published up to then
+ *   is processed or dead-lettered
+ * - lost orders: acknowledged by the broker but neither processed nor dead-lettered
+ * - duplicated orders: processed or dead-lettered more than once
+ * - throughput dip: lowest one-second throughput after the fault started, against the
+ *   throughput before it
+ *
+ * The report is logged and written to target/fault-injection-report.md. The suite is
+ * slow, so it only runs with the fault-injection profile: mvn -Pfault-injection test
+ */
+@Slf4j
+@Tag("fault-injection")
+class FaultInjectionTests {
+
+    private static final int PARTITIONS = 3;
+    private static final long SEND_INTERVAL_MS = 2;
+    private static final int INVALID_EVERY = 20;
+    private static final String POISON_KEY_PREFIX = "poison-";
+    private static final Duration BASELINE = Duration.ofSeconds(3);
+    private static final Duration FAULT = Duration.ofSeconds(5);
+    private static final Duration LOAD_AFTER_FAULT = Duration.ofSeconds(3);
+    private static final Duration RECOVERY_TIMEOUT = Duration.ofSeconds(90);
+
+    // Share of orders whose validation throws, while a processing fault is injected
+    private static volatile double processingFailureRate;
+
+    private static EmbeddedKafkaZKBroker broker;
+    private static SchemaRegistryStandIn registry;
+    private static final List<ScenarioReport> reports = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    static void startInfrastructure() throws IOException {
+        // A fixed port, so clients find the broker again after it restarts
+        broker = new EmbeddedKafkaZKBroker(1, false, PARTITIONS).kafkaPorts(freePort());
+        broker.afterPropertiesSet();
+        registry = new SchemaRegistryStandIn();
+    }
+
+    @AfterAll
+    static void report() throws IOException {
+        StringBuilder report = new StringBuilder()
+            .append("# Fault injection report, ").append(Instant.now()).append("\n\n")
+            .append("| Scenario | Published | Lost | Duplicated | Dead-lettered | Recovery (ms) | Throughput dip |\n")
+            .append("|---|---|---|---|---|---|---|\n");
+        for (ScenarioReport scenario : reports) {
+            report.append(String.format("| %s | %d | %d | %d | %d | %d | %.0f%% |%n", scenario.name(),
+                scenario.published(), scenario.lost(), scenario.duplicated(), scenario.deadLettered(),
+                scenario.recoveryMs(), scenario.throughputDipPercent()));
+        }
+        log.info("\n{}", report);
+        Path target = Path.of("target");
+        if (Files.isDirectory(target)) {
+            Files.writeString(target.resolve("fault-injection-report.md"), report);
+        }
+
+        registry.close();
+        broker.destroy();
+    }
+
+    @Test
+    void brokerRestart() throws Exception {
+        KafkaServer server = broker.getKafkaServer(0);
+        runScenario("broker restart", true, pipeline -> {
+            server.shutdown();
+            server.awaitShutdown();
+        }, pipeline -> server.startup());
+    }
+
+    /**
+     * Forwards to the retry topic need its subject registered and the retry listener needs
+     * the schema for it, both fail while the registry is down. Reported, loss not asserted.
+     */
+    @Test
+    void schemaRegistryOutageDuringForwards() throws Exception {
+        runScenario("registry outage (serializer failures)", false, pipeline -> {
+            registry.setAvailable(false);
+            processingFailureRate = 0.5;
+        }, pipeline -> {
+            registry.setAvailable(true);
+            processingFailureRate = 0;
+        });
+    }
+
+    @Test
+    void deserializerFailures() throws Exception {
+        runScenario("poison records (deserializer failures)", true,
+            Pipeline::startPoisonRecords, Pipeline::stopPoisonRecords);
+    }
+
+    @Test
+    void processOrderFailures() throws Exception {
+        runScenario("processOrder failures", true,
+            pipeline -> processingFailureRate = 0.5, pipeline -> processingFailureRate = 0);
+    }
+
+    @Test
+    void retryAndDlqTopicsRejectWrites() throws Exception {
+        runScenario("retry/DLQ topics reject writes", true, pipeline -> {
+            pipeline.rejectForwards(true);
+            processingFailureRate = 0.5;
+        }, pipeline -> {
+            pipeline.rejectForwards(false);
+            processingFailureRate = 0;
+        });
+    }
+
+    /**
+     * Run the load, inject the fault for the fault window, clear it and wait until every
+     * published order is accounted for.
+     *
+     * @param expectNoLoss whether to fail unless every published order is processed or dead-lettered
+     */
+    private void runScenario(String name, boolean expectNoLoss, FaultAction inject, FaultAction clear)
+        throws Exception {
+        try (Pipeline pipeline = new Pipeline()) {
+            pipeline.awaitFlowing();
+            long baselineStart = System.currentTimeMillis();
+            Thread.sleep(BASELINE.toMillis());
+
+            long faultStart = System.currentTimeMillis();
+            inject.apply(pipeline);
+            Thread.sleep(FAULT.toMillis());
+            clear.apply(pipeline);
+            long faultEnd = System.currentTimeMillis();
+            int publishedAtFaultEnd = pipeline.published.size();
+
+            int accountedForAtFaultEnd = pipeline.accountedFor();
+
+            Thread.sleep(LOAD_AFTER_FAULT.toMillis());
+            pipeline.stopLoad();
+            boolean drained = pipeline.awaitAccountedFor(RECOVERY_TIMEOUT);
+
+            ScenarioReport report = pipeline.report(name, baselineStart, faultStart, faultEnd, publishedAtFaultEnd);
+            log.info("{}", report);
+            reports.add(report);
+
+            assertTrue(pipeline.accountedFor() > accountedForAtFaultEnd, name + ": processing did not resume");
+            if (expectNoLoss) {
+                assertTrue(drained, name + ": backlog did not drain within " + RECOVERY_TIMEOUT);
+                assertEquals(0, report.lost(), name + ": orders lost");
+            }
+            assertTrue(pipeline.poisonDeadLettered.containsAll(pipeline.poisonSent),
+                name + ": poison records missing from the DLQ");
+            assertTrue(pipeline.poisonIndexed().containsAll(pipeline.poisonSent),
+                name + ": poison records in the DLQ but not indexed as " + KafkaConfig.DESERIALIZATION_FAILED_CODE);
+        } finally {
+            processingFailureRate = 0;
+            registry.setAvailable(true);
+        }
+    }
+
+    /**
+     * One application instance with its own topics, group and database, plus the load
+     * generator and an observer of the DLQ.
+     */
+    private static class Pipeline implements AutoCloseable {
+
+        private final String suffix = UUID.randomUUID().toString();
+        private final String ordersTopic = "orders-" + suffix;
+        private final String retryTopic = "orders-retry-" + suffix;
+        private final String dlqTopic = "orders-dlq-" + suffix;
+
+        private final ConfigurableApplicationContext context;
+        private final JdbcTemplate jdbc;
+        private final ProcessedOrderSink sink;
+        private final DeadLetterQueueService deadLetterQueue;
+        private final Admin admin;
+
+        // Orders acknowledged by the broker, keyed by orderId
+        private final Set<String> published = ConcurrentHashMap.newKeySet();
+        private final Map<String, AtomicInteger> deadLettered = new ConcurrentHashMap<>();
+        // Poison records acknowledged by the broker and seen in the DLQ, kept apart from orders
+        private final Set<String> poisonSent = ConcurrentHashMap.newKeySet();
+        private final Set<String> poisonDeadLettered = ConcurrentHashMap.newKeySet();
+        private final List<Sample> samples = new CopyOnWriteArrayList<>();
+
+        private volatile boolean loading = true;
+        private volatile boolean observing = true;
+        private volatile boolean poisoning;
+        private final List<Thread> threads = new ArrayList<>();
+
+        Pipeline() {
+            broker.addTopics(new NewTopic(ordersTopic, PARTITIONS, (short) 1),
+                new NewTopic(retryTopic, PARTITIONS, (short) 1),
+                new NewTopic(dlqTopic, PARTITIONS, (short) 1));
+
+            context = new SpringApplicationBuilder(AssignmentApplication.class, FaultInjectionConfig.class).run(
+                "--server.port=0",
+                "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                "--spring.kafka.producer.properties.schema.registry.url=" + registry.getUrl(),
+                "--spring.kafka.consumer.group-id=fault-" + suffix,
+                "--spring.datasource.url=jdbc:h2:mem:fault-" + suffix + ";DB_CLOSE_DELAY=-1",
+                "--kafka.topics.orders=" + ordersTopic,
+                "--kafka.topics.orders-retry=" + retryTopic,
+                "--kafka.topics.orders-dlq=" + dlqTopic,
+                "--kafka.topics.orders-priority=orders-priority-" + suffix,
+                "--kafka.topics.orders-stats=orders-stats-" + suffix,
+                "--kafka.topics.product-dictionary=orders-product-dictionary-" + suffix,
+                "--kafka.consumer.retry-delay-ms=200",
+                "--kafka.consumer.forward.retry-backoff-ms=100",
+                "--kafka.consumer.forward.max-retry-backoff-ms=1000"
+            );
+            jdbc = context.getBean(JdbcTemplate.class);
+            sink = context.getBean(ProcessedOrderSink.class);
+            deadLetterQueue = context.getBean(DeadLetterQueueService.class);
+            admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()));
+
+            threads.add(Thread.ofPlatform().name("fault-load").start(this::produceLoad));
+            threads.add(Thread.ofPlatform().name("fault-dlq-observer").start(this::observeDlq));
+            threads.add(Thread.ofPlatform().name("fault-sampler").start(this::sample));
+        }
+
+        private void produceLoad() {
+            Map<String, Object> props = KafkaTestUtils.producerProps(broker.getBrokersAsString());
+            props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+            props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
+            props.put(ProducerConfig.ACKS_CONFIG, "all");
+            props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+            props.put("schema.registry.url", registry.getUrl());
+
+            try (KafkaProducer<String, Object> producer = new KafkaProducer<>(props)) {
+                for (int sequence = 0; loading; sequence++) {
+                    String orderId = suffix + "-" + sequence;
+                    // Every INVALID_EVERY-th order fails validation, so the DLQ path always has traffic
+                    float price = sequence % INVALID_EVERY == 0 ? -1f : 10f + sequence % 90;
+                    Order order = Order.newBuilder().setOrderId(orderId).setProduct("Product-" + sequence % 5)
+                        .setPrice(price).build();
+                    producer.send(new ProducerRecord<>(ordersTopic, orderId, order), (metadata, ex) -> {
+                        if (ex == null) {
+                            published.add(orderId);
+                        }
+                    });
+                    Thread.sleep(SEND_INTERVAL_MS);
+                }
+                producer.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void observeDlq() {
+            Map<String, Object> props = KafkaTestUtils.consumerProps(broker.getBrokersAsString(),
+                "dlq-observer-" + suffix, "false");
+            props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+            props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+            try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<String, String>(props)
+                .createConsumer()) {
+                consumer.subscribe(List.of(dlqTopic));
+                while (observing) {
+                    for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(100))) {
+                        if (record.key().startsWith(POISON_KEY_PREFIX)) {
+                            poisonDeadLettered.add(record.key());
+                        } else {
+                            deadLettered.computeIfAbsent(record.key(), key -> new AtomicInteger()).incrementAndGet();
+                        }
+                    }
+                }
+            }
+        }
+
+        private void sample() {
+            while (observing) {
+                samples.add(new Sample(System.currentTimeMillis(), published.size(), accountedFor()));
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Garbage bytes and records that reference a schema id the registry does not know.
+         */
+        void startPoisonRecords() {
+            poisoning = true;
+            threads.add(Thread.ofPlatform().name("fault-poison").start(() -> {
+                Map<String, Object> props = KafkaTestUtils.producerProps(broker.getBrokersAsString());
+                props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+                props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+                try (KafkaProducer<String, byte[]> producer = new KafkaProducer<>(props)) {
+                    for (int sequence = 0; poisoning; sequence++) {
+                        byte[] value = sequence % 2 == 0
+                            ? "not avro".getBytes()
+                            : ByteBuffer.allocate(9).put((byte) 0).putInt(99_999).putInt(42).array();
+                        String key = POISON_KEY_PREFIX + sequence;
+                        producer.send(new ProducerRecord<>(ordersTopic, key, value), (metadata, e) -> {
+                            if (e == null) {
+                                poisonSent.add(key);
+                            }
+                        });
+                        Thread.sleep(SEND_INTERVAL_MS * 10);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+
+        void stopPoisonRecords() {
+            poisoning = false;
+        }
+
+        /**
+         * Make the broker reject every write to the retry and DLQ topics, or stop doing so.
+         */
+        void rejectForwards(boolean reject) {
+            ConfigEntry tiny = new ConfigEntry(TopicConfig.MAX_MESSAGE_BYTES_CONFIG, "1");
+            AlterConfigOp op = new AlterConfigOp(tiny, reject ? AlterConfigOp.OpType.SET : AlterConfigOp.OpType.DELETE);
+            Map<ConfigResource, Collection<AlterConfigOp>> changes = Map.of(
+                new ConfigResource(ConfigResource.Type.TOPIC, retryTopic), List.of(op),
+                new ConfigResource(ConfigResource.Type.TOPIC, dlqTopic), List.of(op));
+            try {
+                admin.incrementalAlterConfigs(changes).all().get();
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to change the forward topic configs", e);
+            }
+        }
+
+        void awaitFlowing() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + RECOVERY_TIMEOUT.toMillis();
+            while (accountedFor() < 100 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+        }
+
+        void stopLoad() throws InterruptedException {
+            loading = false;
+            poisoning = false;
+            threads.getFirst().join();
+        }
+
+        boolean awaitAccountedFor(Duration timeout) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeout.toMillis();
+            while (System.currentTimeMillis() < deadline) {
+                if (outcomes().containsAll(published) && poisonDeadLettered.containsAll(poisonSent)
+                    && poisonIndexed().containsAll(poisonSent)) {
+                    return true;
+                }
+                Thread.sleep(200);
+            }
+            return false;
+        }
+
+        /**
+         * Keys of the poison records the application's DLQ listener indexed for /failed.
+         */
+        Set<String> poisonIndexed() {
+            return deadLetterQueue.getFailedOrders().stream()
+                .filter(order -> KafkaConfig.DESERIALIZATION_FAILED_CODE.equals(order.reasonCode()))
+                .map(FailedOrder::orderId)
+                .collect(Collectors.toSet());
+        }
+
+        /**
+         * Distinct orders processed (rows in processed_orders) plus distinct orders dead-lettered.
+         */
+        private int accountedFor() {
+            Integer processed = jdbc.queryForObject("SELECT COUNT(*) FROM processed_orders", Integer.class);
+            return (processed == null ? 0 : processed) + deadLettered.size();
+        }
+
+        private Set<String> outcomes() {
+            Set<String> outcomes = new HashSet<>(jdbc.queryForList("SELECT order_id FROM processed_orders",
+                String.class));
+            outcomes.addAll(deadLettered.keySet());
+            return outcomes;
+        }
+
+        ScenarioReport report(String name, long baselineStart, long faultStart, long faultEnd,
+                              int publishedAtFaultEnd) {
+            Set<String> processed = new HashSet<>(jdbc.queryForList("SELECT order_id FROM processed_orders",
+                String.class));
+            Set<String> lost = new HashSet<>(published);
+            lost.removeAll(processed);
+            lost.removeAll(deadLettered.keySet());
+
+            // The sink upserts, so a row written twice shows up as more writes than rows
+            long duplicatedWrites = sink.getStats().rowsWritten() - processed.size();
+            long duplicatedDeadLetters = deadLettered.values().stream().mapToInt(count -> count.get() - 1).sum();
+            long processedAndDeadLettered = deadLettered.keySet().stream().filter(processed::contains).count();
+
+            return new ScenarioReport(name, published.size(), lost.size(),
+                duplicatedWrites + duplicatedDeadLetters + processedAndDeadLettered,
+                deadLettered.size(),
+                recoveryMs(faultEnd, publishedAtFaultEnd),
+                throughputDipPercent(baselineStart, faultStart));
+        }
+
+        private long recoveryMs(long faultEnd, int publishedAtFaultEnd) {
+            for (Sample sample : samples) {
+                if (sample.time() >= faultEnd && sample.accountedFor() >= publishedAtFaultEnd) {
+                    return sample.time() - faultEnd;
+                }
+            }
+            return -1;
+        }
+
+        private double throughputDipPercent(long baselineStart, long faultStart) {
+            List<Sample> all = List.copyOf(samples);
+            double baseline = rate(all, baselineStart, faultStart);
+            double lowest = baseline;
+            long loadEnd = all.getLast().time();
+            for (long from = faultStart; from + 1000 <= loadEnd; from += 100) {
+                lowest = Math.min(lowest, rate(all, from, from + 1000));
+            }
+            return baseline <= 0 ? 0 : 100 * (1 - lowest / baseline);
+        }
+
+        /**
+         * Orders accounted for per second between two instants.
+         */
+        private static double rate(List<Sample> samples, long from, long to) {
+            Sample first = null;
+            Sample last = null;
+            for (Sample sample : samples) {
+                if (sample.time() >= from && first == null) {
+                    first = sample;
+                }
+                if (sample.time() <= to) {
+                    last = sample;
+                }
+            }
+            if (first == null || last == null || last.time() <= first.time()) {
+                return 0;
+            }
+            return (last.accountedFor() - first.accountedFor()) * 1000.0 / (last.time() - first.time());
+        }
+
+        @Override
+        public void close() throws Exception {
+            loading = false;
+            poisoning = false;
+            observing = false;
+            // The loops exit on their flags; an interrupt would break the clients' close
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            admin.close();
+            context.close();
+        }
+    }
+
+    /**
+     * Validation that throws for a share of orders while a processing fault is injected.
+     */
+    @TestConfiguration
+    static class FaultInjectionConfig {
+
+        @Bean
+        @Primary
+        OrderValidator faultInjectingValidator(ObjectMapper objectMapper) {
+            return new OrderValidator(objectMapper, "") {
+                @Override
+                public ValidationResult validate(CharSequence orderId, CharSequence product, float price) {
+                    if (ThreadLocalRandom.current().nextDouble() < processingFailureRate) {
+                        throw new IllegalStateException("Injected processing failure for order " + orderId);
+                    }
+                    return super.validate(orderId, product, price);
+                }
+            };
+        }
+    }
+
+    @FunctionalInterface
+    private interface FaultAction {
+        void apply(Pipeline pipeline) throws Exception;
+    }
+
+    private record Sample(long time, int published, int accountedFor) {}
+
+    record ScenarioReport(
+        String name,
+        int published,
+        int lost,
+        long duplicated,
+        int deadLettered,
+        long recoveryMs,
+        double throughputDipPercent
+    ) {}
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
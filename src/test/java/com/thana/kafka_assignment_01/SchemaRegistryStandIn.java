@@ -0,0 +1,100 @@
+package com.thana.kafka_assignment_01;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the schema registry: just the REST calls the Avro serializer and
+ * deserializer make (register a schema under a subject, fetch a schema by id). Like the
+ * real registry, an identical schema gets the same id under every subject.
+ *
+ * {@link #setAvailable(boolean)} makes every call fail with 503, as during an outage.
+ */
+public class SchemaRegistryStandIn implements AutoCloseable {
+
+    private static final Pattern REGISTER = Pattern.compile("/subjects/[^/]+/versions");
+    private static final Pattern SCHEMA_BY_ID = Pattern.compile("/schemas/ids/(\\d+)");
+    private static final String CONTENT_TYPE = "application/vnd.schemaregistry.v1+json";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final Map<String, Integer> idsBySchema = new ConcurrentHashMap<>();
+    private final Map<Integer, String> schemasById = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private volatile boolean available = true;
+
+    public SchemaRegistryStandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (!available) {
+                respond(exchange, 503, Map.of("error_code", 50003, "message", "Schema registry unavailable"));
+                return;
+            }
+
+            Matcher byId = SCHEMA_BY_ID.matcher(path);
+            if ("POST".equals(exchange.getRequestMethod()) && REGISTER.matcher(path).matches()) {
+                JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+                String schema = request.get("schema").asText();
+                int id = idsBySchema.computeIfAbsent(schema, s -> {
+                    int assigned = nextId.getAndIncrement();
+                    schemasById.put(assigned, s);
+                    return assigned;
+                });
+                respond(exchange, 200, Map.of("id", id));
+
+            } else if ("GET".equals(exchange.getRequestMethod()) && byId.matches()) {
+                String schema = schemasById.get(Integer.parseInt(byId.group(1)));
+                if (schema == null) {
+                    respond(exchange, 404, Map.of("error_code", 40403, "message", "Schema not found"));
+                } else {
+                    respond(exchange, 200, Map.of("schema", schema));
+                }
+
+            } else {
+                respond(exchange, 404, Map.of("error_code", 404, "message", "Not supported by the stand-in: " + path));
+            }
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,468 @@
+package com.thana.kafka_assignment_01.config;
+
+import com.thana.kafka_assignment_01.SchemaRegistryStandIn;
+import com.thana.kafka_assignment_01.catalog.ProductCatalog;
+import com.thana.kafka_assignment_01.model.Order;
+import com.thana.kafka_assignment_01.service.DeadLetterQueueService;
+import com.thana.kafka_assignment_01.service.FailureForwarder;
+import com.thana.kafka_assignment_01.service.OrderProcessingService;
+import com.thana.kafka_assignment_01.service.OrderRebalanceListener;
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService;
+import com.thana.kafka_assignment_01.sink.ProcessedOrderSink;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.MethodKafkaListenerEndpoint;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Scales a consumer group from one instance to two while orders keep flowing, and
+ * measures the longest stretch in which nothing was processed, with the eager and the
+ * cooperative-sticky assignor. Rebalance callbacks take time per partition they handle,
+ * like the sink flush on revoke and the shard hand-over on assign, so the gap grows with
+ * how many partitions an assignor moves.
+ *
+ * The static membership and revoke tests run containers from the application's own
+ * listener factory ({@link KafkaConfig}) with its {@link OrderRebalanceListener}; the
+ * services behind the listener are mocks.
+ */
+@Slf4j
+@EmbeddedKafka(partitions = 6)
+class ConsumerRebalanceTests {
+
+    private static final int PARTITIONS = 6;
+    private static final OrderHandler ACK = (record, ack) -> ack.acknowledge();
+
+    // Per-record work, so a poll batch is still being processed when a rebalance starts
+    private static final long PROCESSING_MS = 2;
+    // Rebalance callback work per revoked or assigned partition
+    private static final long REBALANCE_MS_PER_PARTITION = 50;
+
+    private final List<MessageListenerContainer> containers = new CopyOnWriteArrayList<>();
+    private final List<Thread> producers = new ArrayList<>();
+    private volatile boolean producing = true;
+    private SchemaRegistryStandIn schemaRegistry;
+
+    @BeforeEach
+    void startSchemaRegistry() throws IOException {
+        schemaRegistry = new SchemaRegistryStandIn();
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        producing = false;
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        containers.forEach(MessageListenerContainer::stop);
+        schemaRegistry.close();
+    }
+
+    @Test
+    void eagerScaleOutRevokesEveryPartition(EmbeddedKafkaBroker broker) {
+        ScaleOut eager = scaleOut(broker, "eager");
+
+        assertEquals(PARTITIONS, eager.first().revoked().size(), "eager revokes the whole assignment");
+    }
+
+    @Test
+    void cooperativeScaleOutKeepsProcessingTheKeptPartitions(EmbeddedKafkaBroker broker) {
+        ScaleOut eager = scaleOut(broker, "eager");
+        ScaleOut cooperative = scaleOut(broker, "cooperative-sticky");
+
+        assertEquals(new HashSet<>(cooperative.second().owned()), new HashSet<>(cooperative.first().revoked()),
+            "only the partitions handed to the new member are revoked");
+        assertTrue(cooperative.keptGapMs() < eager.keptGapMs(),
+            "kept partitions paused " + cooperative.keptGapMs() + " ms with cooperative-sticky, "
+                + eager.keptGapMs() + " ms with eager");
+    }
+
+    @Test
+    void staticMemberRestartDoesNotRebalance(EmbeddedKafkaBroker broker) throws Exception {
+        Group group = newGroup(broker);
+        startProducingOrders(broker, group);
+
+        AppMember first = startAppMember(broker, group, "node-a", 2, ACK);
+        await().atMost(Duration.ofSeconds(30)).until(() -> first.owned().size() == PARTITIONS);
+        AppMember second = startAppMember(broker, group, "node-b", 2, ACK);
+        awaitSettled(group, first.owned(), second.owned());
+
+        // The factory's customizer gives each listener its own static id
+        assertEquals("node-b-" + OrderProcessingService.ORDERS_LISTENER_ID,
+            second.container().getContainerProperties().getKafkaConsumerProperties()
+                .getProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG));
+
+        long revocationsBefore = first.listener().getStats().revocations();
+        Set<TopicPartition> ownedBefore = Set.copyOf(second.owned());
+
+        // Restart within the session timeout: the broker hands node-b its old assignment back
+        second.container().stop();
+        AppMember restarted = startAppMember(broker, group, "node-b", 2, ACK);
+        await().atMost(Duration.ofSeconds(30)).until(() -> restarted.owned().size() == ownedBefore.size());
+
+        assertEquals(ownedBefore, Set.copyOf(restarted.owned()));
+        assertEquals(revocationsBefore, first.listener().getStats().revocations(),
+            "the other member is not disturbed");
+    }
+
+    @Test
+    void revokeFlushesSinkAndForwardsBeforeCommit(EmbeddedKafkaBroker broker) throws Exception {
+        Group group = newGroup(broker);
+        startProducingOrders(broker, group);
+        Map<String, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+
+        // Like the processed-order sink: acks are held back and released in batches
+        DeferredAcks deferred = new DeferredAcks();
+        Thread writer = Thread.ofPlatform().start(() -> {
+            while (producing) {
+                sleep(200);
+                deferred.ackAll(deferred.partitions());
+            }
+        });
+        producers.add(writer);
+
+        AppMember first = startAppMember(broker, group, "", 1, (record, ack) -> {
+            deliveries.computeIfAbsent(record.key(), key -> new AtomicInteger()).incrementAndGet();
+            deferred.add(record, ack);
+        });
+        when(first.sink().awaitDurable(anyCollection(), anyLong())).thenAnswer(invocation -> {
+            deferred.ackAll(invocation.getArgument(0));
+            return Map.of();
+        });
+        await().atMost(Duration.ofSeconds(30)).until(() -> first.owned().size() == PARTITIONS);
+
+        AppMember second = startAppMember(broker, group, "", 1, (record, ack) -> {
+            deliveries.computeIfAbsent(record.key(), key -> new AtomicInteger()).incrementAndGet();
+            ACK.onOrder(record, ack);
+        });
+        awaitSettled(group, first.owned(), second.owned());
+
+        Set<TopicPartition> revoked = Set.copyOf(first.revoked());
+        assertEquals(Set.copyOf(second.owned()), revoked);
+        InOrder flushes = inOrder(first.sink(), first.forwarder(), first.analytics());
+        flushes.verify(first.sink()).awaitDurable(argThat(samePartitions(revoked)), anyLong());
+        flushes.verify(first.forwarder()).awaitForwards(argThat(samePartitions(revoked)), anyLong());
+        flushes.verify(first.analytics()).onPartitionsRevoked(argThat(samePartitions(revoked)));
+
+        // Acks released by the flush were committed with the revoke, so nothing is redelivered
+        List<String> redelivered = deliveries.entrySet().stream()
+            .filter(entry -> entry.getValue().get() > 1)
+            .map(Map.Entry::getKey)
+            .toList();
+        assertTrue(redelivered.isEmpty(), "redelivered after the hand-over: " + redelivered);
+    }
+
+    private ScaleOut scaleOut(EmbeddedKafkaBroker broker, String assignor) {
+        Group group = newGroup(broker);
+        startProducing(broker, group);
+
+        Member first = startMember(broker, group, assignor);
+        await().atMost(Duration.ofSeconds(30)).until(() -> first.owned().size() == PARTITIONS);
+        await().atMost(Duration.ofSeconds(30)).until(() -> group.processed() > 100);
+
+        long scaleOutAt = System.nanoTime();
+        Member second = startMember(broker, group, assignor);
+        awaitSettled(group, first.owned(), second.owned());
+
+        ScaleOut result = new ScaleOut(first, second,
+            group.longestGapMs(scaleOutAt, first.owned()), group.longestGapMs(scaleOutAt, second.owned()));
+        log.info("Scale-out with {} assignor: longest processing gap {} ms on partitions kept by the "
+                + "first member, {} ms on partitions moved to the new one",
+            assignor, result.keptGapMs(), result.movedGapMs());
+        return result;
+    }
+
+    private Group newGroup(EmbeddedKafkaBroker broker) {
+        Group group = new Group("orders-" + UUID.randomUUID(), "group-" + UUID.randomUUID(), new ConcurrentHashMap<>());
+        broker.addTopics(new NewTopic(group.topic(), PARTITIONS, (short) 1));
+        return group;
+    }
+
+    private Member startMember(EmbeddedKafkaBroker broker, Group group, String assignor) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps(group.groupId(), "false", broker);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, KafkaConfig.assignmentStrategy(assignor));
+        props.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, 30000);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 100);
+
+        Member member = new Member(new CopyOnWriteArrayList<>(), new CopyOnWriteArrayList<>());
+        ContainerProperties containerProperties = new ContainerProperties(group.topic());
+        containerProperties.setMessageListener((MessageListener<String, String>) record -> {
+            sleep(PROCESSING_MS);
+            group.recordProcessed(record.partition());
+        });
+        containerProperties.setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer,
+                                                        Collection<TopicPartition> partitions) {
+                member.revoked().addAll(partitions);
+                member.owned().removeAll(partitions);
+                sleep(REBALANCE_MS_PER_PARTITION * partitions.size());
+            }
+
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                member.owned().addAll(partitions);
+                sleep(REBALANCE_MS_PER_PARTITION * partitions.size());
+            }
+        });
+
+        ConcurrentMessageListenerContainer<String, String> container = new ConcurrentMessageListenerContainer<>(
+            new DefaultKafkaConsumerFactory<>(props), containerProperties);
+        container.start();
+        containers.add(container);
+        return member;
+    }
+
+    /**
+     * A member built like the application's orders listener: KafkaConfig's listener factory
+     * with a cooperative-sticky assignor and the given static id prefix (blank for dynamic
+     * membership), rebalanced through an OrderRebalanceListener.
+     */
+    private AppMember startAppMember(EmbeddedKafkaBroker broker, Group group, String groupInstanceId,
+                                     int concurrency, OrderHandler handler) throws Exception {
+        PriceAnalyticsService analytics = mock(PriceAnalyticsService.class);
+        ProcessedOrderSink sink = mock(ProcessedOrderSink.class);
+        FailureForwarder forwarder = mock(FailureForwarder.class);
+        OrderRebalanceListener listener =
+            new OrderRebalanceListener(analytics, sink, mock(ProductCatalog.class), forwarder);
+        ReflectionTestUtils.setField(listener, "revokeFlushTimeoutMs", 5000L);
+
+        List<TopicPartition> owned = new CopyOnWriteArrayList<>();
+        List<TopicPartition> revoked = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> owned.addAll(invocation.getArgument(0)))
+            .when(analytics).onPartitionsAssigned(any());
+        doAnswer(invocation -> {
+            Collection<TopicPartition> partitions = invocation.getArgument(0);
+            revoked.addAll(partitions);
+            return owned.removeAll(partitions);
+        }).when(analytics).onPartitionsRevoked(any());
+
+        KafkaConfig config = new KafkaConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(config, "schemaRegistryUrl", schemaRegistry.getUrl());
+        ReflectionTestUtils.setField(config, "groupId", group.groupId());
+        ReflectionTestUtils.setField(config, "assignor", "cooperative-sticky");
+        ReflectionTestUtils.setField(config, "groupInstanceId", groupInstanceId);
+        ReflectionTestUtils.setField(config, "sessionTimeoutMs", 30000);
+        ReflectionTestUtils.setField(config, "concurrency", concurrency);
+        ReflectionTestUtils.setField(config, "dlqTopic", group.topic() + "-dlq");
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+            config.kafkaListenerContainerFactory(listener, mock(KafkaTemplate.class),
+                mock(DeadLetterQueueService.class));
+
+        // Registered the way @KafkaListener registers the application's listeners
+        MethodKafkaListenerEndpoint<String, Object> endpoint = new MethodKafkaListenerEndpoint<>();
+        endpoint.setId(OrderProcessingService.ORDERS_LISTENER_ID);
+        endpoint.setGroupId(group.groupId());
+        endpoint.setTopics(group.topic());
+        endpoint.setBean((OrderHandler) (record, ack) -> {
+            group.recordProcessed(record.partition());
+            handler.onOrder(record, ack);
+        });
+        endpoint.setMethod(OrderHandler.class.getMethod("onOrder", ConsumerRecord.class, Acknowledgment.class));
+        DefaultMessageHandlerMethodFactory methodFactory = new DefaultMessageHandlerMethodFactory();
+        methodFactory.afterPropertiesSet();
+        endpoint.setMessageHandlerMethodFactory(methodFactory);
+
+        ConcurrentMessageListenerContainer<String, Object> container = factory.createListenerContainer(endpoint);
+        container.start();
+        containers.add(container);
+        return new AppMember(owned, revoked, container, listener, analytics, sink, forwarder);
+    }
+
+    private void startProducing(EmbeddedKafkaBroker broker, Group group) {
+        Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+        props.put("key.serializer", StringSerializer.class);
+        props.put("value.serializer", StringSerializer.class);
+        startProducing(group, props, String::valueOf);
+    }
+
+    private void startProducingOrders(EmbeddedKafkaBroker broker, Group group) {
+        Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+        props.put("key.serializer", StringSerializer.class);
+        props.put("value.serializer", KafkaAvroSerializer.class);
+        props.put("schema.registry.url", schemaRegistry.getUrl());
+        startProducing(group, props, sequence -> Order.newBuilder()
+            .setOrderId(String.valueOf(sequence)).setProduct("Product " + sequence % 10).setPrice(10f).build());
+    }
+
+    private void startProducing(Group group, Map<String, Object> props, IntFunction<Object> value) {
+        producers.add(Thread.ofPlatform().start(() -> {
+            try (Producer<String, Object> kafkaProducer = new DefaultKafkaProducerFactory<String, Object>(props)
+                .createProducer()) {
+                int sequence = 0;
+                while (producing) {
+                    sequence++;
+                    kafkaProducer.send(new ProducerRecord<>(group.topic(), sequence % PARTITIONS,
+                        String.valueOf(sequence), value.apply(sequence)));
+                    kafkaProducer.flush();
+                    Thread.sleep(1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+    }
+
+    private static void awaitSettled(Group group, List<TopicPartition> first, List<TopicPartition> second) {
+        await().atMost(Duration.ofSeconds(30)).until(() -> !second.isEmpty()
+            && first.size() + second.size() == PARTITIONS);
+        // Let processing run for a while on the new assignment so the gap is closed
+        int seen = group.processed();
+        await().atMost(Duration.ofSeconds(30)).until(() -> group.processed() > seen + 200);
+        assertTrue(Set.copyOf(first).stream().noneMatch(second::contains));
+    }
+
+    private static ArgumentMatcher<Collection<TopicPartition>> samePartitions(Set<TopicPartition> expected) {
+        return partitions -> partitions != null && Set.copyOf(partitions).equals(expected);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Topic and consumer group of one scenario; processedAt holds, per partition, the
+     * nano time each of its records finished processing.
+     */
+    private record Group(String topic, String groupId, Map<Integer, ConcurrentLinkedQueue<Long>> processedAt) {
+
+        void recordProcessed(int partition) {
+            processedAt.computeIfAbsent(partition, p -> new ConcurrentLinkedQueue<>()).add(System.nanoTime());
+        }
+
+        int processed() {
+            return processedAt.values().stream().mapToInt(ConcurrentLinkedQueue::size).sum();
+        }
+
+        /**
+         * Longest time after the given instant in which none of the partitions had a record
+         * processed, while records kept arriving on all of them.
+         */
+        long longestGapMs(long fromNanos, Collection<TopicPartition> partitions) {
+            List<Long> times = partitions.stream()
+                .flatMap(partition -> processedAt.getOrDefault(partition.partition(), new ConcurrentLinkedQueue<>())
+                    .stream())
+                .filter(time -> time >= fromNanos)
+                .sorted()
+                .toList();
+            long longest = 0;
+            long previous = fromNanos;
+            for (long time : times) {
+                longest = Math.max(longest, time - previous);
+                previous = time;
+            }
+            return Duration.ofNanos(longest).toMillis();
+        }
+    }
+
+    private record Member(List<TopicPartition> owned, List<TopicPartition> revoked) {}
+
+    private record ScaleOut(Member first, Member second, long keptGapMs, long movedGapMs) {}
+
+    private record AppMember(
+        List<TopicPartition> owned,
+        List<TopicPartition> revoked,
+        MessageListenerContainer container,
+        OrderRebalanceListener listener,
+        PriceAnalyticsService analytics,
+        ProcessedOrderSink sink,
+        FailureForwarder forwarder
+    ) {}
+
+    /**
+     * Listener method of an application-style member.
+     */
+    @FunctionalInterface
+    public interface OrderHandler {
+        void onOrder(ConsumerRecord<String, Order> record, Acknowledgment ack);
+    }
+
+    /**
+     * Acks held back per partition until released.
+     */
+    private static final class DeferredAcks {
+
+        private final Map<TopicPartition, Queue<Acknowledgment>> pending = new ConcurrentHashMap<>();
+
+        void add(ConsumerRecord<String, Order> record, Acknowledgment ack) {
+            pending.computeIfAbsent(new TopicPartition(record.topic(), record.partition()),
+                tp -> new ConcurrentLinkedQueue<>()).add(ack);
+        }
+
+        Set<TopicPartition> partitions() {
+            return Set.copyOf(pending.keySet());
+        }
+
+        void ackAll(Collection<TopicPartition> partitions) {
+            for (TopicPartition partition : partitions) {
+                Queue<Acknowledgment> acks = pending.getOrDefault(partition, new ConcurrentLinkedQueue<>());
+                for (Acknowledgment ack = acks.poll(); ack != null; ack = acks.poll()) {
+                    ack.acknowledge();
+                }
+            }
+        }
+    }
+}
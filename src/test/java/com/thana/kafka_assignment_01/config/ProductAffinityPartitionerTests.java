@@ -0,0 +1,72 @@
+package com.thana.kafka_assignment_01.config;
+
+import com.thana.kafka_assignment_01.model.Order;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductAffinityPartitionerTests {
+
+    private static final String TOPIC = "orders-topic";
+    private static final int PARTITIONS = 12;
+    private static final List<String> PRODUCTS =
+        IntStream.range(0, 50).mapToObj(i -> "Product " + i).toList();
+
+    @Test
+    void routesNameAndIdFormsOfAProductToTheSamePartition() {
+        ProductAffinityPartitioner partitioner = partitioner(id -> id < PRODUCTS.size() ? PRODUCTS.get(id) : null);
+        Cluster cluster = cluster();
+
+        Set<Integer> used = new HashSet<>();
+        for (int id = 0; id < PRODUCTS.size(); id++) {
+            Order byName = Order.newBuilder().setOrderId("a-" + id).setProduct(PRODUCTS.get(id)).setPrice(1f).build();
+            Order byId = Order.newBuilder().setOrderId("b-" + id).setProductId(id).setPrice(1f).build();
+
+            int namePartition = partition(partitioner, cluster, byName);
+            assertEquals(namePartition, partition(partitioner, cluster, byId), PRODUCTS.get(id));
+            used.add(namePartition);
+        }
+        // Products still spread over the topic
+        assertTrue(used.size() > PARTITIONS / 2, "products used only " + used.size() + " partitions");
+    }
+
+    @Test
+    void unresolvableIdsFallBackToTheRecordKey() {
+        ProductAffinityPartitioner partitioner = partitioner(id -> null);
+        Cluster cluster = cluster();
+        Order order = Order.newBuilder().setOrderId("order-1").setProductId(7).setPrice(1f).build();
+
+        int first = partition(partitioner, cluster, order);
+        assertEquals(first, partition(partitioner, cluster, order));
+    }
+
+    private static ProductAffinityPartitioner partitioner(IntFunction<String> names) {
+        ProductAffinityPartitioner partitioner = new ProductAffinityPartitioner();
+        partitioner.configure(Map.of(ProductAffinityPartitioner.PRODUCT_NAMES_CONFIG, names));
+        return partitioner;
+    }
+
+    private static int partition(ProductAffinityPartitioner partitioner, Cluster cluster, Order order) {
+        String key = order.getOrderId().toString();
+        return partitioner.partition(TOPIC, key, key.getBytes(), order, null, cluster);
+    }
+
+    private static Cluster cluster() {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = IntStream.range(0, PARTITIONS)
+            .mapToObj(p -> new PartitionInfo(TOPIC, p, node, new Node[] {node}, new Node[] {node}))
+            .toList();
+        return new Cluster("cluster", List.of(node), partitions, Set.of(), Set.of());
+    }
+}
@@ -0,0 +1,57 @@
+package com.thana.kafka_assignment_01.config;
+
+import com.thana.kafka_assignment_01.config.TopicPlanner.TopicPlan;
+import com.thana.kafka_assignment_01.config.TopicProvisioningProperties.TopicTarget;
+import org.apache.kafka.common.config.TopicConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopicPlannerTests {
+
+    private static final int PARTITION_THROUGHPUT = 250;
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', textBlock = """
+        # case                      | records/s | bytes  | hours | threads | replicas | partitions | retention.ms | retention.bytes | segment.bytes | min.insync
+        throughput needs partitions |      1000 |    512 |    24 |       2 |        1 |          4 |     86400000 |     22118400000 |     460800000 |
+        listener needs partitions   |       100 |    100 |     1 |       5 |        3 |          5 |      3600000 |        14400000 |       7200000 | 2
+        segment at the 1 MiB floor  |        10 |     10 |     1 |       1 |        2 |          1 |      3600000 |         1048576 |       1048576 | 1
+        segment at the 1 GiB cap    |    100000 |  10000 |   168 |       1 |        1 |        400 |    604800000 |   3024000000000 |    1073741824 |
+        idle topic                  |         0 |    100 |    24 |       0 |        1 |          1 |     86400000 |         1048576 |       1048576 |
+        """)
+    void sizesPartitionsRetentionAndSegments(String name, int throughput, int recordBytes, int retentionHours,
+                                             int concurrency, short replicas, int partitions, long retentionMs,
+                                             long retentionBytes, long segmentBytes, String minInSync) {
+        TopicPlan plan = TopicPlanner.plan("orders", new TopicTarget(throughput, recordBytes, retentionHours),
+            concurrency, replicas, PARTITION_THROUGHPUT);
+
+        assertEquals(partitions, plan.partitions());
+        assertEquals(replicas, plan.replicas());
+        assertEquals(concurrency, plan.listenerConcurrency());
+        assertEquals(TopicConfig.CLEANUP_POLICY_DELETE, plan.configs().get(TopicConfig.CLEANUP_POLICY_CONFIG));
+        assertEquals(String.valueOf(retentionMs), plan.configs().get(TopicConfig.RETENTION_MS_CONFIG));
+        assertEquals(String.valueOf(retentionBytes), plan.configs().get(TopicConfig.RETENTION_BYTES_CONFIG));
+        assertEquals(String.valueOf(segmentBytes), plan.configs().get(TopicConfig.SEGMENT_BYTES_CONFIG));
+        assertEquals(minInSync, plan.configs().get(TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG));
+    }
+
+    @Test
+    void plansOnlyTopicsWithATargetWithTheirListenerConcurrency() {
+        TopicProvisioningProperties properties = new TopicProvisioningProperties((short) 1, PARTITION_THROUGHPUT,
+            false, 0, Map.of(
+                "orders", new TopicTarget(100, 100, 1),
+                "orders-priority", new TopicTarget(100, 100, 1)));
+        TopicPlanner planner = new TopicPlanner(properties, "orders-topic", "orders-retry-topic",
+            "orders-dlq-topic", "orders-priority-topic", 3, 2);
+
+        List<TopicPlan> plans = planner.plans();
+        assertEquals(List.of("orders-topic", "orders-priority-topic"), plans.stream().map(TopicPlan::topic).toList());
+        assertEquals(List.of(3, 2), plans.stream().map(TopicPlan::listenerConcurrency).toList());
+    }
+}
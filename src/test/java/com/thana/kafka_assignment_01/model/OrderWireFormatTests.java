@@ -0,0 +1,130 @@
+package com.thana.kafka_assignment_01.model;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compatibility of the v2 Order schema with v1 data, and its size against v1. Decode cost is
+ * logged for comparison but not asserted: timings are too noisy on shared build machines.
+ */
+@Slf4j
+class OrderWireFormatTests {
+
+    private static final String[] PRODUCTS = {
+        "Wireless Noise Cancelling Headphones", "Mechanical Keyboard", "27-inch 4K Monitor", "USB-C Docking Station"
+    };
+    private static final int RECORDS = 100_000;
+
+    @Test
+    void v2ReaderDecodesV1Records() throws IOException {
+        Schema v1 = loadV1Schema();
+        byte[] bytes = encodeV1(v1, "order-1", "Laptop", 999.5f);
+
+        Order order = decode(v1, bytes);
+
+        assertEquals("order-1", order.getOrderId().toString());
+        assertEquals("Laptop", order.getProduct().toString());
+        assertEquals(999.5f, order.getPrice());
+        assertEquals(-1, order.getProductId());
+    }
+
+    @Test
+    void compactRecordsAreSmallerThanV1() throws IOException {
+        Schema v1 = loadV1Schema();
+        List<byte[]> v1Records = new ArrayList<>(RECORDS);
+        List<byte[]> v2Records = new ArrayList<>(RECORDS);
+        long v1Bytes = 0;
+        long v2Bytes = 0;
+
+        for (int i = 0; i < RECORDS; i++) {
+            String orderId = "order-" + i;
+            int productId = i % PRODUCTS.length;
+            float price = 10f + i % 500;
+
+            byte[] v1Record = encodeV1(v1, orderId, PRODUCTS[productId], price);
+            byte[] v2Record = encodeV2(Order.newBuilder()
+                .setOrderId(orderId).setProductId(productId).setPrice(price).build());
+            v1Records.add(v1Record);
+            v2Records.add(v2Record);
+            v1Bytes += v1Record.length;
+            v2Bytes += v2Record.length;
+        }
+
+        // Warm up both decode paths before timing them
+        decodeAll(v1, v1Records);
+        decodeAll(Order.getClassSchema(), v2Records);
+        long v1Nanos = decodeAll(v1, v1Records);
+        long v2Nanos = decodeAll(Order.getClassSchema(), v2Records);
+
+        log.info("Order wire format over {} records: v1 {} bytes / {} ns per record, "
+                + "v2 compact {} bytes / {} ns per record",
+            RECORDS, v1Bytes / RECORDS, v1Nanos / RECORDS, v2Bytes / RECORDS, v2Nanos / RECORDS);
+
+        assertTrue(v2Bytes < v1Bytes, "compact records should be smaller than v1");
+        assertNull(decode(Order.getClassSchema(), v2Records.get(0)).getProduct());
+    }
+
+    private static Schema loadV1Schema() throws IOException {
+        try (InputStream in = OrderWireFormatTests.class.getResourceAsStream("/avro/order-v1.avsc")) {
+            return new Schema.Parser().parse(in);
+        }
+    }
+
+    private static byte[] encodeV1(Schema v1, String orderId, String product, float price) throws IOException {
+        GenericRecord record = new GenericData.Record(v1);
+        record.put("orderId", orderId);
+        record.put("product", product);
+        record.put("price", price);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(v1).write(record, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeV2(Order order) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new SpecificDatumWriter<>(Order.class).write(order, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    private static Order decode(Schema writer, byte[] bytes) throws IOException {
+        return new SpecificDatumReader<Order>(writer, Order.getClassSchema())
+            .read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+    }
+
+    private static long decodeAll(Schema writer, List<byte[]> records) throws IOException {
+        SpecificDatumReader<Order> reader = new SpecificDatumReader<>(writer, Order.getClassSchema());
+        BinaryDecoder decoder = null;
+        Order reuse = null;
+        long start = System.nanoTime();
+        for (byte[] bytes : records) {
+            decoder = DecoderFactory.get().binaryDecoder(bytes, decoder);
+            reuse = reader.read(reuse, decoder);
+        }
+        return System.nanoTime() - start;
+    }
+}
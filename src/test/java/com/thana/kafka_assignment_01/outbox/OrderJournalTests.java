@@ -0,0 +1,161 @@
+package com.thana.kafka_assignment_01.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Journal files on a temporary directory: recovery, segment rolls, checkpoints and replay.
+ */
+class OrderJournalTests {
+
+    // "order-N" and "Laptop" make 41-byte records, so a 64-byte segment holds one
+    private static final int RECORD_BYTES = 41;
+    private static final long ACCEPTED_AT = 1_700_000_000_000L;
+    private static final int SMALL_SEGMENT = 64;
+    private static final int LARGE_SEGMENT = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoveryDiscardsATornTail() throws IOException {
+        List<JournalEntry> written;
+        try (OrderJournal journal = new OrderJournal(directory, LARGE_SEGMENT)) {
+            append(journal, 3);
+            journal.flush();
+            written = journal.read(0, 10);
+        }
+        // Damage the payload of the last record as a crash mid-write would
+        flipByte(segment(0), (int) written.get(2).position() + 8);
+
+        try (OrderJournal journal = new OrderJournal(directory, LARGE_SEGMENT)) {
+            assertEquals(written.get(1).nextPosition(), journal.getWritePosition());
+            assertEquals(written.subList(0, 2), journal.read(0, 10));
+
+            // Appends continue where the valid data ends
+            journal.append("order-9", "Laptop", 9f, ACCEPTED_AT);
+            journal.flush();
+            List<JournalEntry> entries = journal.read(0, 10);
+            assertEquals(3, entries.size());
+            assertEquals("order-9", entries.get(2).orderId());
+            assertEquals(written.get(2).position(), entries.get(2).position());
+        }
+    }
+
+    @Test
+    void recordsThatDoNotFitRollToTheNextSegment() throws IOException {
+        try (OrderJournal journal = new OrderJournal(directory, SMALL_SEGMENT)) {
+            append(journal, 2);
+            journal.flush();
+
+            List<JournalEntry> entries = journal.read(0, 10);
+            assertEquals(2, entries.size());
+            assertEquals(0, entries.get(0).position());
+            assertEquals(SMALL_SEGMENT, entries.get(1).position());
+            assertEquals(2, journal.getSegmentCount());
+        }
+        // The rest of the first segment is marked as skipped, not left as end of data
+        assertEquals(-1, readInt(segment(0), RECORD_BYTES));
+
+        try (OrderJournal journal = new OrderJournal(directory, SMALL_SEGMENT)) {
+            assertEquals(2, journal.read(0, 10).size());
+            assertEquals(SMALL_SEGMENT + RECORD_BYTES, journal.getWritePosition());
+        }
+    }
+
+    @Test
+    void checkpointDeletesConsumedSegments() throws IOException {
+        List<JournalEntry> entries;
+        try (OrderJournal journal = new OrderJournal(directory, SMALL_SEGMENT)) {
+            append(journal, 4);
+            journal.flush();
+            entries = journal.read(0, 10);
+            assertEquals(4, journal.getSegmentCount());
+
+            journal.checkpoint(entries.get(2).position());
+            assertEquals(2, journal.getSegmentCount());
+            assertFalse(Files.exists(segment(0)));
+            assertFalse(Files.exists(segment(SMALL_SEGMENT)));
+            assertTrue(Files.exists(segment(2 * SMALL_SEGMENT)));
+        }
+
+        try (OrderJournal journal = new OrderJournal(directory, SMALL_SEGMENT)) {
+            assertEquals(entries.get(2).position(), journal.getCheckpoint());
+            assertEquals(entries.subList(2, 4), journal.read(journal.getCheckpoint(), 10));
+        }
+    }
+
+    @Test
+    void entriesAfterTheCheckpointAreReplayedAfterRestart() throws IOException {
+        List<JournalEntry> entries;
+        try (OrderJournal journal = new OrderJournal(directory, LARGE_SEGMENT)) {
+            append(journal, 3);
+            journal.flush();
+            entries = journal.read(0, 10);
+            // Only the first was acknowledged by the broker before the process died
+            journal.checkpoint(entries.get(0).nextPosition());
+        }
+
+        try (OrderJournal journal = new OrderJournal(directory, LARGE_SEGMENT)) {
+            List<JournalEntry> replayed = journal.read(journal.getCheckpoint(), 10);
+            assertEquals(entries.subList(1, 3), replayed);
+            // Deadlines of replayed orders still count from when they were accepted
+            assertEquals(ACCEPTED_AT + 2, replayed.get(1).acceptedAt());
+        }
+    }
+
+    @Test
+    void corruptRecordBeforeTheTailIsReportedWithItsPosition() throws IOException {
+        try (OrderJournal journal = new OrderJournal(directory, SMALL_SEGMENT)) {
+            append(journal, 2);
+        }
+        // Recovery only scans the last segment, so damage in an earlier one is found by read
+        flipByte(segment(0), 8);
+
+        try (OrderJournal journal = new OrderJournal(directory, SMALL_SEGMENT)) {
+            CorruptJournalException e = assertThrows(CorruptJournalException.class, () -> journal.read(0, 10));
+            assertEquals(0, e.getPosition());
+            assertEquals(1, journal.read(SMALL_SEGMENT, 10).size());
+        }
+    }
+
+    private static void append(OrderJournal journal, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            journal.append("order-" + i, "Laptop", i, ACCEPTED_AT + i);
+        }
+    }
+
+    private Path segment(long base) {
+        return directory.resolve(String.format("segment-%020d.log", base));
+    }
+
+    private static void flipByte(Path file, int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, offset);
+            buffer.put(0, (byte) ~buffer.get(0)).rewind();
+            channel.write(buffer, offset);
+        }
+    }
+
+    private static int readInt(Path file, int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(buffer, offset);
+            return buffer.getInt(0);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.thana.kafka_assignment_01.query;
+
+import com.thana.kafka_assignment_01.query.ChunkScanner.ChunkBounds;
+import com.thana.kafka_assignment_01.query.ChunkScanner.ScanAccumulator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The vector scanner against the scalar loop on the same chunk. Only compiled and run
+ * with -Pvector, which adds --add-modules jdk.incubator.vector to the test JVM.
+ */
+class ChunkScannerTests {
+
+    // Not a multiple of any vector length, so the scalar tail runs too
+    private static final int ROWS = 65_531;
+    private static final int PRODUCTS = 50;
+
+    @Test
+    void vectorScanMatchesScalarScan() {
+        ColumnChunk chunk = new ColumnChunk(0, ROWS);
+        Random random = new Random(3);
+        for (int row = 0; row < ROWS; row++) {
+            // Large prices make a float running sum visibly drift
+            assertTrue(chunk.tryAppend(row, random.nextInt(PRODUCTS), 90_000 + random.nextFloat() * 10_000));
+        }
+
+        List<ChunkBounds> queries = List.of(
+            new ChunkBounds(Integer.MIN_VALUE, Integer.MAX_VALUE, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, -1),
+            new ChunkBounds(1_000, 50_000, 92_000, 98_000, -1),
+            new ChunkBounds(0, ROWS, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, 7),
+            new ChunkBounds(10, 20, 0, 1, 3));
+
+        ChunkScanner vector = new VectorChunkScanner();
+        ChunkScanner scalar = new ScalarChunkScanner();
+        for (ChunkBounds bounds : queries) {
+            ScanAccumulator expected = new ScanAccumulator();
+            scalar.scan(chunk, ROWS, bounds, expected);
+            ScanAccumulator actual = new ScanAccumulator();
+            vector.scan(chunk, ROWS, bounds, actual);
+
+            assertEquals(expected.count, actual.count, bounds.toString());
+            assertEquals(expected.sum, actual.sum, Math.abs(expected.sum) * 1e-12, bounds.toString());
+            assertEquals(expected.min, actual.min, bounds.toString());
+            assertEquals(expected.max, actual.max, bounds.toString());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.AssignmentApplication;
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.AggregationStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs several application instances on localhost against one embedded broker.
+ */
+@EmbeddedKafka(partitions = 1)
+class ClusterStatsServiceTests {
+
+    private final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+
+    // The broker is shared by all tests, so each one gets its own stats topic
+    private final String statsTopic = "orders-stats-" + UUID.randomUUID();
+
+    @AfterEach
+    void stopInstances() {
+        instances.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void mergesPartialsFromEveryInstance(EmbeddedKafkaBroker broker) {
+        ConfigurableApplicationContext first = startInstance(broker);
+        ConfigurableApplicationContext second = startInstance(broker);
+
+        first.getBean(PriceAnalyticsService.class).addPrice("orders-topic", 0, "Laptop", "electronics", 10f);
+        first.getBean(PriceAnalyticsService.class).addPrice("orders-topic", 0, "Laptop", "electronics", 30f);
+        second.getBean(PriceAnalyticsService.class).addPrice("orders-topic", 1, "Laptop", "electronics", 50f);
+        // Partition 0 moved to the second instance after a rebalance
+        second.getBean(PriceAnalyticsService.class).addPrice("orders-topic", 0, "Laptop", "electronics", 5f);
+
+        for (ConfigurableApplicationContext instance : List.of(first, second)) {
+            ClusterStatsService clusterStats = instance.getBean(ClusterStatsService.class);
+            await().atMost(Duration.ofSeconds(30))
+                .until(() -> clusterStats.getClusterStats().stats().totalOrders() == 4);
+
+            ClusterStatsService.ClusterStats cluster = clusterStats.getClusterStats();
+            AggregationStats merged = cluster.stats();
+            assertEquals(2, cluster.instances());
+            assertEquals(95.0, merged.totalSum(), 0.001);
+            assertEquals(23.75, merged.runningAverage(), 0.001);
+            assertEquals(5.0, merged.minPrice(), 0.001);
+            assertEquals(50.0, merged.maxPrice(), 0.001);
+        }
+    }
+
+    @Test
+    void restoresOwnPartialsAfterRestartWithStableId(EmbeddedKafkaBroker broker) {
+        ConfigurableApplicationContext observer = startInstance(broker);
+        ConfigurableApplicationContext node = startInstance(broker, "--kafka.stats.instance-id=node-a");
+
+        node.getBean(PriceAnalyticsService.class).addPrice("orders-topic", 0, "Laptop", "electronics", 20f);
+        ClusterStatsService observerStats = observer.getBean(ClusterStatsService.class);
+        await().atMost(Duration.ofSeconds(30))
+            .until(() -> observerStats.getClusterStats().stats().totalOrders() == 1);
+
+        node.close();
+        ConfigurableApplicationContext restarted = startInstance(broker, "--kafka.stats.instance-id=node-a");
+        restarted.getBean(PriceAnalyticsService.class).addPrice("orders-topic", 0, "Laptop", "electronics", 40f);
+
+        await().atMost(Duration.ofSeconds(30))
+            .until(() -> observerStats.getClusterStats().stats().totalOrders() == 2);
+        assertEquals(60.0, observerStats.getClusterStats().stats().totalSum(), 0.001);
+    }
+
+    @Test
+    void keepsPartialsOfStoppedInstancesAndFlagsThemStale(EmbeddedKafkaBroker broker) {
+        ConfigurableApplicationContext observer = startInstance(broker, "--kafka.stats.stale-after-ms=2000");
+        ConfigurableApplicationContext node = startInstance(broker);
+
+        node.getBean(PriceAnalyticsService.class).addPrice("orders-topic", 0, "Laptop", "electronics", 20f);
+        ClusterStatsService observerStats = observer.getBean(ClusterStatsService.class);
+        await().atMost(Duration.ofSeconds(30))
+            .until(() -> observerStats.getClusterStats().stats().totalOrders() == 1);
+
+        node.close();
+        await().atMost(Duration.ofSeconds(30))
+            .until(() -> observerStats.getClusterStats().staleInstances() == 1);
+
+        // The stopped instance's orders were processed, so they still count
+        ClusterStatsService.ClusterStats cluster = observerStats.getClusterStats();
+        assertEquals(1, cluster.stats().totalOrders());
+        assertEquals(20.0, cluster.stats().totalSum(), 0.001);
+        assertEquals(1, cluster.instances());
+        assertEquals(1, cluster.stalePartials());
+        assertTrue(cluster.oldestPartialAgeMs() <= 2000);
+    }
+
+    private ConfigurableApplicationContext startInstance(EmbeddedKafkaBroker broker, String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+            "--server.port=0",
+            "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+            "--kafka.topics.orders-stats=" + statsTopic,
+            "--kafka.stats.publish-interval-ms=200"
+        ));
+        args.addAll(List.of(extraArgs));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AssignmentApplication.class)
+            .run(args.toArray(String[]::new));
+        instances.add(context);
+        return context;
+    }
+}
@@ -0,0 +1,100 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.service.DeadLetterQueueService.FailedOrder;
+import com.thana.kafka_assignment_01.service.FailedOrderIndex.Dimension;
+import com.thana.kafka_assignment_01.service.FailedOrderIndex.FailedOrderPage;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Filtered pages and counts of the DLQ index against a brute-force filter of the same records.
+ */
+class FailedOrderIndexTests {
+
+    private static final String[] CODES = {"PRICE_OUT_OF_RANGE", "IllegalArgumentException", "EXPIRED"};
+    private static final String[] PRODUCTS = {"Laptop", "Phone", "Monitor", "Keyboard"};
+
+    @Test
+    void everyFilterCombinationMatchesBruteForce() {
+        FailedOrderIndex index = new FailedOrderIndex(60_000, 10_000);
+        for (int i = 0; i < 1_000; i++) {
+            index.add(failedOrder(i));
+        }
+        List<FailedOrder> all = index.snapshot();
+
+        for (String code : new String[] {null, CODES[0], CODES[2]}) {
+            for (String product : new String[] {null, PRODUCTS[1], "Unknown"}) {
+                for (Integer partition : new Integer[] {null, 2}) {
+                    Map<Dimension, String> filters = new EnumMap<>(Dimension.class);
+                    if (code != null) filters.put(Dimension.REASON, code);
+                    if (product != null) filters.put(Dimension.PRODUCT, product);
+                    if (partition != null) filters.put(Dimension.PARTITION, String.valueOf(partition));
+
+                    List<FailedOrder> expected = all.reversed().stream()
+                        .filter(order -> code == null || code.equals(order.reasonCode()))
+                        .filter(order -> product == null || product.equals(order.product()))
+                        .filter(order -> partition == null || partition == order.sourcePartition())
+                        .toList();
+
+                    FailedOrderPage page = index.query(filters, 1, 7);
+                    assertEquals(expected.size(), page.total(), filters.toString());
+                    assertEquals(expected.stream().skip(7).limit(7).toList(), page.items(), filters.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    void evictsTheOldestRecordsAndTheirIndexEntries() {
+        FailedOrderIndex index = new FailedOrderIndex(60_000, 100);
+        for (int i = 0; i < 1_000; i++) {
+            index.add(failedOrder(i));
+        }
+        List<FailedOrder> retained = index.snapshot();
+
+        assertEquals(100, index.size());
+        assertEquals(900, index.evictions());
+        assertEquals("order-900", retained.getFirst().orderId());
+
+        Map<Dimension, String> filters = Map.of(Dimension.REASON, CODES[1], Dimension.PRODUCT, PRODUCTS[2]);
+        List<FailedOrder> expected = retained.reversed().stream()
+            .filter(order -> CODES[1].equals(order.reasonCode()) && PRODUCTS[2].equals(order.product()))
+            .toList();
+        FailedOrderPage page = index.query(filters, 0, 100);
+        assertEquals(expected.size(), page.total());
+        assertEquals(expected, page.items());
+
+        Map<String, Integer> byProduct = index.breakdown(Dimension.PRODUCT);
+        assertEquals(100, byProduct.values().stream().mapToInt(Integer::intValue).sum());
+        // Buckets of evicted records are gone, the rest only count retained records
+        Map<Long, Map<String, Long>> histogram = index.histogram(Dimension.REASON, 0, Long.MAX_VALUE);
+        assertEquals(100, histogram.values().stream().flatMap(bucket -> bucket.values().stream())
+            .mapToLong(Long::longValue).sum());
+        assertEquals(60_000L * 15, histogram.keySet().iterator().next());
+    }
+
+    @Test
+    void breaksDownByReasonCodeNotMessage() {
+        FailedOrderIndex index = new FailedOrderIndex(60_000, 10_000);
+        for (int i = 0; i < 30; i++) {
+            index.add(failedOrder(i));
+        }
+
+        Map<String, Integer> byReason = index.breakdown(Dimension.REASON);
+        assertEquals(CODES.length, byReason.size());
+        assertEquals(30, byReason.values().stream().mapToInt(Integer::intValue).sum());
+        assertTrue(index.query(Map.of(), 100, 10).items().isEmpty());
+    }
+
+    private static FailedOrder failedOrder(int i) {
+        String code = CODES[i % CODES.length];
+        return new FailedOrder("order-" + i, PRODUCTS[i % PRODUCTS.length], i, "", i % 4, i,
+            code + ": detail " + i, code, null, 0, "orders-topic", i % 5, i, 1_000L * i);
+    }
+}
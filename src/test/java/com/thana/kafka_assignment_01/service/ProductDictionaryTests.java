@@ -0,0 +1,115 @@
+package com.thana.kafka_assignment_01.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Dictionary records replayed straight into the listener, as they would be read in log order.
+ */
+class ProductDictionaryTests {
+
+    private static final String TOPIC = "orders-product-dictionary-topic";
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> template = mock(KafkaTemplate.class);
+    private final ProductDictionary dictionary = new ProductDictionary(template, mock(KafkaAdmin.class));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dictionary, "dictionaryTopic", TOPIC);
+        when(template.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+    }
+
+    @Test
+    void keepsTheLowestOffsetAndRestatesALostRace() {
+        caughtUpTo(0);
+        dictionary.consumeEntry(registration(5, "Laptop", "other-instance"));
+        dictionary.consumeEntry(registration(9, "Laptop", ownRegistrant()));
+
+        assertEquals(5, dictionary.idFor("Laptop"));
+        assertEquals("Laptop", dictionary.nameFor(9));
+
+        ArgumentCaptor<ProducerRecord<String, String>> sent = ArgumentCaptor.captor();
+        verify(template).send(sent.capture());
+        ProducerRecord<String, String> restatement = sent.getValue();
+        assertEquals("Laptop", restatement.key());
+        assertEquals("5", new String(
+            restatement.headers().lastHeader(ProductDictionary.ID_HEADER).value(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void leavesOtherInstancesLostRacesToThem() {
+        caughtUpTo(0);
+        dictionary.consumeEntry(registration(5, "Laptop", ownRegistrant()));
+        dictionary.consumeEntry(registration(9, "Laptop", "other-instance"));
+
+        assertEquals(5, dictionary.idFor("Laptop"));
+        verify(template, never()).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    void learnsTheRestatedIdAfterCompaction() {
+        caughtUpTo(0);
+        // Offsets 5 and 9 were compacted away; only the restatement is left
+        ConsumerRecord<String, String> restatement = new ConsumerRecord<>(TOPIC, 0, 12, "Laptop", "Laptop");
+        restatement.headers().add(ProductDictionary.ID_HEADER, "5".getBytes(StandardCharsets.UTF_8));
+        dictionary.consumeEntry(restatement);
+
+        assertEquals(5, dictionary.idFor("Laptop"));
+        assertEquals("Laptop", dictionary.nameFor(5));
+        assertNull(dictionary.nameFor(12));
+    }
+
+    @Test
+    void registersOnlyOnceCaughtUp() {
+        caughtUpTo(3);
+        dictionary.consumeEntry(registration(1, "Laptop", "other-instance"));
+
+        assertFalse(dictionary.isCaughtUp());
+        assertNull(dictionary.idFor("Laptop"));
+        assertNull(dictionary.idFor("Phone"));
+        verify(template, never()).send(any(ProducerRecord.class));
+
+        dictionary.consumeEntry(registration(2, "Monitor", "other-instance"));
+
+        assertTrue(dictionary.isCaughtUp());
+        assertEquals(1, dictionary.idFor("Laptop"));
+        assertNull(dictionary.idFor("Phone"));
+        ArgumentCaptor<ProducerRecord<String, String>> sent = ArgumentCaptor.captor();
+        verify(template).send(sent.capture());
+        assertEquals("Phone", sent.getValue().key());
+    }
+
+    private void caughtUpTo(long endOffset) {
+        ReflectionTestUtils.setField(dictionary, "catchUpOffset", endOffset == 0 ? -1L : endOffset);
+    }
+
+    private String ownRegistrant() {
+        return (String) ReflectionTestUtils.getField(dictionary, "registrantId");
+    }
+
+    private static ConsumerRecord<String, String> registration(long offset, String product, String registrant) {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>(TOPIC, 0, offset, product, product);
+        record.headers().add(ProductDictionary.REGISTRANT_HEADER, registrant.getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
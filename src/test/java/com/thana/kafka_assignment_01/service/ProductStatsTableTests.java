@@ -0,0 +1,162 @@
+package com.thana.kafka_assignment_01.service;
+
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.ProductMoments;
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.ProductSort;
+import com.thana.kafka_assignment_01.service.PriceAnalyticsService.ProductStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The open-addressing table against plain maps and a two-pass mean and variance.
+ */
+class ProductStatsTableTests {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void tracksEveryProductAcrossResizes() {
+        ProductStatsTable table = new ProductStatsTable(10_000, 10, 3.0);
+        Map<String, List<Double>> prices = new HashMap<>();
+        Random random = new Random(1);
+        // Far more products than the initial capacity, so the table grows several times
+        for (int i = 0; i < 20_000; i++) {
+            String product = "Product " + random.nextInt(2_000);
+            double price = 10 + random.nextDouble() * 90;
+            table.add(product, price);
+            prices.computeIfAbsent(product, key -> new ArrayList<>()).add(price);
+        }
+
+        assertEquals(prices.size(), table.size());
+        assertEquals(0, table.evictions());
+        prices.forEach((product, list) -> assertMatches(list, table.get(product), product));
+        assertNull(table.get("Unknown"));
+    }
+
+    @Test
+    void evictsAtMaxProductsAndKeepsTheRestReachable() {
+        int maxProducts = 100;
+        ProductStatsTable table = new ProductStatsTable(maxProducts, 10, 3.0);
+        Map<String, List<Double>> prices = new HashMap<>();
+        for (int i = 0; i < 1_000; i++) {
+            String product = "Product " + i;
+            table.add(product, i);
+            table.add(product, i + 1);
+            prices.put(product, List.of((double) i, i + 1.0));
+        }
+
+        assertEquals(maxProducts, table.size());
+        assertEquals(1_000 - maxProducts, table.evictions());
+
+        // Backward-shift deletion must leave every survivor findable from its home slot
+        List<String> tracked = new ArrayList<>();
+        table.forEach((product, moments) -> tracked.add(product));
+        assertEquals(maxProducts, tracked.size());
+        for (String product : tracked) {
+            ProductMoments moments = table.get(product);
+            assertNotNull(moments, product);
+            assertMatches(prices.get(product), moments, product);
+        }
+        // Room is made before a new product goes in, so the newest one is always tracked
+        assertNotNull(table.get("Product 999"));
+    }
+
+    @Test
+    void flagsOutliersAgainstTheMomentsBeforeThePrice() {
+        ProductStatsTable table = new ProductStatsTable(10, 5, 3.0);
+        for (int i = 0; i < 10; i++) {
+            assertNull(table.add("Laptop", 100 + (i % 2)));
+        }
+        ProductMoments judged = table.add("Laptop", 1_000);
+        assertNotNull(judged);
+        assertEquals(10, judged.count());
+        assertEquals(100.5, judged.mean(), TOLERANCE);
+        assertNull(table.add("Laptop", 100));
+        assertEquals(1, table.outliers());
+        assertEquals(1, table.get("Laptop").outliers());
+    }
+
+    @Test
+    void mergedMomentsMatchATwoPassReference() {
+        Random random = new Random(7);
+        List<Double> all = new ArrayList<>();
+        ProductMoments merged = new ProductMoments(0, 0, 0, Double.MAX_VALUE, -Double.MAX_VALUE, 0);
+        // Shards of different sizes and price levels, including an empty and a single-price one
+        for (int size : new int[] {0, 1, 17, 250, 3_000}) {
+            ProductStatsTable shard = new ProductStatsTable(10, 10, 3.0);
+            double level = 1_000 * random.nextDouble();
+            for (int i = 0; i < size; i++) {
+                double price = level + random.nextGaussian() * 25;
+                shard.add("Laptop", price);
+                all.add(price);
+            }
+            ProductMoments moments = shard.get("Laptop");
+            if (moments != null) {
+                merged = merged.merge(moments);
+            }
+        }
+
+        assertMatches(all, merged, "merged");
+    }
+
+    @Test
+    void mergedTableRanksLikeAMapOfMergedMoments() {
+        Random random = new Random(3);
+        List<ProductStatsTable> shards = new ArrayList<>();
+        Map<String, ProductMoments> reference = new HashMap<>();
+        for (int shard = 0; shard < 4; shard++) {
+            ProductStatsTable table = new ProductStatsTable(1_000, 10, 3.0);
+            for (int i = 0; i < 5_000; i++) {
+                // Products spread over every shard, with counts far apart so rankings are stable
+                table.add("Product " + random.nextInt(300 + shard * 50), random.nextGaussian() * 10 + 100);
+            }
+            table.forEach((product, moments) -> reference.merge(product, moments, ProductMoments::merge));
+            shards.add(table);
+        }
+
+        ProductStatsTable merged = ProductStatsTable.mergeOf(shards);
+
+        assertArrayEquals(reference.keySet().stream().sorted().toArray(String[]::new), merged.products());
+        reference.forEach((product, moments) -> {
+            ProductMoments actual = merged.get(product);
+            assertEquals(moments.count(), actual.count(), product);
+            assertEquals(moments.mean(), actual.mean(), TOLERANCE * moments.mean(), product);
+            assertEquals(moments.variance(), actual.variance(), TOLERANCE * moments.variance(), product);
+        });
+        for (ProductSort sortBy : ProductSort.values()) {
+            for (boolean ascending : new boolean[] {false, true}) {
+                Comparator<ProductStats> order = ascending ? sortBy.comparator() : sortBy.comparator().reversed();
+                List<String> expected = reference.entrySet().stream()
+                    .map(entry -> merged.get(entry.getKey()).toProductStats(entry.getKey()))
+                    .sorted(order)
+                    .limit(20)
+                    .map(ProductStats::product)
+                    .toList();
+                List<String> actual = merged.top(sortBy, ascending, 20).stream().map(ProductStats::product).toList();
+                assertEquals(expected, actual, sortBy + (ascending ? " ascending" : " descending"));
+            }
+        }
+    }
+
+    private static void assertMatches(List<Double> prices, ProductMoments moments, String message) {
+        double mean = prices.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        double squares = prices.stream().mapToDouble(price -> (price - mean) * (price - mean)).sum();
+        double variance = prices.size() < 2 ? 0 : squares / (prices.size() - 1);
+
+        assertEquals(prices.size(), moments.count(), message);
+        assertEquals(mean, moments.mean(), TOLERANCE * Math.max(1, Math.abs(mean)), message);
+        assertEquals(variance, moments.variance(), TOLERANCE * Math.max(1, variance), message);
+        assertEquals(prices.stream().mapToDouble(Double::doubleValue).min().orElseThrow(), moments.min(), message);
+        assertEquals(prices.stream().mapToDouble(Double::doubleValue).max().orElseThrow(), moments.max(), message);
+    }
+}
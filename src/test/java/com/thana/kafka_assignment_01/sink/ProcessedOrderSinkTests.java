@@ -0,0 +1,94 @@
+package com.thana.kafka_assignment_01.sink;
+
+import com.thana.kafka_assignment_01.service.ListenerPauseControl;
+import com.thana.kafka_assignment_01.service.OrderProcessingService;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Writer thread of the sink against an in-memory H2 database, without Kafka.
+ */
+class ProcessedOrderSinkTests {
+
+    private ProcessedOrderSink sink;
+
+    @AfterEach
+    void stopSink() throws InterruptedException {
+        if (sink != null) {
+            sink.stop();
+        }
+    }
+
+    @Test
+    void failingAckStopsTheListenersOfItsBatchAndTheWriterGoesOn() throws InterruptedException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:sink-tests;DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        MessageListenerContainer ordersListener = listener(new TopicPartition("orders-topic", 0));
+        MessageListenerContainer retryListener = listener(new TopicPartition("orders-retry-topic", 0));
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        when(registry.getListenerContainers()).thenReturn(List.of(ordersListener, retryListener));
+        ListenerPauseControl pauseControl = new ListenerPauseControl(registry);
+        // Capacity 10, batches of 4, pause at 8 queued and resume at 2
+        sink = new ProcessedOrderSink(dataSource, pauseControl, 10, 4, 0, 10, 0.8, 0.2);
+
+        Set<Long> acked = ConcurrentHashMap.newKeySet();
+        for (long offset = 0; offset < 8; offset++) {
+            long acking = offset;
+            Acknowledgment ack = offset == 0
+                ? () -> { throw new IllegalStateException("container stopped"); }
+                : () -> acked.add(acking);
+            sink.submit(order(offset), ack);
+        }
+        assertTrue(sink.getStats().listenersPaused());
+
+        sink.start();
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> acked.size() == 4);
+        // The rest of the first batch is left to be redelivered, the second batch is acked
+        assertEquals(Set.of(4L, 5L, 6L, 7L), acked);
+        // Async acks would hold back its partition for good, so its listener is stopped
+        verify(ordersListener).stop(any(Runnable.class));
+        verify(retryListener, never()).stop(any(Runnable.class));
+        assertFalse(sink.getStats().listenersPaused());
+        assertFalse(pauseControl.isPausedFor(OrderProcessingService.ORDERS_LISTENER_ID, "processed-order-sink"));
+        assertEquals(1, sink.getStats().abandonedBatches());
+
+        // The writer is still running
+        sink.submit(order(8), () -> acked.add(8L));
+        await().atMost(Duration.ofSeconds(10)).until(() -> acked.contains(8L));
+    }
+
+    private static MessageListenerContainer listener(TopicPartition assigned) {
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(container.isRunning()).thenReturn(true);
+        when(container.getAssignedPartitions()).thenReturn(List.of(assigned));
+        return container;
+    }
+
+    private static ProcessedOrder order(long offset) {
+        return new ProcessedOrder("order-" + offset, "Laptop", 10f, "electronics", 12.0, "USD",
+            "orders-topic", 0, offset, System.currentTimeMillis());
+    }
+}